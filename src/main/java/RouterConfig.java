@@ -0,0 +1,176 @@
+import thirdparty.paymentgateway.TicketPaymentService;
+import thirdparty.seatbooking.SeatReservationService;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.auth.AccountTokens;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.auth.AdminToken;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.history.PurchaseHistoryRecorder;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.limit.AdaptiveConcurrencyLimiter;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.outbox.OutboxDispatcher;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.quota.PurchaseCaps;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.repository.TicketPriceRepository;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.startup.Readiness;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.stats.SalesStatistics;
+
+
+/**
+ * What {@link Server#createRouter(RouterConfig)} builds the endpoints from.
+ *
+ * <p>Only the third-party services and the price store are required. The purchase caps, the
+ * adaptive limiter, the admin token and the account token secret default to the
+ * {@code tickets.caps.*}, {@code tickets.limiter*}, {@code tickets.admin.token} and
+ * {@code tickets.accounts.secret} system properties; everything else is off unless set.</p>
+ */
+final class RouterConfig {
+
+    private final TicketPaymentService       paymentService;
+    private final SeatReservationService     seatService;
+    private final TicketPriceRepository      priceRepository;
+    private final OutboxDispatcher           outbox;
+    private final Readiness                  readiness;
+    private final PurchaseHistoryRecorder    history;
+    private final SalesStatistics            stats;
+    private final PurchaseCaps               purchaseCaps;
+    private final AdaptiveConcurrencyLimiter purchaseLimiter;
+    private final AdminToken                 adminToken;
+    private final AccountTokens              accountTokens;
+
+    private RouterConfig(Builder builder) {
+        this.paymentService  = builder.paymentService;
+        this.seatService     = builder.seatService;
+        this.priceRepository = builder.priceRepository;
+        this.outbox          = builder.outbox;
+        this.readiness       = builder.readiness;
+        this.history         = builder.history;
+        this.stats           = builder.stats;
+        this.purchaseCaps    = builder.purchaseCaps;
+        this.purchaseLimiter = builder.purchaseLimiter;
+        this.adminToken      = builder.adminToken;
+        this.accountTokens   = builder.accountTokens;
+    }
+
+    static Builder builder(TicketPaymentService paymentService,
+                           SeatReservationService seatService,
+                           TicketPriceRepository priceRepository) {
+        return new Builder(paymentService, seatService, priceRepository);
+    }
+
+    TicketPaymentService       getPaymentService()  { return paymentService;  }
+    SeatReservationService     getSeatService()     { return seatService;     }
+    TicketPriceRepository      getPriceRepository() { return priceRepository; }
+    OutboxDispatcher           getOutbox()          { return outbox;          }
+    Readiness                  getReadiness()       { return readiness;       }
+    PurchaseHistoryRecorder    getHistory()         { return history;         }
+    SalesStatistics            getStats()           { return stats;           }
+    PurchaseCaps               getPurchaseCaps()    { return purchaseCaps;    }
+    AdaptiveConcurrencyLimiter getPurchaseLimiter() { return purchaseLimiter; }
+    AdminToken                 getAdminToken()      { return adminToken;      }
+    AccountTokens              getAccountTokens()   { return accountTokens;   }
+
+
+    // Builder
+
+    static final class Builder {
+
+        private final TicketPaymentService   paymentService;
+        private final SeatReservationService seatService;
+        private final TicketPriceRepository  priceRepository;
+
+        private OutboxDispatcher           outbox;
+        private Readiness                  readiness = Readiness.ready();
+        private PurchaseHistoryRecorder    history;
+        private SalesStatistics            stats;
+        private PurchaseCaps               purchaseCaps    = purchaseCapsFromProperties();
+        private AdaptiveConcurrencyLimiter purchaseLimiter = purchaseLimiterFromProperties();
+        private AdminToken                 adminToken      = AdminToken.of(System.getProperty("tickets.admin.token"));
+        private AccountTokens              accountTokens   = AccountTokens.of(System.getProperty("tickets.accounts.secret"));
+
+        private Builder(TicketPaymentService paymentService,
+                        SeatReservationService seatService,
+                        TicketPriceRepository priceRepository) {
+            this.paymentService  = paymentService;
+            this.seatService     = seatService;
+            this.priceRepository = priceRepository;
+        }
+
+        /**
+         * Accept purchases into the outbox: validated, answered with 202 and a purchase id, and
+         * dispatched in the background. {@code /api/tickets/purchases/{id}} reports their progress.
+         */
+        Builder outbox(OutboxDispatcher outbox) {
+            this.outbox = outbox;
+            return this;
+        }
+
+        /**
+         * For a service that may start listening before its storage is initialised. Until it is
+         * marked ready the purchase and prices endpoints answer 503, {@code /health/ready} answers
+         * 503 and {@code /health/live} answers 200.
+         */
+        Builder readiness(Readiness readiness) {
+            this.readiness = readiness;
+            return this;
+        }
+
+        /**
+         * Record each completed purchase and serve it from {@code /api/accounts/{id}/purchases}, to
+         * callers holding a token for that account; see {@link #accountTokens}.
+         */
+        Builder history(PurchaseHistoryRecorder history) {
+            this.history = history;
+            return this;
+        }
+
+        /** Count completed and rejected purchases and serve the figures from {@code /api/stats}. */
+        Builder stats(SalesStatistics stats) {
+            this.stats = stats;
+            return this;
+        }
+
+        Builder purchaseCaps(PurchaseCaps purchaseCaps) {
+            this.purchaseCaps = purchaseCaps;
+            return this;
+        }
+
+        /** The adaptive limit on in-flight purchases, or {@code null} for none. */
+        Builder purchaseLimiter(AdaptiveConcurrencyLimiter purchaseLimiter) {
+            this.purchaseLimiter = purchaseLimiter;
+            return this;
+        }
+
+        /** The secret price administration needs; disabled unless {@code tickets.admin.token} is set. */
+        Builder adminToken(AdminToken adminToken) {
+            this.adminToken = adminToken;
+            return this;
+        }
+
+        /** Checks the tokens account owners present; refuses them all unless {@code tickets.accounts.secret} is set. */
+        Builder accountTokens(AccountTokens accountTokens) {
+            this.accountTokens = accountTokens;
+            return this;
+        }
+
+        RouterConfig build() {
+            return new RouterConfig(this);
+        }
+    }
+
+
+    // Helpers
+
+    // -Dtickets.caps.daily / .screening : tickets one account may buy per UTC day / per screening
+    private static PurchaseCaps purchaseCapsFromProperties() {
+        return new PurchaseCaps(
+            Integer.getInteger("tickets.caps.daily", 0),
+            Integer.getInteger("tickets.caps.screening", 0),
+            Integer.getInteger("tickets.caps.capacity", PurchaseCaps.DEFAULT_CAPACITY));
+    }
+
+    // Adaptive limit on in-flight payment/seat calls; -Dtickets.limiter=false turns it off
+    private static AdaptiveConcurrencyLimiter purchaseLimiterFromProperties() {
+        return Boolean.parseBoolean(System.getProperty("tickets.limiter", "true"))
+            ? new AdaptiveConcurrencyLimiter(
+                  Integer.getInteger("tickets.limiter.initial", 20),
+                  Integer.getInteger("tickets.limiter.min", 1),
+                  Integer.getInteger("tickets.limiter.max", 200))
+            : null;
+    }
+}
@@ -1,182 +1,818 @@
-import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpServer;
 import thirdparty.paymentgateway.TicketPaymentService;
 import thirdparty.seatbooking.SeatReservationService;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.PurchaseListener;
 import uk.gov.dwp.uc.pairtest.cinema.tickets.TicketServiceImpl;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.auth.AccountTokens;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.auth.AdminToken;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.cluster.PriceChangeNotifier;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.domain.OutboxEntry;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.domain.PriceScheduleEntry;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.domain.PurchaseHistoryEntry;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.domain.PurchaseOrder;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.domain.Screening;
 import uk.gov.dwp.uc.pairtest.cinema.tickets.domain.TicketPrice;
 import uk.gov.dwp.uc.pairtest.cinema.tickets.domain.TicketTypeRequest;
 import uk.gov.dwp.uc.pairtest.cinema.tickets.exception.InvalidPurchaseException;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.exception.ServiceOverloadedException;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.history.PurchaseHistoryRecorder;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.http.ApiHandler;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.http.ApiRequest;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.http.ApiResponse;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.http.Bulkhead;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.http.JdkHttpTransport;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.http.NioHttpServer;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.http.Router;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.limit.AdaptiveConcurrencyLimiter;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.limit.ConcurrencyLimitedTicketService;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.outbox.OutboxDispatcher;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.outbox.OutboxListener;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.protocol.BinaryProtocol;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.quota.PurchaseCaps;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.repository.ClusterNodeRepository;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.repository.PurchaseHistoryRepository;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.repository.PurchaseOutboxRepository;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.repository.SalesStatisticsRepository;
 import uk.gov.dwp.uc.pairtest.cinema.tickets.repository.TicketPriceRepository;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.startup.Readiness;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.stats.SalesSnapshot;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.stats.SalesStatistics;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.stats.SalesStatisticsFlusher;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.startup.StartupTimer;
 
 import java.io.IOException;
+import java.net.HttpURLConnection;
 import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 
 public class Server {
 
+    // Amount and seats recorded by the third-party calls of the purchase running on this thread.
+    // Per-thread so concurrent purchases served from an executor never see each other's figures.
+    private static final ThreadLocal<int[]> CAPTURED = ThreadLocal.withInitial(() -> new int[2]); // [totalAmount, totalSeats]
+
+    private static final Pattern ACCOUNT_PURCHASES_PATH = Pattern.compile("/api/accounts/(\\d+)/purchases/?");
+    private static final Pattern CURSOR                 = Pattern.compile("(\\d+)-(\\d+)");
+
+    static final int STATS_MINUTES_SHOWN = 15;
+
+    static final int DEFAULT_PAGE_SIZE = 20;
+    static final int MAX_PAGE_SIZE     = 100;
+
     public static void main(String[] args) {
 
-        try {
+        StartupTimer timer = new StartupTimer();
+        int port = Integer.getInteger("tickets.port", 8080);
 
-            int[] captured = {0, 0}; // [totalAmount, totalSeats]
+        try {
 
-            TicketPaymentService paymentService = (accountId, amount) -> {
-                captured[0] = amount;
+            TicketPaymentService paymentService = (accountId, amount) ->
                 System.out.printf("  >> Payment  : account=%d  amount=£%d%n", accountId, amount);
-            };
 
-            SeatReservationService seatService = (accountId, seats) -> {
-                captured[1] = seats;
+            SeatReservationService seatService = (accountId, seats) ->
                 System.out.printf("  >> Seats    : account=%d  seats=%d%n", accountId, seats);
-            };
 
-            TicketPriceRepository priceRepository = new TicketPriceRepository();
-            TicketServiceImpl     ticketService   = new TicketServiceImpl(paymentService, seatService, priceRepository);
+            // -Dtickets.startup=fast : bind the listener while storage initialises in the background;
+            // /health/ready answers 503 until it is done
+            boolean fastStartup = "fast".equals(System.getProperty("tickets.startup", "eager"));
+            Readiness readiness = fastStartup ? Readiness.starting() : Readiness.ready();
 
-            HttpServer server = HttpServer.create(new InetSocketAddress(8080), 0);
+            // -Dtickets.db.url=... : share one price store between instances, e.g. an H2 AUTO_SERVER file
+            // -Dtickets.cluster=true : tell the other instances on this host when a price changes
+            String dbUrl = System.getProperty("tickets.db.url", TicketPriceRepository.DEFAULT_DB_URL);
+            // -Dtickets.node=... : this instance's name in the shared store; defaults to its port, or its pid on port 0
+            String node = System.getProperty("tickets.node",
+                port != 0 ? "localhost:" + port : "pid-" + ProcessHandle.current().pid());
+            TicketPriceRepository     priceRepository   = new TicketPriceRepository(dbUrl, false);
+            PurchaseHistoryRepository historyRepository = new PurchaseHistoryRepository(dbUrl, false);
+            PurchaseHistoryRecorder   history           = new PurchaseHistoryRecorder(historyRepository);
+            SalesStatisticsRepository statsRepository   = new SalesStatisticsRepository(dbUrl, node, false);
+            SalesStatistics           stats             = new SalesStatistics();
+            SalesStatisticsFlusher    statsFlusher      = new SalesStatisticsFlusher(stats, statsRepository,
+                                                              Long.getLong("tickets.stats.flush.millis", 10_000));
+            FutureTask<Void> storage = new FutureTask<>(() -> {
+                long phase = timer.start();
+                priceRepository.initialise();
+                historyRepository.initialise();
+                history.start();
+                Runtime.getRuntime().addShutdownHook(new Thread(history::shutdown, "history-flush"));
+                statsRepository.initialise();
+                statsFlusher.start();
+                Runtime.getRuntime().addShutdownHook(new Thread(statsFlusher::shutdown, "stats-final-flush"));
+                if (Boolean.getBoolean("tickets.cluster")) {
+                    joinCluster(priceRepository);
+                }
+                timer.phase("storage", phase);
+                return null;
+            });
 
-            // POST /api/tickets/purchase
-            server.createContext("/api/tickets/purchase", exchange -> {
-                try {
-                    addCorsHeaders(exchange);
+            if (fastStartup) {
+                new Thread(storage, "storage-init").start();
+            } else {
+                storage.run();
+                awaitStorage(storage);
+            }
 
-                    if ("OPTIONS".equals(exchange.getRequestMethod())) {
-                        exchange.sendResponseHeaders(204, -1);
-                        exchange.close();
-                        return;
-                    }
+            // -Dtickets.outbox=true : accept purchases with 202 and dispatch them in the background. The outbox
+            // lives in the tickets.db.url store, so only a durable URL keeps accepted purchases across a crash.
+            OutboxDispatcher outbox = null;
+            if (Boolean.getBoolean("tickets.outbox")) {
+                long phase = timer.start();
+                if (dbUrl.startsWith("jdbc:h2:mem:")) {
+                    System.out.println("[Outbox] tickets.db.url is in memory; accepted purchases will not survive a restart");
+                }
+                outbox = new OutboxDispatcher(new PurchaseOutboxRepository(dbUrl, node), paymentService, seatService,
+                                              Integer.getInteger("tickets.outbox.workers", 4));
+                timer.phase("outbox", phase);
+            }
 
-                    if (!"POST".equals(exchange.getRequestMethod())) {
-                        respond(exchange, 405, "{\"error\":\"Method Not Allowed — use POST\"}");
-                        return;
-                    }
+            long routesPhase = timer.start();
+            Router router = createRouter(RouterConfig.builder(paymentService, seatService, priceRepository)
+                .outbox(outbox)
+                .readiness(readiness)
+                .history(history)
+                .stats(stats)
+                .build());
+            if (outbox != null) {
+                outbox.start(); // after the router has given it a listener, so recovered purchases are reported
+            }
+            timer.phase("routes", routesPhase);
 
-                    String body = new String(exchange.getRequestBody().readAllBytes());
-                    System.out.println("\n[Request] POST /api/tickets/purchase");
-                    System.out.println("  Body: " + body);
+            // -Dtickets.transport=nio : serve from the selector-based HTTP/1.1 front end instead of the JDK server
+            long listenPhase = timer.start();
+            InetSocketAddress address = new InetSocketAddress(port);
+            String transport = System.getProperty("tickets.transport", "jdk");
+            switch (transport) {
+                case "jdk":
+                    HttpServer jdkServer = JdkHttpTransport.create(address, router);
+                    jdkServer.start();
+                    port = jdkServer.getAddress().getPort();
+                    break;
+                case "nio":
+                    NioHttpServer nioServer = new NioHttpServer(address, router);
+                    nioServer.start();
+                    port = nioServer.getAddress().getPort();
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown tickets.transport '" + transport + "', use jdk or nio");
+            }
+            timer.phase("listen", listenPhase);
 
-                    captured[0] = 0;
-                    captured[1] = 0;
 
-                    try {
-                        Long accountId = parseAccountId(body);
-                        List<TicketTypeRequest> tickets = parseTickets(body);
+            String base = "http://localhost:" + port;
+            System.out.println("  Cinema Ticket Service  —  " + base + "  (" + transport + " transport)");
 
-                        ticketService.purchaseTickets(accountId, tickets.toArray(new TicketTypeRequest[0]));
+            System.out.println("  POST  " + base + "/api/tickets/purchase");
+            System.out.println("  GET   " + base + "/api/tickets/prices  ");
+            System.out.println("  PUT   " + base + "/api/tickets/prices/{type}  (admin token)");
+            System.out.println("  GET   " + base + "/api/tickets/schedules  (POST to add, DELETE /{id} to remove, admin token)");
+            System.out.println("  GET   " + base + "/api/tickets/screenings  (POST to add, DELETE /{id} to remove, admin token)");
+            System.out.println("  GET   " + base + "/health              ");
+            System.out.println("  GET   " + base + "/api/accounts/{id}/purchases  (account token)");
+            System.out.println("  GET   " + base + "/api/stats");
+            if (outbox != null) {
+                System.out.println("  GET   " + base + "/api/tickets/purchases/{id}  (outbox mode)");
+            }
 
-                        String json = String.format(
-                            "{\"success\":true,\"message\":\"Tickets purchased successfully\",\"totalAmount\":%d,\"totalSeats\":%d}",
-                            captured[0], captured[1]
-                        );
-                        System.out.println("  [200] " + json);
-                        respond(exchange, 200, json);
+            System.out.println("  Press Ctrl+C to stop");
 
-                    } catch (InvalidPurchaseException e) {
-                        String json = String.format("{\"success\":false,\"error\":\"%s\"}", escape(e.getMessage()));
-                        System.out.println("  [400] " + json);
-                        respond(exchange, 400, json);
+            awaitStorage(storage);
+            readiness.markReady();
+            timer.ready();
 
-                    } catch (Exception e) {
-                        String json = String.format("{\"success\":false,\"error\":\"%s\"}", escape(e.getMessage()));
-                        System.out.println("  [500] " + json);
-                        respond(exchange, 500, json);
-                    }
+            // -Dtickets.startup.training=true : exercise the endpoints once and exit, for recording a CDS archive
+            if (Boolean.getBoolean("tickets.startup.training")) {
+                train(base);
+                System.exit(0);
+            }
+
+        } catch (IOException e) {
+            System.err.println("[FATAL] Failed to start HTTP server on port " + port + ": " + e.getMessage());
+            System.exit(1);
+        } catch (Exception e) {
+            System.err.println("[FATAL] Unexpected error during server startup: " + e.getMessage());
+            System.exit(1);
+        }
+    }
 
-                } catch (IOException e) {
-                    System.err.println("[ERROR] Failed to handle /api/tickets/purchase: " + e.getMessage());
+    static HttpServer createServer(InetSocketAddress address, RouterConfig config) throws IOException {
+        return JdkHttpTransport.create(address, createRouter(config));
+    }
+
+    /**
+     * Builds the purchase, prices and health endpoints, independent of the transport that serves them.
+     * The given third-party services are wrapped so each response reports the amount and seats actually
+     * sent for that request. The optional parts, such as the outbox, history and statistics, are described
+     * on {@link RouterConfig.Builder}.
+     *
+     * <p>Each endpoint runs on its own {@link Bulkhead}, so a backlog of slow purchases cannot hold up
+     * {@code /health} or price reads; a saturated bulkhead answers 503 straight away. Sizes come from
+     * {@code tickets.bulkhead.<name>.threads} and {@code tickets.bulkhead.<name>.queue}.</p>
+     */
+    static Router createRouter(RouterConfig config) {
+        TicketPaymentService       paymentService  = config.getPaymentService();
+        SeatReservationService     seatService     = config.getSeatService();
+        TicketPriceRepository      priceRepository = config.getPriceRepository();
+        OutboxDispatcher           outbox          = config.getOutbox();
+        Readiness                  readiness       = config.getReadiness();
+        PurchaseHistoryRecorder    history         = config.getHistory();
+        SalesStatistics            stats           = config.getStats();
+        PurchaseCaps               purchaseCaps    = config.getPurchaseCaps();
+        AdaptiveConcurrencyLimiter purchaseLimiter = config.getPurchaseLimiter();
+        AdminToken                 adminToken      = config.getAdminToken();
+        AccountTokens              accountTokens   = config.getAccountTokens();
+
+        TicketPaymentService capturingPaymentService = (accountId, amount) -> {
+            CAPTURED.get()[0] = amount;
+            paymentService.makePayment(accountId, amount);
+        };
+
+        SeatReservationService capturingSeatService = (accountId, seats) -> {
+            CAPTURED.get()[1] = seats;
+            seatService.reserveSeat(accountId, seats);
+        };
+
+        TicketServiceImpl ticketService = new TicketServiceImpl(capturingPaymentService, capturingSeatService,
+            priceRepository, PurchaseListener.all(
+                history != null ? history : PurchaseListener.NONE,
+                stats   != null ? stats   : PurchaseListener.NONE),
+            purchaseCaps);
+
+        // Outbox purchases end on a worker: completions go to history and statistics from there, and
+        // a purchase given up on gives back its caps
+        if (outbox != null) {
+            outbox.setListener(new OutboxListener() {
+                @Override
+                public void purchaseCompleted(PurchaseOrder order) {
+                    ticketService.confirmPurchase(order);
+                }
+
+                @Override
+                public void purchaseFailed(PurchaseOrder order, InvalidPurchaseException.Reason reason) {
+                    ticketService.failPurchase(order, reason);
                 }
             });
+        }
 
-            // GET /api/tickets/prices  — returns all ticket prices from the DB
-            server.createContext("/api/tickets/prices", exchange -> {
-                try {
-                    addCorsHeaders(exchange);
+        ConcurrencyLimitedTicketService limited = purchaseLimiter != null
+            ? new ConcurrencyLimitedTicketService(ticketService, purchaseLimiter)
+            : null;
 
-                    if ("OPTIONS".equals(exchange.getRequestMethod())) {
-                        exchange.sendResponseHeaders(204, -1);
-                        exchange.close();
-                        return;
+        // The purchase bulkhead is only an outer bound; the adaptive limiter sheds well before it fills
+        Bulkhead purchaseBulkhead = bulkhead("purchase", 64, 200);
+        Bulkhead pricesBulkhead   = bulkhead("prices",    4, 100);
+        Bulkhead healthBulkhead   = bulkhead("health",    2,  50); // reserved lane for the load balancer
+        Bulkhead diagBulkhead     = bulkhead("diagnostics", 2, 50);
+
+        Router router = new Router(
+            route -> json(503, errorJson("Server busy — too many " + route.getBulkhead().getName()
+                                         + " requests queued, retry shortly")).header("Retry-After", "1"),
+            e -> json(500, errorJson(e.getMessage())));
+
+        // POST /api/tickets/purchase
+        router.add("/api/tickets/purchase", purchaseBulkhead, whenReady(readiness, request -> {
+            if ("OPTIONS".equals(request.getMethod())) {
+                return withCors(ApiResponse.empty(204));
+            }
+
+            if (!"POST".equals(request.getMethod())) {
+                return json(405, "{\"error\":\"Method Not Allowed — use POST\"}");
+            }
+
+            if (BinaryProtocol.isBinary(request.getHeader("Content-Type"))) {
+                return binaryPurchase(request, ticketService, limited, outbox);
+            }
+
+            String body = request.getBodyAsString();
+            System.out.println("\n[Request] POST /api/tickets/purchase");
+            System.out.println("  Body: " + body);
+
+            int[] captured = CAPTURED.get();
+            captured[0] = 0;
+            captured[1] = 0;
+
+            try {
+                Long accountId = parseAccountId(body);
+                List<TicketTypeRequest> tickets = parseTickets(body);
+                String screeningId = parseString(body, "screeningId");
+
+                if (outbox != null) {
+                    PurchaseOrder order = ticketService.preparePurchase(accountId, screeningId, tickets.toArray(new TicketTypeRequest[0]));
+                    long purchaseId = enqueue(outbox, ticketService, order);
+
+                    String json = purchaseAcceptedJson(purchaseId, order);
+                    System.out.println("  [202] " + json);
+                    return json(202, json);
+                }
+
+                if (limited != null) {
+                    limited.purchaseTickets(accountId, screeningId, tickets.toArray(new TicketTypeRequest[0]));
+                } else {
+                    ticketService.purchaseTickets(accountId, screeningId, tickets.toArray(new TicketTypeRequest[0]));
+                }
+
+                String json = purchaseSuccessJson(captured[0], captured[1]);
+                System.out.println("  [200] " + json);
+                return json(200, json);
+
+            } catch (ServiceOverloadedException e) {
+                String json = errorJson(e.getMessage());
+                System.out.println("  [503] " + json);
+                return json(503, json).header("Retry-After", "1");
+
+            } catch (InvalidPurchaseException | IllegalArgumentException e) {
+                String json = errorJson(e.getMessage());
+                System.out.println("  [400] " + json);
+                return json(400, json);
+
+            } catch (Exception e) {
+                String json = errorJson(e.getMessage());
+                System.out.println("  [500] " + json);
+                return json(500, json);
+            }
+        }));
+
+        // GET /api/tickets/prices  — returns all ticket prices from the DB
+        router.add("/api/tickets/prices", pricesBulkhead, whenReady(readiness, request -> {
+            if ("OPTIONS".equals(request.getMethod())) {
+                return withCors(ApiResponse.empty(204));
+            }
+
+            if ("POST".equals(request.getMethod()) && BinaryProtocol.isBinary(request.getHeader("Content-Type"))) {
+                return binaryPrices(request, priceRepository);
+            }
+
+            // PUT /api/tickets/prices/{type}  — administration; in cluster mode the other instances pick it up straight away
+            if ("PUT".equals(request.getMethod())) {
+                ApiResponse refused = refuseAdmin(request, adminToken);
+                return refused != null ? refused : updatePrice(request, priceRepository);
+            }
+
+            if (!"GET".equals(request.getMethod())) {
+                return json(405, "{\"error\":\"Method Not Allowed — use GET\"}");
+            }
+
+            System.out.println("\n[Request] GET /api/tickets/prices");
+
+            try {
+                String json = pricesJson(priceRepository.getAllPrices());
+                System.out.println("  [200] " + json);
+                return json(200, json);
+
+            } catch (Exception e) {
+                String json = errorJson(e.getMessage());
+                System.out.println("  [500] " + json);
+                return json(500, json);
+            }
+        }));
+
+        // GET /api/tickets/schedules  — time-windowed prices; POST and DELETE /{id} are administration
+        router.add("/api/tickets/schedules", pricesBulkhead, whenReady(readiness, request -> {
+            switch (request.getMethod()) {
+                case "OPTIONS": return withCors(ApiResponse.empty(204));
+                case "GET":     return json(200, schedulesJson(priceRepository.getSchedules()));
+                case "POST":
+                case "DELETE":
+                    ApiResponse refused = refuseAdmin(request, adminToken);
+                    if (refused != null) {
+                        return refused;
                     }
+                    return "POST".equals(request.getMethod())
+                        ? addSchedule(request, priceRepository)
+                        : deleteSchedule(request, priceRepository);
+                default:        return json(405, "{\"error\":\"Method Not Allowed — use GET, POST or DELETE\"}");
+            }
+        }));
 
-                    if (!"GET".equals(exchange.getRequestMethod())) {
-                        respond(exchange, 405, "{\"error\":\"Method Not Allowed — use GET\"}");
-                        return;
+        // GET /api/tickets/screenings  — the screenings on sale; POST and DELETE /{id} are administration
+        router.add("/api/tickets/screenings", pricesBulkhead, whenReady(readiness, request -> {
+            switch (request.getMethod()) {
+                case "OPTIONS": return withCors(ApiResponse.empty(204));
+                case "GET":     return json(200, screeningsJson(priceRepository.getScreenings()));
+                case "POST":
+                case "DELETE":
+                    ApiResponse refused = refuseAdmin(request, adminToken);
+                    if (refused != null) {
+                        return refused;
                     }
+                    return "POST".equals(request.getMethod())
+                        ? addScreening(request, priceRepository)
+                        : deleteScreening(request, priceRepository);
+                default:        return json(405, "{\"error\":\"Method Not Allowed — use GET, POST or DELETE\"}");
+            }
+        }));
 
-                    System.out.println("\n[Request] GET /api/tickets/prices");
-
-                    try {
-                        List<TicketPrice> prices = priceRepository.getAllPrices();
-                        StringBuilder sb = new StringBuilder("[");
-                        for (int i = 0; i < prices.size(); i++) {
-                            TicketPrice p = prices.get(i);
-                            sb.append(String.format(
-                                "{\"ticketType\":\"%s\",\"price\":%d,\"requiresSeat\":%b}",
-                                p.getTicketType(), p.getPrice(), p.isRequiresSeat()
-                            ));
-                            if (i < prices.size() - 1) sb.append(",");
-                        }
-                        sb.append("]");
-
-                        String json = "{\"success\":true,\"prices\":" + sb + "}";
-                        System.out.println("  [200] " + json);
-                        respond(exchange, 200, json);
-
-                    } catch (Exception e) {
-                        String json = String.format("{\"success\":false,\"error\":\"%s\"}", escape(e.getMessage()));
-                        System.out.println("  [500] " + json);
-                        respond(exchange, 500, json);
+        // GET /health  — liveness, with readiness alongside; /health/live and /health/ready for probes
+        router.add("/health", healthBulkhead, request -> json(200, healthJson(readiness)));
+        router.add("/health/live", healthBulkhead, request -> json(200, "{\"status\":\"UP\"}"));
+        router.add("/health/ready", healthBulkhead, request ->
+            json(readiness.isReady() ? 200 : 503, "{\"status\":\"" + readiness + "\"}"));
+
+        // GET /api/tickets/purchases/{id}  — progress of a purchase accepted in outbox mode, for its buyer only
+        if (outbox != null) {
+            Bulkhead statusBulkhead = bulkhead("purchase-status", 4, 100);
+
+            router.add("/api/tickets/purchases/", statusBulkhead, request -> {
+                if ("OPTIONS".equals(request.getMethod())) {
+                    return withCors(ApiResponse.empty(204)).header("Access-Control-Allow-Headers", "Content-Type, Authorization");
+                }
+
+                if (!"GET".equals(request.getMethod())) {
+                    return json(405, "{\"error\":\"Method Not Allowed — use GET\"}");
+                }
+
+                String rawId = request.getPath().substring("/api/tickets/purchases/".length());
+
+                try {
+                    long purchaseId = Long.parseLong(rawId);
+                    Optional<OutboxEntry> entry = outbox.findPurchase(purchaseId);
+                    if (entry.isEmpty()) {
+                        return json(404, errorJson("Unknown purchase id: " + purchaseId));
                     }
+                    ApiResponse refused = refuseNonOwner(request, accountTokens, entry.get().getOrder().getAccountId(), "Purchase status");
+                    if (refused != null) {
+                        return refused;
+                    }
+                    return json(200, purchaseStatusJson(entry.get()));
+
+                } catch (NumberFormatException e) {
+                    return json(400, errorJson("Invalid purchase id: " + rawId));
 
-                } catch (IOException e) {
-                    System.err.println("[ERROR] Failed to handle /api/tickets/prices: " + e.getMessage());
+                } catch (Exception e) {
+                    String json = errorJson(e.getMessage());
+                    System.out.println("  [500] " + json);
+                    return json(500, json);
                 }
             });
+        }
+
+        // GET /api/accounts/{id}/purchases?limit=&after=  — an account's bookings, newest first
+        if (history != null) {
+            Bulkhead historyBulkhead = bulkhead("history", 4, 100);
+
+            router.add("/api/accounts/", historyBulkhead, whenReady(readiness, request -> {
+                if ("OPTIONS".equals(request.getMethod())) {
+                    return withCors(ApiResponse.empty(204)).header("Access-Control-Allow-Headers", "Content-Type, Authorization");
+                }
+
+                if (!"GET".equals(request.getMethod())) {
+                    return json(405, "{\"error\":\"Method Not Allowed — use GET\"}");
+                }
+
+                Matcher path = ACCOUNT_PURCHASES_PATH.matcher(request.getPath());
+                if (!path.matches()) {
+                    return json(404, errorJson("Use GET /api/accounts/{id}/purchases"));
+                }
 
-            // GET /health
-            server.createContext("/health", exchange -> {
                 try {
-                    addCorsHeaders(exchange);
-                    respond(exchange, 200, "{\"status\":\"UP\"}");
-                } catch (IOException e) {
-                    System.err.println("[ERROR] Failed to handle /health: " + e.getMessage());
+                    long accountId = Long.parseLong(path.group(1));
+                    ApiResponse refused = refuseNonOwner(request, accountTokens, accountId, "Purchase history");
+                    if (refused != null) {
+                        return refused;
+                    }
+
+                    int  limit     = parseLimit(request.getQueryParameter("limit"));
+                    String after   = request.getQueryParameter("after");
+
+                    // One extra row tells us whether there is another page
+                    List<PurchaseHistoryEntry> page = after == null
+                        ? history.findPurchases(accountId, limit + 1)
+                        : history.findPurchasesBefore(accountId, cursorTime(after), cursorId(after), limit + 1);
+
+                    String next = page.size() > limit ? cursor(page.get(limit - 1)) : null;
+                    return json(200, purchaseHistoryJson(accountId, page.subList(0, Math.min(limit, page.size())), next));
+
+                } catch (IllegalArgumentException e) {
+                    return json(400, errorJson(e.getMessage()));
+
+                } catch (Exception e) {
+                    String json = errorJson(e.getMessage());
+                    System.out.println("  [500] " + json);
+                    return json(500, json);
                 }
-            });
+            }));
+        }
 
-            server.start();
+        // GET /api/stats  — this instance's live sales figures
+        if (stats != null) {
+            router.add("/api/stats", diagBulkhead, request -> json(200, statsJson(stats)));
+        }
 
-            
-            System.out.println("  Cinema Ticket Service  —  http://localhost:8080 ");
-        
-            System.out.println("  POST  http://localhost:8080/api/tickets/purchase");
-            System.out.println("  GET   http://localhost:8080/api/tickets/prices  ");
-            System.out.println("  GET   http://localhost:8080/health              ");
-          
-            System.out.println("  Press Ctrl+C to stop");
-          
+        // GET /api/caps  — per-account purchase caps in force
+        if (purchaseCaps.isEnabled()) {
+            router.add("/api/caps", diagBulkhead, request -> json(200, capsJson(purchaseCaps)));
+        }
+
+        // GET /api/bulkheads  — queue depth and wait time per endpoint
+        router.add("/api/bulkheads", diagBulkhead, request -> json(200, bulkheadsJson(router.getBulkheads())));
+
+        // GET /api/limiter  — current adaptive purchase limit
+        if (purchaseLimiter != null) {
+            router.add("/api/limiter", diagBulkhead, request -> json(200, limiterJson(purchaseLimiter)));
+        }
+
+        return router;
+    }
+
+    // Bulkheads
+
+    private static Bulkhead bulkhead(String name, int defaultThreads, int defaultQueue) {
+        return new Bulkhead(name,
+            Integer.getInteger("tickets.bulkhead." + name + ".threads", defaultThreads),
+            Integer.getInteger("tickets.bulkhead." + name + ".queue",   defaultQueue));
+    }
+
+    // Outbox
+
+    // An order that never reaches the outbox will not be completed, so it gives back the caps it took
+    private static long enqueue(OutboxDispatcher outbox, TicketServiceImpl ticketService, PurchaseOrder order) {
+        try {
+            return outbox.enqueue(order);
+        } catch (RuntimeException e) {
+            ticketService.cancelPurchase(order);
+            throw e;
+        }
+    }
+
+    // Binary protocol — kiosk traffic is high volume, so only failures are logged
+
+    private static ApiResponse binaryPurchase(ApiRequest request, TicketServiceImpl ticketService,
+                                              ConcurrencyLimitedTicketService limited, OutboxDispatcher outbox) {
+        BinaryProtocol.Purchase purchase;
+        try {
+            purchase = BinaryProtocol.decodePurchase(request.getBody());
+        } catch (IllegalArgumentException e) {
+            return binary(400, BinaryProtocol.encodeError(BinaryProtocol.OP_PURCHASE, BinaryProtocol.STATUS_MALFORMED, e.getMessage()));
+        }
+
+        int[] captured = CAPTURED.get();
+        captured[0] = 0;
+        captured[1] = 0;
+
+        try {
+            if (outbox != null) {
+                PurchaseOrder order = ticketService.preparePurchase(purchase.getAccountId(), purchase.getScreeningId(), purchase.getTickets());
+                long purchaseId = enqueue(outbox, ticketService, order);
+                return binary(202, BinaryProtocol.encodePurchaseAccepted(purchaseId, order.getTotalAmount(), order.getTotalSeats()));
+            }
+
+            if (limited != null) {
+                limited.purchaseTickets(purchase.getAccountId(), purchase.getScreeningId(), purchase.getTickets());
+            } else {
+                ticketService.purchaseTickets(purchase.getAccountId(), purchase.getScreeningId(), purchase.getTickets());
+            }
+            return binary(200, BinaryProtocol.encodePurchaseOk(captured[0], captured[1]));
+
+        } catch (ServiceOverloadedException e) {
+            return binary(503, BinaryProtocol.encodeError(BinaryProtocol.OP_PURCHASE, BinaryProtocol.STATUS_OVERLOADED, e.getMessage()))
+                .header("Retry-After", "1");
+
+        } catch (InvalidPurchaseException e) {
+            System.out.println("  [400] binary purchase for account " + purchase.getAccountId() + ": " + e.getMessage());
+            return binary(400, BinaryProtocol.encodeError(BinaryProtocol.OP_PURCHASE, BinaryProtocol.STATUS_INVALID, e.getMessage()));
 
-        } catch (IOException e) {
-            System.err.println("[FATAL] Failed to start HTTP server on port 8080: " + e.getMessage());
-            System.exit(1);
         } catch (Exception e) {
-            System.err.println("[FATAL] Unexpected error during server startup: " + e.getMessage());
-            System.exit(1);
+            System.out.println("  [500] binary purchase for account " + purchase.getAccountId() + ": " + e.getMessage());
+            return binary(500, BinaryProtocol.encodeError(BinaryProtocol.OP_PURCHASE, BinaryProtocol.STATUS_ERROR, e.getMessage()));
+        }
+    }
+
+    private static ApiResponse binaryPrices(ApiRequest request, TicketPriceRepository priceRepository) {
+        try {
+            BinaryProtocol.decodePricesRequest(request.getBody());
+        } catch (IllegalArgumentException e) {
+            return binary(400, BinaryProtocol.encodeError(BinaryProtocol.OP_PRICES, BinaryProtocol.STATUS_MALFORMED, e.getMessage()));
+        }
+        return binary(200, BinaryProtocol.encodePrices(priceRepository.getAllPrices()));
+    }
+
+    // Price administration — changes what every customer pays, so it needs the admin token, and its
+    // responses carry no CORS headers, so a page on another origin cannot drive it from a browser
+
+    // Answers 403 while administration is disabled and 401 without the token; null if the caller has it
+    private static ApiResponse refuseAdmin(ApiRequest request, AdminToken adminToken) {
+        if (!adminToken.isEnabled()) {
+            return adminJson(403, errorJson("Administration is disabled; start the server with -Dtickets.admin.token"));
+        }
+        if (!adminToken.permits(request.getHeader("Authorization"))) {
+            System.out.println("  [401] " + request.getMethod() + " " + request.getPath() + " without the admin token");
+            return adminJson(401, errorJson("Administration needs Authorization: Bearer <admin token>"))
+                .header("WWW-Authenticate", "Bearer");
+        }
+        return null;
+    }
+
+    // An account's purchases are served only to its owner: 403 while account tokens are disabled or
+    // for another account's token, 401 without a valid one; null if the caller owns the account
+    private static ApiResponse refuseNonOwner(ApiRequest request, AccountTokens accountTokens, long accountId, String what) {
+        if (!accountTokens.isEnabled()) {
+            return json(403, errorJson(what + " is disabled; start the server with -Dtickets.accounts.secret"));
+        }
+        long caller = accountTokens.accountOf(request.getHeader("Authorization"));
+        if (caller == AccountTokens.NONE) {
+            return json(401, errorJson(what + " needs Authorization: Bearer <account token>"))
+                .header("WWW-Authenticate", "Bearer");
+        }
+        if (caller != accountId) {
+            System.out.println("  [403] account " + caller + " asked for the purchases of account " + accountId);
+            return json(403, errorJson("Account " + caller + " may not see the purchases of another account"));
+        }
+        return null;
+    }
+
+    private static ApiResponse updatePrice(ApiRequest request, TicketPriceRepository priceRepository) {
+        String type = request.getPath().substring("/api/tickets/prices".length()).replaceFirst("^/", "");
+        System.out.println("\n[Request] PUT /api/tickets/prices/" + type);
+
+        if (type.isEmpty() || type.contains("/")) {
+            return adminJson(404, errorJson("Use PUT /api/tickets/prices/{type}"));
+        }
+
+        try {
+            int price = parsePrice(request.getBodyAsString());
+            if (priceRepository.getAllPrices().stream().noneMatch(p -> p.getTicketType().equalsIgnoreCase(type))) {
+                return adminJson(404, errorJson("Unknown ticket type: " + type));
+            }
+
+            priceRepository.updatePrice(type, price);
+
+            String json = pricesJson(priceRepository.getAllPrices());
+            System.out.println("  [200] " + json);
+            return adminJson(200, json);
+
+        } catch (IllegalArgumentException e) {
+            return adminJson(400, errorJson(e.getMessage()));
+
+        } catch (Exception e) {
+            String json = errorJson(e.getMessage());
+            System.out.println("  [500] " + json);
+            return adminJson(500, json);
+        }
+    }
+
+    private static ApiResponse addSchedule(ApiRequest request, TicketPriceRepository priceRepository) {
+        String body = request.getBodyAsString();
+        System.out.println("\n[Request] POST /api/tickets/schedules");
+        System.out.println("  Body: " + body);
+
+        try {
+            PriceScheduleEntry entry = priceRepository.addSchedule(parseSchedule(body));
+
+            String json = "{\"success\":true,\"schedule\":" + scheduleJson(entry) + "}";
+            System.out.println("  [201] " + json);
+            return adminJson(201, json);
+
+        } catch (IllegalArgumentException e) {
+            return adminJson(400, errorJson(e.getMessage()));
+
+        } catch (Exception e) {
+            String json = errorJson(e.getMessage());
+            System.out.println("  [500] " + json);
+            return adminJson(500, json);
+        }
+    }
+
+    private static ApiResponse deleteSchedule(ApiRequest request, TicketPriceRepository priceRepository) {
+        String rawId = request.getPath().substring("/api/tickets/schedules".length()).replaceFirst("^/", "");
+        System.out.println("\n[Request] DELETE /api/tickets/schedules/" + rawId);
+
+        try {
+            long id = Long.parseLong(rawId);
+            if (!priceRepository.deleteSchedule(id)) {
+                return adminJson(404, errorJson("Unknown price schedule: " + id));
+            }
+            return adminJson(200, "{\"success\":true}");
+
+        } catch (NumberFormatException e) {
+            return adminJson(404, errorJson("Use DELETE /api/tickets/schedules/{id}"));
+
+        } catch (Exception e) {
+            String json = errorJson(e.getMessage());
+            System.out.println("  [500] " + json);
+            return adminJson(500, json);
+        }
+    }
+
+    private static ApiResponse addScreening(ApiRequest request, TicketPriceRepository priceRepository) {
+        String body = request.getBodyAsString();
+        System.out.println("\n[Request] POST /api/tickets/screenings");
+        System.out.println("  Body: " + body);
+
+        try {
+            Screening screening = parseScreening(body);
+            if (!priceRepository.addScreening(screening)) {
+                return adminJson(409, errorJson("Screening " + screening.getScreeningId() + " already exists"));
+            }
+
+            String json = "{\"success\":true,\"screening\":" + screeningJson(screening) + "}";
+            System.out.println("  [201] " + json);
+            return adminJson(201, json);
+
+        } catch (IllegalArgumentException e) {
+            return adminJson(400, errorJson(e.getMessage()));
+
+        } catch (Exception e) {
+            String json = errorJson(e.getMessage());
+            System.out.println("  [500] " + json);
+            return adminJson(500, json);
+        }
+    }
+
+    private static ApiResponse deleteScreening(ApiRequest request, TicketPriceRepository priceRepository) {
+        String screeningId = request.getPath().substring("/api/tickets/screenings".length()).replaceFirst("^/", "");
+        System.out.println("\n[Request] DELETE /api/tickets/screenings/" + screeningId);
+
+        if (screeningId.isEmpty() || screeningId.contains("/")) {
+            return adminJson(404, errorJson("Use DELETE /api/tickets/screenings/{id}"));
+        }
+
+        try {
+            if (!priceRepository.deleteScreening(screeningId)) {
+                return adminJson(404, errorJson("Unknown screening: " + screeningId));
+            }
+            return adminJson(200, "{\"success\":true}");
+
+        } catch (Exception e) {
+            String json = errorJson(e.getMessage());
+            System.out.println("  [500] " + json);
+            return adminJson(500, json);
+        }
+    }
+
+    private static ApiResponse binary(int code, byte[] frame) {
+        return new ApiResponse(code, BinaryProtocol.CONTENT_TYPE, frame);
+    }
+
+    // Answers 503 until storage is initialised, for endpoints that read it; binary requests get a
+    // STATUS_UNAVAILABLE frame, so kiosks can tell start-up from being shed
+    private static ApiHandler whenReady(Readiness readiness, ApiHandler handler) {
+        return request -> {
+            if (readiness.isReady()) {
+                return handler.handle(request);
+            }
+            String message = "Service is starting up, retry shortly";
+            ApiResponse response = BinaryProtocol.isBinary(request.getHeader("Content-Type"))
+                ? binary(503, BinaryProtocol.encodeError(BinaryProtocol.opcodeOf(request.getBody()),
+                                                         BinaryProtocol.STATUS_UNAVAILABLE, message))
+                : json(503, errorJson(message));
+            return response.header("Retry-After", "1");
+        };
+    }
+
+    // Start-up
+
+    private static void awaitStorage(FutureTask<Void> storage) throws Exception {
+        try {
+            storage.get();
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+        }
+    }
+
+    private static void joinCluster(TicketPriceRepository priceRepository) throws IOException {
+        PriceChangeNotifier notifier = new PriceChangeNotifier(
+            priceRepository, new ClusterNodeRepository(priceRepository.getDbUrl()), "127.0.0.1");
+        priceRepository.addChangeListener(notifier::publish);
+        notifier.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(notifier::stop, "cluster-leave"));
+    }
+
+    // Loads the classes a real request touches, so a CDS archive recorded from this run covers them
+    private static void train(String base) throws IOException {
+        String order = "{\"accountId\":1,\"tickets\":[{\"type\":\"ADULT\",\"quantity\":2},{\"type\":\"CHILD\",\"quantity\":1}]}";
+        for (String path : List.of("/health", "/health/ready", "/api/tickets/prices", "/api/tickets/purchase")) {
+            HttpURLConnection connection = (HttpURLConnection) new URL(base + path).openConnection();
+            if (path.endsWith("/purchase")) {
+                connection.setRequestMethod("POST");
+                connection.setDoOutput(true);
+                connection.getOutputStream().write(order.getBytes(StandardCharsets.UTF_8));
+            }
+            System.out.println("[Startup] training " + path + " -> " + connection.getResponseCode());
+            connection.disconnect();
         }
     }
 
     // JSON parsing 
 
-    private static Long parseAccountId(String json) {
+    static Long parseAccountId(String json) {
         Matcher m = Pattern.compile("\"accountId\"\\s*:\\s*(-?\\d+)").matcher(json);
         if (!m.find()) throw new RuntimeException("Missing or invalid 'accountId' field");
         return Long.parseLong(m.group(1));
     }
 
-    private static List<TicketTypeRequest> parseTickets(String json) {
+    static List<TicketTypeRequest> parseTickets(String json) {
         List<TicketTypeRequest> list = new ArrayList<>();
 
         // Isolate the tickets array
@@ -217,19 +853,290 @@ public class Server {
         return list;
     }
 
+    static int parsePrice(String json) {
+        Matcher m = Pattern.compile("\"price\"\\s*:\\s*(-?\\d+)").matcher(json == null ? "" : json);
+        if (!m.find()) throw new IllegalArgumentException("Missing or invalid 'price' field");
+        int price = Integer.parseInt(m.group(1));
+        if (price < 0) throw new IllegalArgumentException("'price' must not be negative");
+        return price;
+    }
+
+    // A screening put on sale: { "screeningId": "...", "auditorium": "...", "startsAt": "<ISO instant>" }
+    static Screening parseScreening(String json) {
+        String screeningId = parseString(json, "screeningId");
+        String startsAt    = parseString(json, "startsAt");
+        if (screeningId == null || screeningId.isEmpty() || startsAt == null) {
+            throw new IllegalArgumentException("'screeningId' and 'startsAt' are required");
+        }
+        if (screeningId.contains("/")) {
+            throw new IllegalArgumentException("'screeningId' must not contain '/'");
+        }
+        return new Screening(screeningId, parseString(json, "auditorium"), parseInstant(startsAt, "startsAt"));
+    }
+
+    static PriceScheduleEntry parseSchedule(String json) {
+        String rawType  = parseString(json, "ticketType");
+        String startsAt = parseString(json, "startsAt");
+        String endsAt   = parseString(json, "endsAt");
+        if (rawType == null || startsAt == null || endsAt == null) {
+            throw new IllegalArgumentException("'ticketType', 'startsAt' and 'endsAt' are required");
+        }
+
+        TicketTypeRequest.Type type;
+        try {
+            type = TicketTypeRequest.Type.valueOf(rawType);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown ticket type: " + rawType + ". Valid values: ADULT, CHILD, INFANT");
+        }
+
+        return new PriceScheduleEntry(0, type, parseString(json, "screeningId"), parseString(json, "auditorium"),
+                                      parseInstant(startsAt, "startsAt"), parseInstant(endsAt, "endsAt"),
+                                      parsePrice(json));
+    }
+
+    private static String parseString(String json, String field) {
+        Matcher m = Pattern.compile("\"" + field + "\"\\s*:\\s*\"([^\"]*)\"").matcher(json == null ? "" : json);
+        return m.find() ? m.group(1) : null;
+    }
+
+    private static Instant parseInstant(String raw, String field) {
+        try {
+            return Instant.parse(raw);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("'" + field + "' must be an ISO-8601 instant such as 2026-06-01T19:30:00Z");
+        }
+    }
+
+    static int parseLimit(String raw) {
+        if (raw == null) {
+            return DEFAULT_PAGE_SIZE;
+        }
+        try {
+            int limit = Integer.parseInt(raw);
+            if (limit >= 1 && limit <= MAX_PAGE_SIZE) {
+                return limit;
+            }
+        } catch (NumberFormatException e) {
+            // reported below
+        }
+        throw new IllegalArgumentException("'limit' must be between 1 and " + MAX_PAGE_SIZE);
+    }
+
+    // Keyset cursor: "<purchasedAt epoch millis>-<purchaseId>" of the last purchase on the previous page
+
+    static String cursor(PurchaseHistoryEntry entry) {
+        return entry.getPurchasedAt().toEpochMilli() + "-" + entry.getPurchaseId();
+    }
+
+    static Instant cursorTime(String cursor) {
+        return Instant.ofEpochMilli(parseCursor(cursor)[0]);
+    }
+
+    static long cursorId(String cursor) {
+        return parseCursor(cursor)[1];
+    }
+
+    private static long[] parseCursor(String cursor) {
+        Matcher m = CURSOR.matcher(cursor);
+        if (!m.matches()) throw new IllegalArgumentException("Invalid 'after' cursor: " + cursor);
+        return new long[] {Long.parseLong(m.group(1)), Long.parseLong(m.group(2))};
+    }
+
+    // JSON encoding
+
+    static String purchaseSuccessJson(int totalAmount, int totalSeats) {
+        return String.format(
+            "{\"success\":true,\"message\":\"Tickets purchased successfully\",\"totalAmount\":%d,\"totalSeats\":%d}",
+            totalAmount, totalSeats
+        );
+    }
+
+    static String purchaseAcceptedJson(long purchaseId, PurchaseOrder order) {
+        return String.format(
+            "{\"success\":true,\"message\":\"Purchase accepted\",\"purchaseId\":%d,\"status\":\"%s\"," +
+            "\"totalAmount\":%d,\"totalSeats\":%d,\"statusUrl\":\"/api/tickets/purchases/%d\"}",
+            purchaseId, OutboxEntry.Status.PENDING, order.getTotalAmount(), order.getTotalSeats(), purchaseId
+        );
+    }
+
+    static String purchaseStatusJson(OutboxEntry entry) {
+        return String.format(
+            "{\"success\":true,\"purchaseId\":%d,\"status\":\"%s\",\"totalAmount\":%d,\"totalSeats\":%d," +
+            "\"attempts\":%d,\"error\":%s}",
+            entry.getPurchaseId(), entry.getStatus(), entry.getOrder().getTotalAmount(),
+            entry.getOrder().getTotalSeats(), entry.getAttempts(),
+            entry.getLastError() == null ? "null" : "\"" + escape(entry.getLastError()) + "\""
+        );
+    }
+
+    static String purchaseHistoryJson(long accountId, List<PurchaseHistoryEntry> page, String nextCursor) {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < page.size(); i++) {
+            PurchaseHistoryEntry e = page.get(i);
+            PurchaseOrder        o = e.getOrder();
+            sb.append(String.format(
+                "{\"purchaseId\":%d,\"purchasedAt\":\"%s\",\"adults\":%d,\"children\":%d,\"infants\":%d," +
+                "\"totalAmount\":%d,\"totalSeats\":%d}",
+                e.getPurchaseId(), e.getPurchasedAt(), o.getAdultCount(), o.getChildCount(), o.getInfantCount(),
+                o.getTotalAmount(), o.getTotalSeats()
+            ));
+            if (i < page.size() - 1) sb.append(",");
+        }
+        sb.append("]");
+        return "{\"success\":true,\"accountId\":" + accountId + ",\"purchases\":" + sb
+             + ",\"nextCursor\":" + (nextCursor == null ? "null" : "\"" + nextCursor + "\"") + "}";
+    }
+
+    static String statsJson(SalesStatistics stats) {
+        long now = stats.currentMinute();
+
+        StringBuilder minutes = new StringBuilder("[");
+        for (int i = 0; i < STATS_MINUTES_SHOWN; i++) {
+            SalesSnapshot m = stats.minute(now - i);
+            minutes.append(String.format(
+                "{\"minute\":\"%s\",\"purchases\":%d,\"tickets\":%d,\"revenue\":%d,\"rejections\":%d}",
+                Instant.ofEpochSecond((now - i) * 60), m.getPurchases(), m.getTotalTickets(), m.getTotalRevenue(),
+                m.getTotalRejections()
+            ));
+            if (i < STATS_MINUTES_SHOWN - 1) minutes.append(",");
+        }
+        minutes.append("]");
+
+        return "{\"success\":true,\"totals\":" + salesJson(stats.totals())
+             + ",\"lastHour\":" + salesJson(stats.lastHour())
+             + ",\"minutes\":" + minutes + "}";
+    }
+
+    static String salesJson(SalesSnapshot snapshot) {
+        StringBuilder tickets = new StringBuilder();
+        StringBuilder revenue = new StringBuilder();
+        for (TicketTypeRequest.Type type : TicketTypeRequest.Type.values()) {
+            if (tickets.length() > 0) {
+                tickets.append(",");
+                revenue.append(",");
+            }
+            tickets.append("\"").append(type).append("\":").append(snapshot.getTickets(type));
+            revenue.append("\"").append(type).append("\":").append(snapshot.getRevenue(type));
+        }
+
+        StringBuilder rejections = new StringBuilder();
+        for (InvalidPurchaseException.Reason reason : InvalidPurchaseException.Reason.values()) {
+            if (rejections.length() > 0) rejections.append(",");
+            rejections.append("\"").append(reason).append("\":").append(snapshot.getRejections(reason));
+        }
+
+        return "{\"purchases\":" + snapshot.getPurchases()
+             + ",\"tickets\":{" + tickets + ",\"total\":" + snapshot.getTotalTickets() + "}"
+             + ",\"revenue\":{" + revenue + ",\"total\":" + snapshot.getTotalRevenue() + "}"
+             + ",\"rejections\":{" + rejections + ",\"total\":" + snapshot.getTotalRejections() + "}}";
+    }
+
+    static String pricesJson(List<TicketPrice> prices) {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < prices.size(); i++) {
+            TicketPrice p = prices.get(i);
+            sb.append(String.format(
+                "{\"ticketType\":\"%s\",\"price\":%d,\"requiresSeat\":%b}",
+                p.getTicketType(), p.getPrice(), p.isRequiresSeat()
+            ));
+            if (i < prices.size() - 1) sb.append(",");
+        }
+        sb.append("]");
+        return "{\"success\":true,\"prices\":" + sb + "}";
+    }
+
+    static String schedulesJson(List<PriceScheduleEntry> schedules) {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < schedules.size(); i++) {
+            sb.append(scheduleJson(schedules.get(i)));
+            if (i < schedules.size() - 1) sb.append(",");
+        }
+        sb.append("]");
+        return "{\"success\":true,\"schedules\":" + sb + "}";
+    }
+
+    static String scheduleJson(PriceScheduleEntry entry) {
+        return String.format(
+            "{\"id\":%d,\"ticketType\":\"%s\",\"screeningId\":%s,\"auditorium\":%s," +
+            "\"startsAt\":\"%s\",\"endsAt\":\"%s\",\"price\":%d}",
+            entry.getId(), entry.getTicketType(), jsonString(entry.getScreeningId()), jsonString(entry.getAuditorium()),
+            entry.getStartsAt(), entry.getEndsAt(), entry.getPrice()
+        );
+    }
+
+    static String screeningsJson(List<Screening> screenings) {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < screenings.size(); i++) {
+            sb.append(screeningJson(screenings.get(i)));
+            if (i < screenings.size() - 1) sb.append(",");
+        }
+        sb.append("]");
+        return "{\"success\":true,\"screenings\":" + sb + "}";
+    }
+
+    static String screeningJson(Screening screening) {
+        return String.format(
+            "{\"screeningId\":%s,\"auditorium\":%s,\"startsAt\":\"%s\"}",
+            jsonString(screening.getScreeningId()), jsonString(screening.getAuditorium()), screening.getStartsAt()
+        );
+    }
+
+    static String bulkheadsJson(List<Bulkhead> bulkheads) {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < bulkheads.size(); i++) {
+            Bulkhead b = bulkheads.get(i);
+            sb.append(String.format(Locale.ROOT,
+                "{\"name\":\"%s\",\"threads\":%d,\"queueCapacity\":%d,\"active\":%d,\"queueDepth\":%d," +
+                "\"accepted\":%d,\"rejected\":%d,\"avgWaitMillis\":%.3f,\"maxWaitMillis\":%.3f}",
+                b.getName(), b.getThreads(), b.getQueueCapacity(), b.getActiveCount(), b.getQueueDepth(),
+                b.getAcceptedCount(), b.getRejectedCount(), b.getAverageWaitMillis(), b.getMaxWaitMillis()
+            ));
+            if (i < bulkheads.size() - 1) sb.append(",");
+        }
+        sb.append("]");
+        return "{\"success\":true,\"bulkheads\":" + sb + "}";
+    }
+
+    static String limiterJson(AdaptiveConcurrencyLimiter limiter) {
+        return String.format(Locale.ROOT,
+            "{\"success\":true,\"limit\":%d,\"inFlight\":%d,\"shed\":%d,\"rttNoLoadMillis\":%.3f}",
+            limiter.getLimit(), limiter.getInFlight(), limiter.getShedCount(), limiter.getRttNoLoadMillis()
+        );
+    }
+
+    static String capsJson(PurchaseCaps caps) {
+        return String.format(
+            "{\"success\":true,\"maxPerDay\":%d,\"maxPerScreening\":%d,\"capacity\":%d,\"evictions\":%d}",
+            caps.getMaxPerDay(), caps.getMaxPerScreening(), caps.getCapacity(), caps.getEvictions()
+        );
+    }
+
+    static String healthJson(Readiness readiness) {
+        return "{\"status\":\"UP\",\"ready\":" + readiness.isReady() + "}";
+    }
+
+    static String errorJson(String message) {
+        return String.format("{\"success\":false,\"error\":\"%s\"}", escape(message));
+    }
+
     // ── Helpers 
-    private static void respond(HttpExchange exchange, int code, String json) throws IOException {
-        byte[] body = json.getBytes("UTF-8");
-        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
-        exchange.sendResponseHeaders(code, body.length);
-        exchange.getResponseBody().write(body);
-        exchange.close();
-    }
-
-    private static void addCorsHeaders(HttpExchange exchange) {
-        exchange.getResponseHeaders().set("Access-Control-Allow-Origin",  "*");
-        exchange.getResponseHeaders().set("Access-Control-Allow-Methods", "GET, POST, OPTIONS");
-        exchange.getResponseHeaders().set("Access-Control-Allow-Headers", "Content-Type");
+    private static ApiResponse json(int code, String json) {
+        return withCors(ApiResponse.json(code, json));
+    }
+
+    // For administration: no CORS headers, so only same-origin pages and non-browser clients get an answer
+    private static ApiResponse adminJson(int code, String json) {
+        return ApiResponse.json(code, json);
+    }
+
+    private static ApiResponse withCors(ApiResponse response) {
+        return response.header("Access-Control-Allow-Origin",  "*")
+                       .header("Access-Control-Allow-Methods", "GET, POST, OPTIONS")
+                       .header("Access-Control-Allow-Headers", "Content-Type");
+    }
+
+    private static String jsonString(String s) {
+        return s == null ? "null" : "\"" + escape(s) + "\"";
     }
 
     private static String escape(String s) {
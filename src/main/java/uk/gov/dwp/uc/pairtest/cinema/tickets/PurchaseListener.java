@@ -0,0 +1,42 @@
+package uk.gov.dwp.uc.pairtest.cinema.tickets;
+
+import uk.gov.dwp.uc.pairtest.cinema.tickets.domain.PurchaseOrder;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.exception.InvalidPurchaseException.Reason;
+
+/**
+ * Told about each purchase {@link TicketServiceImpl} has charged and seated, and about each
+ * one it has turned down.
+ *
+ * <p>Called on the purchasing thread, or for a purchase dispatched from the outbox on the worker
+ * that completed it; completions after both third-party calls have succeeded. An implementation
+ * must be quick and must not throw, since the customer has already paid.</p>
+ */
+@FunctionalInterface
+public interface PurchaseListener {
+
+    PurchaseListener NONE = order -> { };
+
+    void purchaseCompleted(PurchaseOrder order);
+
+    default void purchaseRejected(Reason reason) {
+    }
+
+    /** A listener passing every event on to each of {@code listeners} in turn. */
+    static PurchaseListener all(PurchaseListener... listeners) {
+        return new PurchaseListener() {
+            @Override
+            public void purchaseCompleted(PurchaseOrder order) {
+                for (PurchaseListener listener : listeners) {
+                    listener.purchaseCompleted(order);
+                }
+            }
+
+            @Override
+            public void purchaseRejected(Reason reason) {
+                for (PurchaseListener listener : listeners) {
+                    listener.purchaseRejected(reason);
+                }
+            }
+        };
+    }
+}
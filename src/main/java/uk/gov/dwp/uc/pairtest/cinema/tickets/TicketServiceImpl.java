@@ -2,9 +2,13 @@ package uk.gov.dwp.uc.pairtest.cinema.tickets;
 
 import thirdparty.paymentgateway.TicketPaymentService;
 import thirdparty.seatbooking.SeatReservationService;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.domain.PurchaseOrder;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.domain.Screening;
 import uk.gov.dwp.uc.pairtest.cinema.tickets.domain.TicketTypeRequest;
 import uk.gov.dwp.uc.pairtest.cinema.tickets.domain.TicketTypeRequest.Type;
 import uk.gov.dwp.uc.pairtest.cinema.tickets.exception.InvalidPurchaseException;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.exception.InvalidPurchaseException.Reason;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.quota.PurchaseCaps;
 import uk.gov.dwp.uc.pairtest.cinema.tickets.repository.TicketPriceRepository;
 
 public class TicketServiceImpl implements TicketService {
@@ -14,13 +18,40 @@ public class TicketServiceImpl implements TicketService {
     private final TicketPaymentService   paymentService;
     private final SeatReservationService seatReservationService;
     private final TicketPriceRepository  priceRepository;
+    private final PurchaseListener       purchaseListener;
+    private final PurchaseCaps           purchaseCaps;
 
     public TicketServiceImpl(TicketPaymentService paymentService,
                              SeatReservationService seatReservationService,
                              TicketPriceRepository priceRepository) {
+        this(paymentService, seatReservationService, priceRepository, PurchaseListener.NONE);
+    }
+
+    /**
+     * @param purchaseListener told about each purchase once it has been charged and seated, and
+     *                         about each one turned down
+     */
+    public TicketServiceImpl(TicketPaymentService paymentService,
+                             SeatReservationService seatReservationService,
+                             TicketPriceRepository priceRepository,
+                             PurchaseListener purchaseListener) {
+        this(paymentService, seatReservationService, priceRepository, purchaseListener, PurchaseCaps.none());
+    }
+
+    /**
+     * @param purchaseCaps limits on the tickets one account may buy across purchases; an order
+     *                     over them is turned down before anything is charged
+     */
+    public TicketServiceImpl(TicketPaymentService paymentService,
+                             SeatReservationService seatReservationService,
+                             TicketPriceRepository priceRepository,
+                             PurchaseListener purchaseListener,
+                             PurchaseCaps purchaseCaps) {
         this.paymentService         = paymentService;
         this.seatReservationService = seatReservationService;
         this.priceRepository        = priceRepository;
+        this.purchaseListener       = purchaseListener;
+        this.purchaseCaps           = purchaseCaps;
     }
 
     public TicketServiceImpl(TicketPaymentService paymentService,
@@ -32,75 +63,202 @@ public class TicketServiceImpl implements TicketService {
     public void purchaseTickets(Long accountId, TicketTypeRequest... ticketTypeRequests)
             throws InvalidPurchaseException {
 
+        purchaseTickets(accountId, null, ticketTypeRequests);
+    }
+
+    /**
+     * Purchases tickets for the given account at the prices scheduled for the screening.
+     *
+     * @param screeningId a screening on sale in the price repository, or {@code null} for prices in force now
+     * @throws InvalidPurchaseException if the screening is unknown or the request breaks any purchase rule
+     */
+    public void purchaseTickets(Long accountId, String screeningId, TicketTypeRequest... ticketTypeRequests)
+            throws InvalidPurchaseException {
+
         try {
-            validateAccountId(accountId);
-            validateTicketRequests(ticketTypeRequests);
+            PurchaseOrder order = priceOrder(accountId, screeningId, ticketTypeRequests);
+
+            dispatch(order);
+
+        } catch (InvalidPurchaseException e) {
+            throw rejected(e);
+        } catch (Exception e) {
+            throw rejected(new InvalidPurchaseException(Reason.UNEXPECTED_ERROR,
+                "An unexpected error occurred while processing the ticket purchase: " + e.getMessage()));
+        }
+    }
 
-            int adultCount  = countTickets(ticketTypeRequests, Type.ADULT);
-            int childCount  = countTickets(ticketTypeRequests, Type.CHILD);
-            int infantCount = countTickets(ticketTypeRequests, Type.INFANT);
+    /**
+     * Validates and prices a purchase without calling the payment gateway or the seat
+     * reservation service, so the caller can hand the order off for later dispatch. The order
+     * counts against the account's caps until it is completed or {@link #cancelPurchase cancelled}.
+     *
+     * @throws InvalidPurchaseException if the request breaks any purchase rule
+     */
+    public PurchaseOrder preparePurchase(Long accountId, TicketTypeRequest... ticketTypeRequests)
+            throws InvalidPurchaseException {
 
-            int totalTickets = adultCount + childCount + infantCount;
+        return preparePurchase(accountId, null, ticketTypeRequests);
+    }
 
-            validateBusinessRules(adultCount, childCount, infantCount, totalTickets);
+    /**
+     * As {@link #preparePurchase(Long, TicketTypeRequest...)}, at the prices scheduled for the
+     * screening with the given id; {@code null} prices it as of now.
+     */
+    public PurchaseOrder preparePurchase(Long accountId, String screeningId, TicketTypeRequest... ticketTypeRequests)
+            throws InvalidPurchaseException {
 
-            int adultPrice  = priceRepository.getPriceByType("ADULT");
-            int childPrice  = priceRepository.getPriceByType("CHILD");
-            int infantPrice = priceRepository.getPriceByType("INFANT");
+        try {
+            return priceOrder(accountId, screeningId, ticketTypeRequests);
 
-            int totalAmount = (adultCount  * adultPrice)
-                            + (childCount  * childPrice)
-                            + (infantCount * infantPrice);
+        } catch (InvalidPurchaseException e) {
+            throw rejected(e);
+        } catch (Exception e) {
+            throw rejected(new InvalidPurchaseException(Reason.UNEXPECTED_ERROR,
+                "An unexpected error occurred while processing the ticket purchase: " + e.getMessage()));
+        }
+    }
 
-            // infants sit on adult laps so no seat needed for them
-            int totalSeats = adultCount + childCount;
+    /**
+     * Charges and seats an order already returned by {@link #preparePurchase}.
+     *
+     * @throws InvalidPurchaseException if the payment or seat reservation fails
+     */
+    public void completePurchase(PurchaseOrder order) throws InvalidPurchaseException {
 
-            processPayment(accountId, totalAmount);
-            reserveSeats(accountId, totalSeats);
+        try {
+            dispatch(order);
 
         } catch (InvalidPurchaseException e) {
-            throw e;
+            throw rejected(e);
         } catch (Exception e) {
-            throw new InvalidPurchaseException(
-                "An unexpected error occurred while processing the ticket purchase: " + e.getMessage());
+            throw rejected(new InvalidPurchaseException(Reason.UNEXPECTED_ERROR,
+                "An unexpected error occurred while processing the ticket purchase: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Reports an order from {@link #preparePurchase} that was charged and seated elsewhere, such
+     * as by the outbox, to the purchase listener as completed.
+     */
+    public void confirmPurchase(PurchaseOrder order) {
+        purchaseListener.purchaseCompleted(order);
+    }
+
+    /**
+     * Gives back the caps counted for an order from {@link #preparePurchase} that will not be
+     * completed.
+     */
+    public void cancelPurchase(PurchaseOrder order) {
+        purchaseCaps.release(order);
+    }
+
+    /**
+     * For an order from {@link #preparePurchase} whose payment or seat reservation failed for good
+     * elsewhere, such as in the outbox: gives back its caps and reports it turned down.
+     */
+    public void failPurchase(PurchaseOrder order, Reason reason) {
+        purchaseCaps.release(order);
+        purchaseListener.purchaseRejected(reason);
+    }
+
+    private InvalidPurchaseException rejected(InvalidPurchaseException e) {
+        purchaseListener.purchaseRejected(e.getReason());
+        return e;
+    }
+
+    private void dispatch(PurchaseOrder order) {
+        try {
+            processPayment(order.getAccountId(), order.getTotalAmount());
+            reserveSeats(order.getAccountId(), order.getTotalSeats());
+        } catch (RuntimeException e) {
+            purchaseCaps.release(order);
+            throw e;
+        }
+        purchaseListener.purchaseCompleted(order);
+    }
+
+    private PurchaseOrder priceOrder(Long accountId, String screeningId, TicketTypeRequest[] ticketTypeRequests) {
+        validateAccountId(accountId);
+        validateTicketRequests(ticketTypeRequests);
+
+        Screening screening = resolveScreening(screeningId);
+
+        int adultCount  = countTickets(ticketTypeRequests, Type.ADULT);
+        int childCount  = countTickets(ticketTypeRequests, Type.CHILD);
+        int infantCount = countTickets(ticketTypeRequests, Type.INFANT);
+
+        int totalTickets = adultCount + childCount + infantCount;
+
+        validateBusinessRules(adultCount, childCount, infantCount, totalTickets);
+
+        // Scheduled prices follow the screening's start; without one, the time of purchase
+        String auditorium  = screening != null ? screening.getAuditorium()  : null;
+        long   pricedAt    = screening != null ? screening.getStartsAt().toEpochMilli() : System.currentTimeMillis();
+
+        int adultPrice  = priceRepository.getPrice(Type.ADULT,  screeningId, auditorium, pricedAt);
+        int childPrice  = priceRepository.getPrice(Type.CHILD,  screeningId, auditorium, pricedAt);
+        int infantPrice = priceRepository.getPrice(Type.INFANT, screeningId, auditorium, pricedAt);
+
+        // infants sit on adult laps so no seat needed for them
+        int totalSeats = adultCount + childCount;
+
+        PurchaseOrder order = new PurchaseOrder(accountId, adultCount, childCount, infantCount,
+                                                adultCount * adultPrice, childCount * childPrice,
+                                                infantCount * infantPrice, totalSeats, screening);
+
+        // Last, so an order turned down for any other reason never counts against the caps
+        purchaseCaps.reserve(order);
+        return order;
+    }
+
+    // The auditorium and start time that decide the price come from the repository, never the buyer
+    private Screening resolveScreening(String screeningId) {
+        if (screeningId == null) {
+            return null;
+        }
+        Screening screening = priceRepository.findScreening(screeningId);
+        if (screening == null) {
+            throw new InvalidPurchaseException(Reason.INVALID_SCREENING, "Unknown screening: " + screeningId);
         }
+        return screening;
     }
 
-    private void processPayment(Long accountId, int totalAmount) {
+    private void processPayment(long accountId, int totalAmount) {
         try {
             paymentService.makePayment(accountId, totalAmount);
         } catch (Exception e) {
-            throw new InvalidPurchaseException(
+            throw new InvalidPurchaseException(Reason.PAYMENT_FAILED,
                 "Payment processing failed for account " + accountId + ": " + e.getMessage());
         }
     }
 
-    private void reserveSeats(Long accountId, int totalSeats) {
+    private void reserveSeats(long accountId, int totalSeats) {
         try {
             seatReservationService.reserveSeat(accountId, totalSeats);
         } catch (Exception e) {
-            throw new InvalidPurchaseException(
+            throw new InvalidPurchaseException(Reason.SEAT_RESERVATION_FAILED,
                 "Seat reservation failed for account " + accountId + ": " + e.getMessage());
         }
     }
 
     private void validateAccountId(Long accountId) {
         if (accountId == null || accountId <= 0) {
-            throw new InvalidPurchaseException(
+            throw new InvalidPurchaseException(Reason.INVALID_ACCOUNT,
                     "Account ID must be a valid positive integer, got: " + accountId);
         }
     }
 
     private void validateTicketRequests(TicketTypeRequest[] requests) {
         if (requests == null || requests.length == 0) {
-            throw new InvalidPurchaseException("At least one ticket type request must be provided.");
+            throw new InvalidPurchaseException(Reason.NO_TICKETS, "At least one ticket type request must be provided.");
         }
         for (TicketTypeRequest request : requests) {
             if (request == null) {
-                throw new InvalidPurchaseException("Ticket request entries must not be null.");
+                throw new InvalidPurchaseException(Reason.NO_TICKETS, "Ticket request entries must not be null.");
             }
             if (request.getNoOfTickets() < 0) {
-                throw new InvalidPurchaseException(
+                throw new InvalidPurchaseException(Reason.NEGATIVE_QUANTITY,
                         "Ticket quantity must not be negative for type: " + request.getTicketType());
             }
         }
@@ -109,22 +267,22 @@ public class TicketServiceImpl implements TicketService {
     private void validateBusinessRules(int adultCount, int childCount,
                                        int infantCount, int totalTickets) {
         if (totalTickets == 0) {
-            throw new InvalidPurchaseException("At least one ticket must be purchased.");
+            throw new InvalidPurchaseException(Reason.NO_TICKETS, "At least one ticket must be purchased.");
         }
 
         if (totalTickets > MAX_TICKETS_PER_PURCHASE) {
-            throw new InvalidPurchaseException(
+            throw new InvalidPurchaseException(Reason.TOO_MANY_TICKETS,
                     "Cannot purchase more than " + MAX_TICKETS_PER_PURCHASE
                     + " tickets in a single transaction. Requested: " + totalTickets);
         }
 
         if ((childCount > 0 || infantCount > 0) && adultCount == 0) {
-            throw new InvalidPurchaseException(
+            throw new InvalidPurchaseException(Reason.ADULT_REQUIRED,
                     "Child and Infant tickets cannot be purchased without at least one Adult ticket.");
         }
 
         if (infantCount > adultCount) {
-            throw new InvalidPurchaseException(
+            throw new InvalidPurchaseException(Reason.TOO_MANY_INFANTS,
                     "Number of Infant tickets (" + infantCount
                     + ") cannot exceed the number of Adult tickets (" + adultCount
                     + "), as each infant must sit on an adult's lap.");
@@ -0,0 +1,117 @@
+package uk.gov.dwp.uc.pairtest.cinema.tickets.auth;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.Base64;
+
+/**
+ * Signed tokens that prove which account a caller has signed in as, so an account's own data is
+ * served only to its owner. Callers present one as {@code Authorization: Bearer <token>}.
+ *
+ * <p>A token is {@code <accountId>.<expires epoch second>.<signature>}, the signature being the
+ * base64url HMAC-SHA256 of the first two parts under a secret shared with whatever signs
+ * customers in. No state is kept: any instance holding the secret can check any token.</p>
+ *
+ * <p>With no secret configured, every token is refused. Signatures are compared in constant time.</p>
+ */
+public final class AccountTokens {
+
+    /** What {@link #accountOf} answers for a missing, malformed, forged or expired token. */
+    public static final long NONE = -1;
+
+    private static final String ALGORITHM = "HmacSHA256";
+
+    private static final AccountTokens DISABLED = new AccountTokens(null, Clock.systemUTC());
+
+    private final SecretKeySpec key;
+    private final Clock         clock;
+
+    private AccountTokens(SecretKeySpec key, Clock clock) {
+        this.key   = key;
+        this.clock = clock;
+    }
+
+    /**
+     * @param secret the signing secret; {@code null} or blank refuses every token
+     */
+    public static AccountTokens of(String secret) {
+        return of(secret, Clock.systemUTC());
+    }
+
+    public static AccountTokens of(String secret, Clock clock) {
+        return secret == null || secret.isBlank()
+            ? DISABLED
+            : new AccountTokens(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), ALGORITHM), clock);
+    }
+
+    public static AccountTokens disabled() {
+        return DISABLED;
+    }
+
+    public boolean isEnabled() {
+        return key != null;
+    }
+
+    /**
+     * Signs a token for the account, valid until {@code expiresAt}.
+     *
+     * @throws IllegalStateException if no secret is configured
+     */
+    public String issue(long accountId, Instant expiresAt) {
+        if (key == null) {
+            throw new IllegalStateException("No account token secret is configured");
+        }
+        String claims = accountId + "." + expiresAt.getEpochSecond();
+        return claims + "." + Base64.getUrlEncoder().withoutPadding().encodeToString(sign(claims));
+    }
+
+    /**
+     * Returns the account an {@code Authorization} header value was signed for, or {@link #NONE}
+     * unless it carries a well-formed, correctly signed token that has not expired.
+     */
+    public long accountOf(String authorization) {
+        if (key == null || authorization == null || !authorization.startsWith(AdminToken.BEARER)) {
+            return NONE;
+        }
+        String token = authorization.substring(AdminToken.BEARER.length()).trim();
+        int    dot   = token.lastIndexOf('.');
+        int    first = token.indexOf('.');
+        if (first <= 0 || dot == first) {
+            return NONE;
+        }
+
+        byte[] presented;
+        long   accountId;
+        long   expires;
+        try {
+            presented = Base64.getUrlDecoder().decode(token.substring(dot + 1));
+            accountId = Long.parseLong(token.substring(0, first));
+            expires   = Long.parseLong(token.substring(first + 1, dot));
+        } catch (IllegalArgumentException e) {
+            return NONE;
+        }
+
+        if (!MessageDigest.isEqual(sign(token.substring(0, dot)), presented)) {
+            return NONE;
+        }
+        return expires > clock.millis() / 1000 ? accountId : NONE;
+    }
+
+
+    // Helpers
+
+    private byte[] sign(String claims) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            return mac.doFinal(claims.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HMAC-SHA256 is unavailable", e);
+        }
+    }
+}
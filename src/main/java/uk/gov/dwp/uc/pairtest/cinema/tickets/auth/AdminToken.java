@@ -0,0 +1,50 @@
+package uk.gov.dwp.uc.pairtest.cinema.tickets.auth;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+/**
+ * The shared secret guarding the administration endpoints, which change what every customer
+ * pays. Callers present it as {@code Authorization: Bearer <token>}.
+ *
+ * <p>With no token configured, administration is disabled and every request is refused. Tokens
+ * are compared in constant time, so response timing reveals nothing about the secret.</p>
+ */
+public final class AdminToken {
+
+    static final String BEARER = "Bearer ";
+
+    private static final AdminToken DISABLED = new AdminToken(null);
+
+    private final byte[] token;
+
+    private AdminToken(byte[] token) {
+        this.token = token;
+    }
+
+    /**
+     * @param token the shared secret; {@code null} or blank disables administration
+     */
+    public static AdminToken of(String token) {
+        return token == null || token.isBlank() ? DISABLED : new AdminToken(token.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static AdminToken disabled() {
+        return DISABLED;
+    }
+
+    public boolean isEnabled() {
+        return token != null;
+    }
+
+    /**
+     * Whether an {@code Authorization} header value carries this token.
+     */
+    public boolean permits(String authorization) {
+        if (token == null || authorization == null || !authorization.startsWith(BEARER)) {
+            return false;
+        }
+        byte[] presented = authorization.substring(BEARER.length()).trim().getBytes(StandardCharsets.UTF_8);
+        return MessageDigest.isEqual(token, presented);
+    }
+}
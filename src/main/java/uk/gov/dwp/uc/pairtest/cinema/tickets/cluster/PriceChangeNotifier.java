@@ -0,0 +1,127 @@
+package uk.gov.dwp.uc.pairtest.cinema.tickets.cluster;
+
+import uk.gov.dwp.uc.pairtest.cinema.tickets.repository.ClusterNodeRepository;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.repository.TicketPriceRepository;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.DatagramChannel;
+import java.util.UUID;
+
+/**
+ * Keeps the in-memory prices of instances sharing one price store in step. Each instance
+ * listens on a localhost UDP port recorded in CLUSTER_NODES; after a price change it sends a
+ * datagram to every other node, which reloads its prices from the shared store on receipt.
+ *
+ * <p>The datagram carries no prices, only the fact of a change, so a lost or reordered
+ * notification can never leave a node holding the wrong price for longer than it takes the
+ * next one to arrive; the store stays the source of truth. Nothing polls.</p>
+ */
+public class PriceChangeNotifier {
+
+    static final int MAGIC       = 0x5449434B; // "TICK"
+    static final int PACKET_SIZE = 12;         // magic, sent-at millis
+
+    private final TicketPriceRepository priceRepository;
+    private final ClusterNodeRepository nodeRepository;
+    private final String                nodeId;
+    private final DatagramChannel       channel;
+    private final Thread                listener;
+
+    /**
+     * Binds the notification port on {@code host} and registers this node.
+     */
+    public PriceChangeNotifier(TicketPriceRepository priceRepository,
+                               ClusterNodeRepository nodeRepository,
+                               String host) throws IOException {
+        this.priceRepository = priceRepository;
+        this.nodeRepository  = nodeRepository;
+        this.nodeId          = UUID.randomUUID().toString();
+        this.channel         = DatagramChannel.open().bind(new InetSocketAddress(host, 0));
+        this.listener        = new Thread(this::listen, "cluster-listener");
+        this.listener.setDaemon(true);
+
+        nodeRepository.register(nodeId, getAddress());
+    }
+
+    public void start() {
+        listener.start();
+        System.out.println("[Cluster] Node " + nodeId + " listening for price changes on " + getAddress());
+    }
+
+    /**
+     * Tells every other registered node that prices have changed. Nodes that have gone away
+     * without deregistering are sent a datagram nobody reads, which costs nothing.
+     */
+    public void publish() {
+        ByteBuffer packet = ByteBuffer.allocate(PACKET_SIZE)
+                                      .putInt(MAGIC)
+                                      .putLong(System.currentTimeMillis())
+                                      .flip();
+        for (InetSocketAddress peer : nodeRepository.findPeers(nodeId)) {
+            try {
+                channel.send(packet.rewind(), peer);
+            } catch (IOException e) {
+                System.err.println("[Cluster] Failed to notify " + peer + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Deregisters this node and releases its port. If the store is already gone the stale row is
+     * left behind; peers sending to it are harmless.
+     */
+    public void stop() {
+        try {
+            nodeRepository.deregister(nodeId);
+        } catch (RuntimeException e) {
+            System.err.println("[Cluster] " + e.getMessage());
+        }
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+            // closing only to release the port
+        }
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public InetSocketAddress getAddress() {
+        try {
+            return (InetSocketAddress) channel.getLocalAddress();
+        } catch (IOException e) {
+            throw new IllegalStateException("Notification channel is closed", e);
+        }
+    }
+
+
+    // Listener
+
+    private void listen() {
+        ByteBuffer packet = ByteBuffer.allocate(PACKET_SIZE);
+        while (channel.isOpen()) {
+            try {
+                packet.clear();
+                channel.receive(packet);
+                packet.flip();
+                if (packet.remaining() != PACKET_SIZE || packet.getInt() != MAGIC) {
+                    continue;
+                }
+                long sentAt = packet.getLong();
+
+                priceRepository.refresh();
+                System.out.println("[Cluster] Prices reloaded "
+                        + (System.currentTimeMillis() - sentAt) + " ms after a change on another node");
+
+            } catch (ClosedChannelException e) {
+                return;
+            } catch (Exception e) {
+                System.err.println("[Cluster] Failed to reload prices: " + e.getMessage());
+            }
+        }
+    }
+}
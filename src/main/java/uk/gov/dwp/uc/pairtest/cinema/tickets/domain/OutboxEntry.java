@@ -0,0 +1,45 @@
+package uk.gov.dwp.uc.pairtest.cinema.tickets.domain;
+
+/**
+ * A purchase recorded in the outbox, together with how far its dispatch to the
+ * payment gateway and seat reservation service has got.
+ */
+public class OutboxEntry {
+
+    public enum Status {
+        PENDING, COMPLETED, FAILED
+    }
+
+    private final long          purchaseId;
+    private final PurchaseOrder order;
+    private final Status        status;
+    private final boolean       paymentTaken;
+    private final int           attempts;
+    private final String        lastError;
+
+    public OutboxEntry(long purchaseId, PurchaseOrder order, Status status,
+                       boolean paymentTaken, int attempts, String lastError) {
+        this.purchaseId   = purchaseId;
+        this.order        = order;
+        this.status       = status;
+        this.paymentTaken = paymentTaken;
+        this.attempts     = attempts;
+        this.lastError    = lastError;
+    }
+
+    public long          getPurchaseId() { return purchaseId;   }
+    public PurchaseOrder getOrder()      { return order;        }
+    public Status        getStatus()     { return status;       }
+    public boolean       isPaymentTaken(){ return paymentTaken; }
+    public int           getAttempts()   { return attempts;     }
+    public String        getLastError()  { return lastError;    }
+
+    @Override
+    public String toString() {
+        return "OutboxEntry{id=" + purchaseId
+                + ", status=" + status
+                + ", paymentTaken=" + paymentTaken
+                + ", attempts=" + attempts
+                + ", order=" + order + "}";
+    }
+}
@@ -0,0 +1,69 @@
+package uk.gov.dwp.uc.pairtest.cinema.tickets.domain;
+
+import uk.gov.dwp.uc.pairtest.cinema.tickets.domain.TicketTypeRequest.Type;
+
+import java.time.Instant;
+
+/**
+ * A price for one ticket type over a time window, for the whole site, one auditorium or one
+ * screening.
+ */
+public class PriceScheduleEntry {
+
+    private final long    id;
+    private final Type    ticketType;
+    private final String  screeningId;
+    private final String  auditorium;
+    private final Instant startsAt;
+    private final Instant endsAt;
+    private final int     price;
+
+    /**
+     * @param id          assigned when the entry is stored; {@code 0} before then
+     * @param screeningId the screening it applies to, or {@code null}
+     * @param auditorium  the auditorium it applies to, or {@code null}; only one of the two may be given,
+     *                    and with neither it applies site-wide
+     * @param startsAt    start of the window, inclusive
+     * @param endsAt      end of the window, exclusive
+     */
+    public PriceScheduleEntry(long id, Type ticketType, String screeningId, String auditorium,
+                              Instant startsAt, Instant endsAt, int price) {
+        if (ticketType == null || startsAt == null || endsAt == null) {
+            throw new IllegalArgumentException("A price schedule needs a ticket type, start and end");
+        }
+        if (!endsAt.isAfter(startsAt)) {
+            throw new IllegalArgumentException("A price schedule must end after it starts");
+        }
+        if (screeningId != null && auditorium != null) {
+            throw new IllegalArgumentException("A price schedule applies to a screening or an auditorium, not both");
+        }
+        if (price < 0) {
+            throw new IllegalArgumentException("A scheduled price must not be negative");
+        }
+        this.id          = id;
+        this.ticketType  = ticketType;
+        this.screeningId = screeningId;
+        this.auditorium  = auditorium;
+        this.startsAt    = startsAt;
+        this.endsAt      = endsAt;
+        this.price       = price;
+    }
+
+    public long    getId()          { return id;          }
+    public Type    getTicketType()  { return ticketType;  }
+    public String  getScreeningId() { return screeningId; }
+    public String  getAuditorium()  { return auditorium;  }
+    public Instant getStartsAt()    { return startsAt;    }
+    public Instant getEndsAt()      { return endsAt;      }
+    public int     getPrice()       { return price;       }
+
+    @Override
+    public String toString() {
+        return "PriceScheduleEntry{id=" + id
+                + ", type=" + ticketType
+                + ", screening=" + screeningId
+                + ", auditorium=" + auditorium
+                + ", window=[" + startsAt + ", " + endsAt + ")"
+                + ", price=£" + price + "}";
+    }
+}
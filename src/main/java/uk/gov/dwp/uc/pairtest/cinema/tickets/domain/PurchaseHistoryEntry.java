@@ -0,0 +1,33 @@
+package uk.gov.dwp.uc.pairtest.cinema.tickets.domain;
+
+import java.time.Instant;
+
+/**
+ * A completed purchase as kept in the purchase history.
+ */
+public class PurchaseHistoryEntry {
+
+    private final long          purchaseId;
+    private final PurchaseOrder order;
+    private final Instant       purchasedAt;
+
+    /**
+     * @param purchaseId assigned when the entry is stored; {@code 0} before then
+     */
+    public PurchaseHistoryEntry(long purchaseId, PurchaseOrder order, Instant purchasedAt) {
+        this.purchaseId  = purchaseId;
+        this.order       = order;
+        this.purchasedAt = purchasedAt;
+    }
+
+    public long          getPurchaseId()  { return purchaseId;  }
+    public PurchaseOrder getOrder()       { return order;       }
+    public Instant       getPurchasedAt() { return purchasedAt; }
+
+    @Override
+    public String toString() {
+        return "PurchaseHistoryEntry{id=" + purchaseId
+                + ", purchasedAt=" + purchasedAt
+                + ", order=" + order + "}";
+    }
+}
@@ -0,0 +1,105 @@
+package uk.gov.dwp.uc.pairtest.cinema.tickets.domain;
+
+import uk.gov.dwp.uc.pairtest.cinema.tickets.domain.TicketTypeRequest.Type;
+
+/**
+ * A validated and priced purchase, ready to be charged and seated.
+ */
+public class PurchaseOrder {
+
+    private final long accountId;
+    private final int  adultCount;
+    private final int  childCount;
+    private final int  infantCount;
+    private final int  adultAmount;
+    private final int  childAmount;
+    private final int  infantAmount;
+    private final int  totalAmount;
+    private final int  totalSeats;
+
+    private final Screening screening;
+
+    /**
+     * An order whose split of the total by ticket type is not known, such as one read back
+     * from storage; {@link #getAmount(Type)} answers 0 for it.
+     */
+    public PurchaseOrder(long accountId, int adultCount, int childCount, int infantCount,
+                         int totalAmount, int totalSeats) {
+        this(accountId, adultCount, childCount, infantCount, 0, 0, 0, totalAmount, totalSeats, null);
+    }
+
+    /**
+     * An order priced by ticket type; the total is the sum of the three amounts.
+     */
+    public PurchaseOrder(long accountId, int adultCount, int childCount, int infantCount,
+                         int adultAmount, int childAmount, int infantAmount, int totalSeats) {
+        this(accountId, adultCount, childCount, infantCount, adultAmount, childAmount, infantAmount, totalSeats, null);
+    }
+
+    /**
+     * As the order priced by ticket type, for the given screening, or none if {@code null}.
+     */
+    public PurchaseOrder(long accountId, int adultCount, int childCount, int infantCount,
+                         int adultAmount, int childAmount, int infantAmount, int totalSeats, Screening screening) {
+        this(accountId, adultCount, childCount, infantCount, adultAmount, childAmount, infantAmount,
+             adultAmount + childAmount + infantAmount, totalSeats, screening);
+    }
+
+    private PurchaseOrder(long accountId, int adultCount, int childCount, int infantCount,
+                          int adultAmount, int childAmount, int infantAmount, int totalAmount, int totalSeats,
+                          Screening screening) {
+        this.accountId    = accountId;
+        this.adultCount   = adultCount;
+        this.childCount   = childCount;
+        this.infantCount  = infantCount;
+        this.adultAmount  = adultAmount;
+        this.childAmount  = childAmount;
+        this.infantAmount = infantAmount;
+        this.totalAmount  = totalAmount;
+        this.totalSeats   = totalSeats;
+        this.screening    = screening;
+    }
+
+    public long getAccountId()   { return accountId;   }
+    public int  getAdultCount()  { return adultCount;  }
+    public int  getChildCount()  { return childCount;  }
+    public int  getInfantCount() { return infantCount; }
+    public int  getTotalAmount() { return totalAmount; }
+    public int  getTotalSeats()  { return totalSeats;  }
+
+    /** The screening the order is for, or {@code null}. */
+    public Screening getScreening() {
+        return screening;
+    }
+
+    public int getTotalTickets() {
+        return adultCount + childCount + infantCount;
+    }
+
+    public int getCount(Type type) {
+        switch (type) {
+            case ADULT:  return adultCount;
+            case CHILD:  return childCount;
+            default:     return infantCount;
+        }
+    }
+
+    /** The part of the total charged for tickets of this type. */
+    public int getAmount(Type type) {
+        switch (type) {
+            case ADULT:  return adultAmount;
+            case CHILD:  return childAmount;
+            default:     return infantAmount;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "PurchaseOrder{account=" + accountId
+                + ", adults=" + adultCount
+                + ", children=" + childCount
+                + ", infants=" + infantCount
+                + ", amount=£" + totalAmount
+                + ", seats=" + totalSeats + "}";
+    }
+}
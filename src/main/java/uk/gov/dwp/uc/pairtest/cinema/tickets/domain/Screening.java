@@ -0,0 +1,38 @@
+package uk.gov.dwp.uc.pairtest.cinema.tickets.domain;
+
+import java.time.Instant;
+
+/**
+ * The showing a purchase is for, which decides the scheduled prices that apply to it.
+ */
+public class Screening {
+
+    private final String  screeningId;
+    private final String  auditorium;
+    private final Instant startsAt;
+
+    /**
+     * @param screeningId the showing, or {@code null} if it has no schedule of its own
+     * @param auditorium  where it is shown, or {@code null} if not known
+     * @param startsAt    when it starts; prices are those scheduled for this moment
+     */
+    public Screening(String screeningId, String auditorium, Instant startsAt) {
+        if (startsAt == null) {
+            throw new IllegalArgumentException("A screening must have a start time");
+        }
+        this.screeningId = screeningId;
+        this.auditorium  = auditorium;
+        this.startsAt    = startsAt;
+    }
+
+    public String  getScreeningId() { return screeningId; }
+    public String  getAuditorium()  { return auditorium;  }
+    public Instant getStartsAt()    { return startsAt;    }
+
+    @Override
+    public String toString() {
+        return "Screening{id=" + screeningId
+                + ", auditorium=" + auditorium
+                + ", startsAt=" + startsAt + "}";
+    }
+}
@@ -3,7 +3,33 @@ package uk.gov.dwp.uc.pairtest.cinema.tickets.exception;
 
 public class InvalidPurchaseException extends RuntimeException {
 
+    /** Why a purchase was turned down, for counting rejections without parsing messages. */
+    public enum Reason {
+        INVALID_ACCOUNT,
+        NO_TICKETS,
+        NEGATIVE_QUANTITY,
+        TOO_MANY_TICKETS,
+        ADULT_REQUIRED,
+        TOO_MANY_INFANTS,
+        INVALID_SCREENING,
+        ACCOUNT_LIMIT_REACHED,
+        PAYMENT_FAILED,
+        SEAT_RESERVATION_FAILED,
+        UNEXPECTED_ERROR
+    }
+
+    private final Reason reason;
+
     public InvalidPurchaseException(String message) {
+        this(Reason.UNEXPECTED_ERROR, message);
+    }
+
+    public InvalidPurchaseException(Reason reason, String message) {
         super(message);
+        this.reason = reason;
+    }
+
+    public Reason getReason() {
+        return reason;
     }
 }
@@ -0,0 +1,13 @@
+package uk.gov.dwp.uc.pairtest.cinema.tickets.exception;
+
+
+/**
+ * Thrown when a request is shed because the service is at its concurrency limit.
+ * The request was not attempted and can be retried.
+ */
+public class ServiceOverloadedException extends RuntimeException {
+
+    public ServiceOverloadedException(String message) {
+        super(message);
+    }
+}
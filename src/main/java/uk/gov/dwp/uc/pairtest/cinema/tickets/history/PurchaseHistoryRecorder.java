@@ -0,0 +1,243 @@
+package uk.gov.dwp.uc.pairtest.cinema.tickets.history;
+
+import uk.gov.dwp.uc.pairtest.cinema.tickets.PurchaseListener;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.domain.PurchaseHistoryEntry;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.domain.PurchaseOrder;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.repository.PurchaseHistoryRepository;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Records completed purchases in the purchase history without putting a database write on
+ * the purchase path.
+ *
+ * <p>Purchases are queued and a single writer thread stores whatever has built up since its
+ * last write as one batch, so under load many purchases share one round trip and one commit,
+ * and when idle each one is written as soon as it arrives. If the queue fills, the purchasing
+ * thread writes a batch itself rather than dropping history.</p>
+ *
+ * <p>A batch the database turns down is kept and retried, oldest first, with the wait between
+ * attempts doubling from 100 ms to 5 s. Until the retries get through, the writer leaves new
+ * purchases in the queue. Once the queue is full, a purchasing thread waits briefly for room
+ * rather than write a batch that would fail too, then drops its entry and counts it: the purchase
+ * has already been charged and seated, so a history outage must not hold up ticket sales.
+ * {@link #shutdown()} makes a few last attempts and reports anything it could not store.</p>
+ */
+public class PurchaseHistoryRecorder implements PurchaseListener {
+
+    private static final int  DEFAULT_QUEUE_CAPACITY = 10_000;
+    private static final int  DEFAULT_MAX_BATCH_SIZE = 500;
+    private static final long POLL_INTERVAL_MS       = 100;
+    private static final long FULL_QUEUE_WAIT_MS     = 100;
+    private static final long MIN_RETRY_DELAY_MS     = 100;
+    private static final long MAX_RETRY_DELAY_MS     = 5_000;
+    private static final int  SHUTDOWN_ATTEMPTS      = 3;
+
+    private final PurchaseHistoryRepository           repository;
+    private final BlockingQueue<PurchaseHistoryEntry> queue;
+    private final int                                 maxBatchSize;
+    private final Thread                              writer;
+
+    // Batches the database turned down, oldest first, awaiting another attempt
+    private final Queue<List<PurchaseHistoryEntry>> failed = new ConcurrentLinkedQueue<>();
+
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    private volatile boolean running = true;
+
+    public PurchaseHistoryRecorder(PurchaseHistoryRepository repository) {
+        this(repository, DEFAULT_QUEUE_CAPACITY, DEFAULT_MAX_BATCH_SIZE);
+    }
+
+    public PurchaseHistoryRecorder(PurchaseHistoryRepository repository, int queueCapacity, int maxBatchSize) {
+        this.repository   = repository;
+        this.queue        = new ArrayBlockingQueue<>(queueCapacity);
+        this.maxBatchSize = maxBatchSize;
+        this.writer       = new Thread(this::writeLoop, "history-writer");
+        this.writer.setDaemon(true);
+    }
+
+    public void start() {
+        writer.start();
+    }
+
+    /**
+     * Queues the purchase, stamped with the current time, for the next batch. Never waits more
+     * than {@value #FULL_QUEUE_WAIT_MS} ms: while the database is failing and the queue is full,
+     * the purchase is left out of the history.
+     */
+    @Override
+    public void purchaseCompleted(PurchaseOrder order) {
+        PurchaseHistoryEntry entry = new PurchaseHistoryEntry(0, order, Instant.now().truncatedTo(ChronoUnit.MILLIS));
+        try {
+            while (!queue.offer(entry)) {
+                if (failed.isEmpty()) {
+                    writeBatch(); // writer is behind; help it rather than lose the entry
+                    continue;
+                }
+                // The database is failing; give the writer's retries a moment to make room
+                if (!queue.offer(entry, FULL_QUEUE_WAIT_MS, TimeUnit.MILLISECONDS)) {
+                    drop(order);
+                }
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            drop(order);
+        }
+    }
+
+    /**
+     * Stops the writer and stores everything still queued, retrying batches the database turns
+     * down a few times before giving up on them.
+     */
+    public void shutdown() {
+        running = false; // not interrupted, which would abort a batch mid-write
+        try {
+            writer.join(MAX_RETRY_DELAY_MS + 5_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        while (!queue.isEmpty()) {
+            writeBatch();
+        }
+
+        long delay = MIN_RETRY_DELAY_MS;
+        for (int attempt = 1; retryFailed() && attempt < SHUTDOWN_ATTEMPTS && pause(delay); attempt++) {
+            delay *= 2;
+        }
+
+        int lost = failed.stream().mapToInt(List::size).sum();
+        if (lost > 0) {
+            System.err.println("[History] Gave up on " + lost + " purchases the database would not store");
+        }
+    }
+
+    /** The account's newest purchases, up to {@code limit}. */
+    public List<PurchaseHistoryEntry> findPurchases(long accountId, int limit) {
+        return repository.findByAccount(accountId, limit);
+    }
+
+    /** The account's purchases following the given one in newest-first order, up to {@code limit}. */
+    public List<PurchaseHistoryEntry> findPurchasesBefore(long accountId, Instant purchasedAt, long purchaseId, int limit) {
+        return repository.findByAccountBefore(accountId, purchasedAt, purchaseId, limit);
+    }
+
+    long getBatchCount() {
+        return batches.get();
+    }
+
+    long getWrittenCount() {
+        return written.get();
+    }
+
+    long getRetryCount() {
+        return retries.get();
+    }
+
+    /** Purchases left out of the history because the queue stayed full while the database was failing. */
+    long getDroppedCount() {
+        return dropped.get();
+    }
+
+
+    // Writer
+
+    private void writeLoop() {
+        long retryDelay = MIN_RETRY_DELAY_MS;
+        while (running) {
+            try {
+                if (!failed.isEmpty()) {
+                    // New purchases wait in the queue until the earlier ones are stored
+                    if (retryFailed()) {
+                        Thread.sleep(retryDelay);
+                        retryDelay = Math.min(retryDelay * 2, MAX_RETRY_DELAY_MS);
+                    } else {
+                        retryDelay = MIN_RETRY_DELAY_MS;
+                    }
+                    continue;
+                }
+
+                PurchaseHistoryEntry first = queue.poll(POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    List<PurchaseHistoryEntry> batch = new ArrayList<>();
+                    batch.add(first);
+                    queue.drainTo(batch, maxBatchSize - 1);
+                    writeOrKeep(batch);
+                }
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    private void writeBatch() {
+        List<PurchaseHistoryEntry> batch = new ArrayList<>();
+        queue.drainTo(batch, maxBatchSize);
+        if (!batch.isEmpty()) {
+            writeOrKeep(batch);
+        }
+    }
+
+    private void writeOrKeep(List<PurchaseHistoryEntry> batch) {
+        if (!write(batch)) {
+            failed.add(batch);
+        }
+    }
+
+    // Retries the kept batches oldest first; true if some are still failing
+    private boolean retryFailed() {
+        List<PurchaseHistoryEntry> batch;
+        while ((batch = failed.peek()) != null) {
+            retries.incrementAndGet();
+            if (!write(batch)) {
+                return true;
+            }
+            failed.poll(); // only this thread takes from the head
+        }
+        return false;
+    }
+
+    // Logs the first drop of an outage and every thousandth after, not one line per purchase
+    private void drop(PurchaseOrder order) {
+        long count = dropped.incrementAndGet();
+        if (count == 1 || count % 1_000 == 0) {
+            System.err.println("[History] Queue full while the database is failing; dropped the purchase for account "
+                               + order.getAccountId() + " (" + count + " dropped so far)");
+        }
+    }
+
+    private boolean write(List<PurchaseHistoryEntry> batch) {
+        try {
+            repository.insertAll(batch);
+            batches.incrementAndGet();
+            written.addAndGet(batch.size());
+            return true;
+        } catch (Exception e) {
+            System.err.println("[History] Failed to record " + batch.size() + " purchases, will retry: " + e.getMessage());
+            return false;
+        }
+    }
+
+    private static boolean pause(long millis) {
+        try {
+            Thread.sleep(millis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
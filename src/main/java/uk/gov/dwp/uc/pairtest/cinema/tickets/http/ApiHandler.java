@@ -0,0 +1,11 @@
+package uk.gov.dwp.uc.pairtest.cinema.tickets.http;
+
+/**
+ * Handles requests for one endpoint. Implementations must be thread-safe; they run on the
+ * endpoint's {@link Bulkhead} threads whichever transport received the request.
+ */
+@FunctionalInterface
+public interface ApiHandler {
+
+    ApiResponse handle(ApiRequest request) throws Exception;
+}
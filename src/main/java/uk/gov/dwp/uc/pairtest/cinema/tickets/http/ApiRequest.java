@@ -0,0 +1,67 @@
+package uk.gov.dwp.uc.pairtest.cinema.tickets.http;
+
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * An HTTP request as seen by the endpoint handlers, independent of the transport that received it.
+ */
+public final class ApiRequest {
+
+    private static final byte[] NO_BODY = new byte[0];
+
+    private final String              method;
+    private final String              path;
+    private final String              query;
+    private final Map<String, String> headers; // names in lower case
+    private final byte[]              body;
+
+    public ApiRequest(String method, String path, String query, Map<String, String> headers, byte[] body) {
+        this.method  = method;
+        this.path    = path;
+        this.query   = query;
+        this.headers = headers == null ? Collections.emptyMap() : headers;
+        this.body    = body == null ? NO_BODY : body;
+    }
+
+    public String getMethod() { return method; }
+    public String getPath()   { return path;   }
+    public byte[] getBody()   { return body;   }
+
+    /** The raw query string without the leading '?', or {@code null} if there is none. */
+    public String getQuery()  { return query;  }
+
+    /**
+     * The first value of the named query parameter, URL-decoded, or {@code null} if it is absent.
+     */
+    public String getQueryParameter(String name) {
+        if (query == null) {
+            return null;
+        }
+        for (String pair : query.split("&")) {
+            int eq = pair.indexOf('=');
+            String key = eq < 0 ? pair : pair.substring(0, eq);
+            if (name.equals(URLDecoder.decode(key, StandardCharsets.UTF_8))) {
+                return eq < 0 ? "" : URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8);
+            }
+        }
+        return null;
+    }
+
+    public String getHeader(String name) {
+        return headers.get(name.toLowerCase(Locale.ROOT));
+    }
+
+    public String getBodyAsString() {
+        return new String(body, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public String toString() {
+        return "ApiRequest{" + method + " " + path + (query == null ? "" : "?" + query)
+                + ", body=" + body.length + " bytes}";
+    }
+}
@@ -0,0 +1,51 @@
+package uk.gov.dwp.uc.pairtest.cinema.tickets.http;
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * An HTTP response produced by an endpoint handler, independent of the transport that sends it.
+ */
+public final class ApiResponse {
+
+    public static final String JSON_CONTENT_TYPE = "application/json; charset=UTF-8";
+
+    private static final byte[] NO_BODY = new byte[0];
+
+    private final int                 status;
+    private final byte[]              body;
+    private final Map<String, String> headers = new LinkedHashMap<>();
+
+    public ApiResponse(int status, String contentType, byte[] body) {
+        this.status = status;
+        this.body   = body == null ? NO_BODY : body;
+        if (contentType != null) {
+            headers.put("Content-Type", contentType);
+        }
+    }
+
+    public static ApiResponse json(int status, String json) {
+        return new ApiResponse(status, JSON_CONTENT_TYPE, json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /** A response with no body, such as 204 for a CORS preflight. */
+    public static ApiResponse empty(int status) {
+        return new ApiResponse(status, null, null);
+    }
+
+    /** Sets a response header, replacing any earlier value, and returns this response. */
+    public ApiResponse header(String name, String value) {
+        headers.put(name, value);
+        return this;
+    }
+
+    public int                 getStatus()  { return status;  }
+    public byte[]              getBody()    { return body;    }
+    public Map<String, String> getHeaders() { return headers; }
+
+    @Override
+    public String toString() {
+        return "ApiResponse{status=" + status + ", body=" + body.length + " bytes}";
+    }
+}
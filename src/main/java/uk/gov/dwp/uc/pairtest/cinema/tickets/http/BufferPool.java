@@ -0,0 +1,66 @@
+package uk.gov.dwp.uc.pairtest.cinema.tickets.http;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fixed-size direct buffers reused across connections and responses.
+ *
+ * <p>Direct buffers let the socket read and write without an extra copy through the heap, but
+ * they are slow to allocate and only freed by GC, so {@link NioHttpServer} borrows them from here
+ * rather than allocating per request. At most {@code maxRetained} idle buffers are kept; beyond
+ * that a released buffer is simply dropped.</p>
+ */
+public class BufferPool {
+
+    private final int                               bufferSize;
+    private final int                               maxRetained;
+    private final ConcurrentLinkedDeque<ByteBuffer> free      = new ConcurrentLinkedDeque<>();
+    private final AtomicInteger                     retained  = new AtomicInteger();
+    private final LongAdder                         allocated = new LongAdder();
+
+    public BufferPool(int bufferSize, int maxRetained) {
+        this.bufferSize  = bufferSize;
+        this.maxRetained = maxRetained;
+    }
+
+    /** Returns a cleared buffer of {@link #getBufferSize()} bytes. */
+    public ByteBuffer acquire() {
+        ByteBuffer buffer = free.pollFirst();
+        if (buffer == null) {
+            allocated.increment();
+            return ByteBuffer.allocateDirect(bufferSize);
+        }
+        retained.decrementAndGet();
+        buffer.clear();
+        return buffer;
+    }
+
+    /** Hands a buffer back; buffers that did not come from this pool are ignored. */
+    public void release(ByteBuffer buffer) {
+        if (buffer == null || !buffer.isDirect() || buffer.capacity() != bufferSize) {
+            return;
+        }
+        if (retained.incrementAndGet() > maxRetained) {
+            retained.decrementAndGet();
+            return;
+        }
+        free.offerFirst(buffer); // most recently used first, while it is still warm in cache
+    }
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    /** Number of idle buffers currently held. */
+    public int getRetainedCount() {
+        return retained.get();
+    }
+
+    /** Number of buffers allocated since the pool was created; flat under steady load. */
+    public long getAllocatedCount() {
+        return allocated.sum();
+    }
+}
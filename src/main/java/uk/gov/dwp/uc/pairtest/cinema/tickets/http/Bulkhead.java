@@ -0,0 +1,122 @@
+package uk.gov.dwp.uc.pairtest.cinema.tickets.http;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded thread pool and queue dedicated to one endpoint, so a backlog on one
+ * endpoint cannot hold up requests for another.
+ *
+ * <p>Work beyond {@code threads} running plus {@code queueCapacity} waiting is refused
+ * immediately rather than queued, leaving the caller to answer with a fast 503. The
+ * queue wait of every accepted task is recorded so backlogs are visible per endpoint.</p>
+ */
+public class Bulkhead {
+
+    private static final long IDLE_THREAD_TIMEOUT_SECONDS = 30;
+
+    private final String             name;
+    private final int                threads;
+    private final int                queueCapacity;
+    private final ThreadPoolExecutor executor;
+
+    private final LongAdder       accepted       = new LongAdder();
+    private final LongAdder       rejected       = new LongAdder();
+    private final LongAdder       started        = new LongAdder();
+    private final LongAdder       totalWaitNanos = new LongAdder();
+    private final LongAccumulator maxWaitNanos   = new LongAccumulator(Long::max, 0);
+
+    public Bulkhead(String name, int threads, int queueCapacity) {
+        this.name          = name;
+        this.threads       = threads;
+        this.queueCapacity = queueCapacity;
+
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads,
+                IDLE_THREAD_TIMEOUT_SECONDS, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "bulkhead-" + name + "-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Runs the task on this bulkhead's threads if there is room.
+     *
+     * @return {@code false} if the bulkhead is saturated and the task was not accepted
+     */
+    public boolean tryExecute(Runnable task) {
+        long enqueuedAt = System.nanoTime();
+        try {
+            executor.execute(() -> {
+                long waited = System.nanoTime() - enqueuedAt;
+                started.increment();
+                totalWaitNanos.add(waited);
+                maxWaitNanos.accumulate(waited);
+                task.run();
+            });
+            accepted.increment();
+            return true;
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            return false;
+        }
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+
+    // Metrics
+
+    public String getName()          { return name;          }
+    public int    getThreads()       { return threads;       }
+    public int    getQueueCapacity() { return queueCapacity; }
+
+    public int getActiveCount() {
+        return executor.getActiveCount();
+    }
+
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    public long getAcceptedCount() {
+        return accepted.sum();
+    }
+
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    /** Mean time accepted tasks spent queued before starting, in milliseconds. */
+    public double getAverageWaitMillis() {
+        long count = started.sum();
+        return count == 0 ? 0.0 : totalWaitNanos.sum() / (double) count / 1_000_000.0;
+    }
+
+    /** Longest time any accepted task spent queued before starting, in milliseconds. */
+    public double getMaxWaitMillis() {
+        return maxWaitNanos.get() / 1_000_000.0;
+    }
+
+    @Override
+    public String toString() {
+        return "Bulkhead{name=" + name
+                + ", threads=" + threads
+                + ", queueCapacity=" + queueCapacity
+                + ", active=" + getActiveCount()
+                + ", queued=" + getQueueDepth()
+                + ", rejected=" + getRejectedCount() + "}";
+    }
+}
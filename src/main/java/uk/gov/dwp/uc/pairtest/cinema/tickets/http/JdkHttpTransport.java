@@ -0,0 +1,80 @@
+package uk.gov.dwp.uc.pairtest.cinema.tickets.http;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Serves a {@link Router} with the JDK's built-in {@code com.sun.net.httpserver.HttpServer}.
+ *
+ * <p>Each route becomes an HttpServer context. The server's dispatcher thread only hands the
+ * exchange to the route's {@link Bulkhead}, or answers 503 itself when the bulkhead is full.</p>
+ */
+public final class JdkHttpTransport {
+
+    private JdkHttpTransport() {
+    }
+
+    /** Creates the server with every route registered, but does not start it. */
+    public static HttpServer create(InetSocketAddress address, Router router) throws IOException {
+        HttpServer server = HttpServer.create(address, 0);
+        for (Router.Route route : router.getRoutes()) {
+            server.createContext(route.getPrefix(), exchange -> {
+                boolean accepted = route.getBulkhead().tryExecute(() ->
+                    send(exchange, router.handle(route, toRequest(exchange))));
+                if (!accepted) {
+                    send(exchange, router.overloaded(route));
+                }
+            });
+        }
+        return server;
+    }
+
+    private static ApiRequest toRequest(HttpExchange exchange) {
+        Map<String, String> headers = new HashMap<>();
+        for (Map.Entry<String, List<String>> header : exchange.getRequestHeaders().entrySet()) {
+            if (!header.getValue().isEmpty()) {
+                headers.put(header.getKey().toLowerCase(Locale.ROOT), header.getValue().get(0));
+            }
+        }
+
+        byte[] body;
+        try {
+            body = exchange.getRequestBody().readAllBytes();
+        } catch (IOException e) {
+            body = null;
+        }
+
+        return new ApiRequest(exchange.getRequestMethod(),
+                              exchange.getRequestURI().getPath(),
+                              exchange.getRequestURI().getRawQuery(),
+                              headers,
+                              body);
+    }
+
+    private static void send(HttpExchange exchange, ApiResponse response) {
+        try {
+            for (Map.Entry<String, String> header : response.getHeaders().entrySet()) {
+                exchange.getResponseHeaders().set(header.getKey(), header.getValue());
+            }
+            byte[] body = response.getBody();
+            exchange.sendResponseHeaders(response.getStatus(), body.length == 0 ? -1 : body.length);
+            if (body.length > 0) {
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("[ERROR] Failed to send response for " + exchange.getRequestURI() + ": " + e.getMessage());
+        } finally {
+            exchange.close();
+        }
+    }
+}
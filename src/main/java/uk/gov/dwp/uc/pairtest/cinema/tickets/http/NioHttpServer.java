@@ -0,0 +1,553 @@
+package uk.gov.dwp.uc.pairtest.cinema.tickets.http;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HTTP/1.1 front end on a single NIO selector thread, serving the same {@link Router} as
+ * {@link JdkHttpTransport}.
+ *
+ * <ul>
+ *   <li><b>Keep-alive</b> — connections stay open between requests unless the client sends
+ *       {@code Connection: close} or speaks HTTP/1.0 without asking for keep-alive; idle
+ *       connections are closed after {@code idleTimeoutMillis}.</li>
+ *   <li><b>Pipelining</b> — several requests may arrive before the first is answered. They are
+ *       parsed into a per-connection queue and run one at a time, so responses always go back in
+ *       request order. Reading pauses while {@link #MAX_PIPELINED} requests are waiting.</li>
+ *   <li><b>Pooled direct buffers</b> — reads and encoded responses use {@link BufferPool} buffers;
+ *       an idle connection holds none.</li>
+ * </ul>
+ *
+ * <p>The selector thread only does socket I/O and parsing. Handlers run on their route's
+ * {@link Bulkhead}; the worker encodes the response and hands it back to the selector thread,
+ * which writes it and moves on to the connection's next request.</p>
+ *
+ * <p>A request's head and body must fit in one buffer ({@value #BUFFER_SIZE} bytes); larger ones
+ * are refused with 431 or 413. Chunked request bodies are not supported (501).</p>
+ */
+public class NioHttpServer {
+
+    static final int BUFFER_SIZE   = 16 * 1024;
+    static final int MAX_PIPELINED = 16;
+
+    private static final int    MAX_RETAINED_BUFFERS  = 256;
+    private static final long   DEFAULT_IDLE_TIMEOUT  = TimeUnit.SECONDS.toMillis(60);
+    private static final long   SELECT_TIMEOUT_MILLIS = 1_000;
+    private static final byte[] HEAD_TERMINATOR       = {'\r', '\n', '\r', '\n'};
+
+    private final Router              router;
+    private final long                idleTimeoutMillis;
+    private final BufferPool          buffers = new BufferPool(BUFFER_SIZE, MAX_RETAINED_BUFFERS);
+    private final Selector            selector;
+    private final ServerSocketChannel serverChannel;
+
+    // Finished responses posted by bulkhead threads, written by the selector thread
+    private final ConcurrentLinkedQueue<Runnable> completions = new ConcurrentLinkedQueue<>();
+
+    // Selector thread only
+    private final Set<Connection> connections = new HashSet<>();
+
+    private volatile boolean running;
+    private Thread           selectorThread;
+
+    public NioHttpServer(InetSocketAddress address, Router router) throws IOException {
+        this(address, router, DEFAULT_IDLE_TIMEOUT);
+    }
+
+    /** Binds the listening socket straight away, as {@code HttpServer.create} does; {@link #start()} begins serving. */
+    public NioHttpServer(InetSocketAddress address, Router router, long idleTimeoutMillis) throws IOException {
+        this.router            = router;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.selector          = Selector.open();
+        this.serverChannel     = ServerSocketChannel.open();
+        serverChannel.bind(address, 1024);
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+    }
+
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        selectorThread = new Thread(this::run, "nio-http-selector");
+        selectorThread.start();
+    }
+
+    /** Stops accepting, closes every connection and waits up to {@code timeoutMillis} for the selector thread. */
+    public synchronized void stop(long timeoutMillis) {
+        running = false;
+        selector.wakeup();
+        if (selectorThread != null) {
+            try {
+                selectorThread.join(timeoutMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    public InetSocketAddress getAddress() {
+        try {
+            return (InetSocketAddress) serverChannel.getLocalAddress();
+        } catch (IOException e) {
+            throw new IllegalStateException("Server socket is closed", e);
+        }
+    }
+
+    BufferPool getBufferPool() {
+        return buffers;
+    }
+
+
+    // Selector loop
+
+    private void run() {
+        long nextIdleSweep = System.currentTimeMillis() + SELECT_TIMEOUT_MILLIS;
+        try {
+            while (running) {
+                selector.select(SELECT_TIMEOUT_MILLIS);
+
+                Runnable completion;
+                while ((completion = completions.poll()) != null) {
+                    completion.run();
+                }
+
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                        continue;
+                    }
+                    Connection connection = (Connection) key.attachment();
+                    if (key.isWritable()) {
+                        flush(connection);
+                    }
+                    if (key.isValid() && key.isReadable()) {
+                        read(connection);
+                    }
+                }
+
+                long now = System.currentTimeMillis();
+                if (now >= nextIdleSweep) {
+                    closeIdleConnections(now);
+                    nextIdleSweep = now + SELECT_TIMEOUT_MILLIS;
+                }
+            }
+        } catch (IOException | ClosedSelectorException e) {
+            System.err.println("[ERROR] NIO selector loop failed: " + e.getMessage());
+        } finally {
+            for (Connection connection : new HashSet<>(connections)) {
+                close(connection);
+            }
+            closeQuietly(serverChannel);
+            closeQuietly(selector);
+        }
+    }
+
+    private void accept() {
+        SocketChannel channel = null;
+        try {
+            while ((channel = serverChannel.accept()) != null) {
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                Connection connection = new Connection(channel);
+                connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+                connections.add(connection);
+            }
+        } catch (IOException e) {
+            System.err.println("[ERROR] Failed to accept connection: " + e.getMessage());
+            if (channel != null) {
+                closeQuietly(channel);
+            }
+        }
+    }
+
+    private void read(Connection connection) {
+        if (connection.readBuffer == null) {
+            connection.readBuffer = buffers.acquire();
+        }
+        int read;
+        try {
+            read = connection.channel.read(connection.readBuffer);
+        } catch (IOException e) {
+            close(connection); // reset by peer
+            return;
+        }
+        connection.lastActivity = System.currentTimeMillis();
+        if (read < 0) {
+            connection.inputClosed = true;
+        }
+
+        parseBuffered(connection);
+        processNext(connection);
+        afterProgress(connection);
+    }
+
+    private void closeIdleConnections(long now) {
+        for (Connection connection : new HashSet<>(connections)) {
+            if (!connection.inProgress && connection.outbound.isEmpty()
+                    && now - connection.lastActivity >= idleTimeoutMillis) {
+                close(connection);
+            }
+        }
+    }
+
+
+    // Parsing
+
+    /** Parses as many complete requests as the read buffer holds, up to the pipeline depth. */
+    private void parseBuffered(Connection connection) {
+        ByteBuffer buffer = connection.readBuffer;
+        if (buffer == null) {
+            return;
+        }
+        buffer.flip();
+        while (!connection.closeAfterWrite
+                && connection.pipeline.size() < MAX_PIPELINED
+                && buffer.hasRemaining()) {
+            if (!parseOne(connection, buffer)) {
+                break;
+            }
+        }
+        buffer.compact();
+
+        if (buffer.position() == 0) {
+            buffers.release(buffer);
+            connection.readBuffer = null;
+        } else if (!buffer.hasRemaining() && connection.pipeline.size() < MAX_PIPELINED && !connection.closeAfterWrite) {
+            // A full buffer that still does not hold one whole request never will
+            connection.pipeline.add(Pending.error(431, "Request too large"));
+            connection.closeAfterWrite = true;
+        }
+    }
+
+    /**
+     * Parses one request from the buffer's position, queueing it (or an error response for it).
+     *
+     * @return {@code false} if the buffer does not yet hold a whole request; the position is left unchanged
+     */
+    private boolean parseOne(Connection connection, ByteBuffer buffer) {
+        int start   = buffer.position();
+        int headEnd = indexOf(buffer, start, HEAD_TERMINATOR);
+        if (headEnd < 0) {
+            return false;
+        }
+
+        byte[] head = new byte[headEnd - start];
+        buffer.get(head);
+        String[] lines = new String(head, StandardCharsets.ISO_8859_1).split("\r\n");
+
+        String[] requestLine = lines[0].split(" ");
+        if (requestLine.length != 3 || !requestLine[2].startsWith("HTTP/1.")) {
+            return reject(connection, 400, "Malformed request line");
+        }
+        String method  = requestLine[0];
+        String target  = requestLine[1];
+        boolean http10 = "HTTP/1.0".equals(requestLine[2]);
+
+        Map<String, String> headers = new HashMap<>();
+        for (int i = 1; i < lines.length; i++) {
+            int colon = lines[i].indexOf(':');
+            if (colon <= 0) {
+                return reject(connection, 400, "Malformed header");
+            }
+            headers.put(lines[i].substring(0, colon).trim().toLowerCase(Locale.ROOT),
+                        lines[i].substring(colon + 1).trim());
+        }
+
+        if (headers.containsKey("transfer-encoding")) {
+            return reject(connection, 501, "Chunked request bodies are not supported");
+        }
+
+        int contentLength = 0;
+        String rawLength = headers.get("content-length");
+        if (rawLength != null) {
+            try {
+                contentLength = Integer.parseInt(rawLength);
+            } catch (NumberFormatException e) {
+                return reject(connection, 400, "Invalid Content-Length");
+            }
+            if (contentLength < 0) {
+                return reject(connection, 400, "Invalid Content-Length");
+            }
+        }
+
+        int headLength = headEnd + HEAD_TERMINATOR.length - start;
+        if (headLength + contentLength > buffer.capacity()) {
+            return reject(connection, 413, "Request body too large");
+        }
+        buffer.position(buffer.position() + HEAD_TERMINATOR.length);
+        if (buffer.remaining() < contentLength) {
+            buffer.position(start); // wait for the rest of the body
+            return false;
+        }
+        byte[] body = new byte[contentLength];
+        buffer.get(body);
+
+        URI uri;
+        try {
+            uri = new URI(target);
+        } catch (URISyntaxException e) {
+            return reject(connection, 400, "Malformed request target");
+        }
+
+        String connectionHeader = headers.getOrDefault("connection", "");
+        boolean keepAlive = http10
+            ? "keep-alive".equalsIgnoreCase(connectionHeader)
+            : !"close".equalsIgnoreCase(connectionHeader);
+
+        connection.pipeline.add(new Pending(
+            new ApiRequest(method, uri.getPath(), uri.getRawQuery(), headers, body), null, keepAlive, http10));
+        return true;
+    }
+
+    // Queues an error for a request we cannot frame; nothing after it can be trusted, so stop reading
+    private boolean reject(Connection connection, int status, String message) {
+        connection.pipeline.add(Pending.error(status, message));
+        connection.closeAfterWrite = true;
+        return false;
+    }
+
+    private static int indexOf(ByteBuffer buffer, int from, byte[] pattern) {
+        int last = buffer.limit() - pattern.length;
+        outer:
+        for (int i = from; i <= last; i++) {
+            for (int j = 0; j < pattern.length; j++) {
+                if (buffer.get(i + j) != pattern[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+
+
+    // Processing
+
+    /** Starts the connection's next queued request, unless one is already running. */
+    private void processNext(Connection connection) {
+        while (!connection.inProgress && !connection.pipeline.isEmpty() && connection.channel.isOpen()) {
+            Pending pending = connection.pipeline.poll();
+
+            if (pending.immediate != null) {
+                send(connection, encode(pending.immediate, false, pending.http10), false);
+                continue;
+            }
+
+            Router.Route route = router.match(pending.request.getPath());
+            if (route == null) {
+                send(connection, encode(notFound(), pending.keepAlive, pending.http10), pending.keepAlive);
+                continue;
+            }
+
+            connection.inProgress = true;
+            boolean accepted = route.getBulkhead().tryExecute(() -> {
+                ApiResponse response = router.handle(route, pending.request);
+                ByteBuffer encoded   = encode(response, pending.keepAlive, pending.http10);
+                completions.add(() -> complete(connection, encoded, pending.keepAlive));
+                selector.wakeup();
+            });
+            if (!accepted) {
+                connection.inProgress = false;
+                send(connection, encode(router.overloaded(route), pending.keepAlive, pending.http10), pending.keepAlive);
+            }
+        }
+    }
+
+    // Runs on the selector thread once a bulkhead thread has produced the response
+    private void complete(Connection connection, ByteBuffer encoded, boolean keepAlive) {
+        connection.inProgress = false;
+        if (!connection.channel.isOpen()) {
+            buffers.release(encoded);
+            return;
+        }
+        send(connection, encoded, keepAlive);
+        parseBuffered(connection);
+        processNext(connection);
+        afterProgress(connection);
+    }
+
+    private void send(Connection connection, ByteBuffer encoded, boolean keepAlive) {
+        connection.outbound.add(encoded);
+        if (!keepAlive) {
+            connection.closeAfterWrite = true;
+            connection.pipeline.clear();
+        }
+        flush(connection);
+    }
+
+    private void flush(Connection connection) {
+        try {
+            while (!connection.outbound.isEmpty()) {
+                ByteBuffer buffer = connection.outbound.peek();
+                connection.channel.write(buffer);
+                if (buffer.hasRemaining()) {
+                    break; // socket send buffer is full; OP_WRITE resumes us
+                }
+                buffers.release(connection.outbound.poll());
+            }
+        } catch (IOException e) {
+            close(connection);
+            return;
+        }
+        connection.lastActivity = System.currentTimeMillis();
+        afterProgress(connection);
+    }
+
+    // Closes the connection once it has nothing left to do, otherwise sets the interest ops it needs next
+    private void afterProgress(Connection connection) {
+        if (!connection.channel.isOpen()) {
+            return;
+        }
+        boolean idle = !connection.inProgress && connection.pipeline.isEmpty() && connection.outbound.isEmpty();
+        if (idle && (connection.closeAfterWrite || connection.inputClosed)) {
+            close(connection);
+            return;
+        }
+
+        int ops = 0;
+        if (!connection.outbound.isEmpty()) {
+            ops |= SelectionKey.OP_WRITE;
+        }
+        if (!connection.inputClosed && !connection.closeAfterWrite && connection.pipeline.size() < MAX_PIPELINED) {
+            ops |= SelectionKey.OP_READ;
+        }
+        if (connection.key.isValid() && connection.key.interestOps() != ops) {
+            connection.key.interestOps(ops);
+        }
+    }
+
+    private void close(Connection connection) {
+        connections.remove(connection);
+        connection.key.cancel();
+        closeQuietly(connection.channel);
+        buffers.release(connection.readBuffer);
+        connection.readBuffer = null;
+        for (ByteBuffer buffer : connection.outbound) {
+            buffers.release(buffer);
+        }
+        connection.outbound.clear();
+        connection.pipeline.clear();
+    }
+
+
+    // Encoding
+
+    /** Writes the status line, headers and body into a pooled buffer, or a heap buffer if it does not fit. */
+    private ByteBuffer encode(ApiResponse response, boolean keepAlive, boolean http10) {
+        StringBuilder head = new StringBuilder(256);
+        head.append(http10 ? "HTTP/1.0 " : "HTTP/1.1 ")
+            .append(response.getStatus()).append(' ').append(reason(response.getStatus())).append("\r\n");
+        for (Map.Entry<String, String> header : response.getHeaders().entrySet()) {
+            head.append(header.getKey()).append(": ").append(header.getValue()).append("\r\n");
+        }
+        byte[] body = response.getBody();
+        head.append("Content-Length: ").append(body.length).append("\r\n");
+        if (!keepAlive) {
+            head.append("Connection: close\r\n");
+        } else if (http10) {
+            head.append("Connection: keep-alive\r\n");
+        }
+        head.append("\r\n");
+
+        byte[] headBytes = head.toString().getBytes(StandardCharsets.ISO_8859_1);
+        int    size      = headBytes.length + body.length;
+        ByteBuffer buffer = size <= BUFFER_SIZE ? buffers.acquire() : ByteBuffer.allocate(size);
+        buffer.put(headBytes).put(body).flip();
+        return buffer;
+    }
+
+    private static ApiResponse notFound() {
+        return ApiResponse.json(404, "{\"success\":false,\"error\":\"Not Found\"}");
+    }
+
+    private static String reason(int status) {
+        switch (status) {
+            case 200: return "OK";
+            case 202: return "Accepted";
+            case 204: return "No Content";
+            case 400: return "Bad Request";
+            case 404: return "Not Found";
+            case 405: return "Method Not Allowed";
+            case 413: return "Payload Too Large";
+            case 431: return "Request Header Fields Too Large";
+            case 500: return "Internal Server Error";
+            case 501: return "Not Implemented";
+            case 503: return "Service Unavailable";
+            default:  return "Unknown";
+        }
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException ignored) {
+            // already closing
+        }
+    }
+
+
+    // Per-connection state, touched only by the selector thread
+
+    private static final class Connection {
+        final SocketChannel          channel;
+        final ArrayDeque<Pending>    pipeline = new ArrayDeque<>();
+        final ArrayDeque<ByteBuffer> outbound = new ArrayDeque<>();
+        SelectionKey                 key;
+        ByteBuffer                   readBuffer;      // null while there is nothing buffered
+        boolean                      inProgress;      // a request is running on a bulkhead
+        boolean                      inputClosed;     // the client shut down its side
+        boolean                      closeAfterWrite;
+        long                         lastActivity = System.currentTimeMillis();
+
+        Connection(SocketChannel channel) {
+            this.channel = channel;
+        }
+    }
+
+    private static final class Pending {
+        final ApiRequest  request;
+        final ApiResponse immediate; // set when the request was refused during parsing
+        final boolean     keepAlive;
+        final boolean     http10;
+
+        Pending(ApiRequest request, ApiResponse immediate, boolean keepAlive, boolean http10) {
+            this.request   = request;
+            this.immediate = immediate;
+            this.keepAlive = keepAlive;
+            this.http10    = http10;
+        }
+
+        static Pending error(int status, String message) {
+            return new Pending(null,
+                ApiResponse.json(status, "{\"success\":false,\"error\":\"" + message + "\"}"), false, false);
+        }
+    }
+}
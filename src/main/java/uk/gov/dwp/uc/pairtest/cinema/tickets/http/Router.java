@@ -0,0 +1,92 @@
+package uk.gov.dwp.uc.pairtest.cinema.tickets.http;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * The endpoints a transport serves: each path prefix maps to a handler and the {@link Bulkhead}
+ * it runs on. Requests go to the longest matching prefix, as with
+ * {@code com.sun.net.httpserver.HttpServer} contexts.
+ */
+public class Router {
+
+    /** One registered endpoint. */
+    public static final class Route {
+        private final String     prefix;
+        private final Bulkhead   bulkhead;
+        private final ApiHandler handler;
+
+        Route(String prefix, Bulkhead bulkhead, ApiHandler handler) {
+            this.prefix   = prefix;
+            this.bulkhead = bulkhead;
+            this.handler  = handler;
+        }
+
+        public String     getPrefix()   { return prefix;   }
+        public Bulkhead   getBulkhead() { return bulkhead; }
+        public ApiHandler getHandler()  { return handler;  }
+    }
+
+    private final List<Route>                      routes        = new ArrayList<>(); // registration order
+    private final List<Route>                      longestFirst  = new ArrayList<>();
+    private final Function<Route, ApiResponse>     overloadedResponse;
+    private final Function<Exception, ApiResponse> errorResponse;
+
+    /**
+     * @param overloadedResponse builds the reply when a route's bulkhead is full
+     * @param errorResponse      builds the reply when a handler throws
+     */
+    public Router(Function<Route, ApiResponse> overloadedResponse,
+                  Function<Exception, ApiResponse> errorResponse) {
+        this.overloadedResponse = overloadedResponse;
+        this.errorResponse      = errorResponse;
+    }
+
+    public Router add(String prefix, Bulkhead bulkhead, ApiHandler handler) {
+        Route route = new Route(prefix, bulkhead, handler);
+        routes.add(route);
+        longestFirst.add(route);
+        longestFirst.sort(Comparator.comparingInt((Route r) -> r.prefix.length()).reversed());
+        return this;
+    }
+
+    /** Returns the route with the longest prefix of {@code path}, or {@code null} if none matches. */
+    public Route match(String path) {
+        for (Route route : longestFirst) {
+            if (path.startsWith(route.prefix)) {
+                return route;
+            }
+        }
+        return null;
+    }
+
+    /** Runs the route's handler, turning an escaped exception into the error response. */
+    public ApiResponse handle(Route route, ApiRequest request) {
+        try {
+            return route.handler.handle(request);
+        } catch (Exception e) {
+            System.err.println("[ERROR] Unhandled failure on " + route.prefix + ": " + e.getMessage());
+            return errorResponse.apply(e);
+        }
+    }
+
+    public ApiResponse overloaded(Route route) {
+        return overloadedResponse.apply(route);
+    }
+
+    public List<Route> getRoutes() {
+        return Collections.unmodifiableList(routes);
+    }
+
+    public List<Bulkhead> getBulkheads() {
+        LinkedHashSet<Bulkhead> bulkheads = new LinkedHashSet<>();
+        for (Route route : routes) {
+            bulkheads.add(route.bulkhead);
+        }
+        return new ArrayList<>(bulkheads);
+    }
+}
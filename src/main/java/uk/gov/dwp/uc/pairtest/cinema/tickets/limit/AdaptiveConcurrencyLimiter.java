@@ -0,0 +1,177 @@
+package uk.gov.dwp.uc.pairtest.cinema.tickets.limit;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Concurrency limit that adapts to observed latency, after TCP Vegas.
+ *
+ * <p>Once per window of about {@code limit} calls the limiter estimates how many requests are
+ * queued downstream as {@code limit * (1 - rttNoLoad / rtt)}, using the window's mean RTT: a
+ * short queue grows the limit, a long queue shrinks it. So the limit rises while the payment gateway keeps up and falls as soon as calls start
+ * to wait on it, with no fixed figure to tune.</p>
+ *
+ * <p>The no-load RTT is the fastest call seen in the current and the previous
+ * {@code baselineIntervalNanos}, taken from ordinary traffic. Admission is never cut to measure
+ * it: among many calls some find the gateway idle, so the minimum approaches the unloaded RTT.
+ * Older samples expire, so the baseline follows a gateway that has become slower for good
+ * instead of keeping a figure it can no longer reach.</p>
+ *
+ * <p>Latency within {@code toleranceNanos} of the no-load RTT counts as no queueing, so
+ * scheduling and GC jitter on fast calls is not mistaken for congestion.</p>
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    private static final long DEFAULT_TOLERANCE_NANOS         = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long DEFAULT_BASELINE_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(60);
+
+    private final int  minLimit;
+    private final int  maxLimit;
+    private final long toleranceNanos;
+    private final long baselineIntervalNanos;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final LongAdder     shed     = new LongAdder();
+    private volatile double     limit;
+
+    // Guarded by this
+    private long rttNoLoadNanos      = Long.MAX_VALUE;
+    private long intervalMinRttNanos = Long.MAX_VALUE;
+    private long previousMinRttNanos = Long.MAX_VALUE;
+    private long intervalEndsAtNanos;
+    private int  windowSamples;
+    private long windowRttSumNanos;
+    private int  windowMaxInFlight;
+
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit) {
+        this(initialLimit, minLimit, maxLimit, DEFAULT_TOLERANCE_NANOS, DEFAULT_BASELINE_INTERVAL_NANOS);
+    }
+
+    /**
+     * @param baselineIntervalNanos how long a fast call counts towards the no-load RTT; each is
+     *                              kept for between one and two intervals
+     */
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit,
+                                      long toleranceNanos, long baselineIntervalNanos) {
+        if (minLimit < 1 || maxLimit < minLimit || initialLimit < minLimit || initialLimit > maxLimit) {
+            throw new IllegalArgumentException(
+                "Require 1 <= minLimit <= initialLimit <= maxLimit, got "
+                + minLimit + " / " + initialLimit + " / " + maxLimit);
+        }
+        this.limit                 = initialLimit;
+        this.minLimit              = minLimit;
+        this.maxLimit              = maxLimit;
+        this.toleranceNanos        = toleranceNanos;
+        this.baselineIntervalNanos = baselineIntervalNanos;
+        this.intervalEndsAtNanos   = System.nanoTime() + baselineIntervalNanos;
+    }
+
+    /**
+     * Takes a slot if fewer than {@link #getLimit()} requests are in flight. Every successful
+     * call must be paired with {@link #release(long)}.
+     *
+     * @return {@code false} if the request should be shed
+     */
+    public boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= (int) limit) {
+                shed.increment();
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Returns the slot taken by {@link #tryAcquire()} and feeds the observed latency into the limit.
+     */
+    public void release(long rttNanos) {
+        int inFlightAtCompletion = inFlight.getAndDecrement();
+        onSample(rttNanos, inFlightAtCompletion);
+    }
+
+    private synchronized void onSample(long rttNanos, int inFlightAtCompletion) {
+        if (rttNanos <= 0) {
+            return;
+        }
+
+        long now = System.nanoTime();
+        if (now - intervalEndsAtNanos >= 0) {
+            previousMinRttNanos = intervalMinRttNanos;
+            intervalMinRttNanos = Long.MAX_VALUE;
+            intervalEndsAtNanos = now + baselineIntervalNanos;
+        }
+        intervalMinRttNanos = Math.min(intervalMinRttNanos, rttNanos);
+        rttNoLoadNanos      = Math.min(previousMinRttNanos, intervalMinRttNanos);
+
+        // Adjust once per window of about one round of the limit, as Vegas adjusts once per RTT;
+        // adjusting per sample overshoots badly because every sample reflects an older limit
+        windowSamples++;
+        windowRttSumNanos += rttNanos;
+        windowMaxInFlight  = Math.max(windowMaxInFlight, inFlightAtCompletion);
+        if (windowSamples < (int) limit) {
+            return;
+        }
+        long meanRttNanos     = windowRttSumNanos / windowSamples;
+        int  maxInFlight      = windowMaxInFlight;
+        windowSamples         = 0;
+        windowRttSumNanos     = 0;
+        windowMaxInFlight     = 0;
+
+        double current = limit;
+        double log     = Math.max(1.0, Math.log10(current));
+        double alpha   = 3 * log;
+        double beta    = 6 * log;
+
+        int queue = meanRttNanos - rttNoLoadNanos <= toleranceNanos
+                ? 0
+                : (int) Math.ceil(current * (1 - (double) rttNoLoadNanos / meanRttNanos));
+
+        double target;
+        if (queue > beta) {
+            target = current - log;
+        } else if (maxInFlight * 2 < current) {
+            // Not using the limit we have, so the sample says nothing about whether it is too low
+            return;
+        } else if (queue <= log) {
+            target = current + beta;
+        } else if (queue < alpha) {
+            target = current + log;
+        } else {
+            return;
+        }
+
+        limit = Math.max(minLimit, Math.min(maxLimit, target));
+    }
+
+
+    // Metrics
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public long getShedCount() {
+        return shed.sum();
+    }
+
+    /** The current no-load RTT, or {@code 0} before the first call completes. */
+    public synchronized double getRttNoLoadMillis() {
+        return rttNoLoadNanos == Long.MAX_VALUE ? 0 : rttNoLoadNanos / 1_000_000.0;
+    }
+
+    @Override
+    public String toString() {
+        return "AdaptiveConcurrencyLimiter{limit=" + getLimit()
+                + ", inFlight=" + getInFlight()
+                + ", shed=" + getShedCount() + "}";
+    }
+}
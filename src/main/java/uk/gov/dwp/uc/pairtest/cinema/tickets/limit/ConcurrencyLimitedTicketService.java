@@ -0,0 +1,60 @@
+package uk.gov.dwp.uc.pairtest.cinema.tickets.limit;
+
+import uk.gov.dwp.uc.pairtest.cinema.tickets.TicketService;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.TicketServiceImpl;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.domain.PurchaseOrder;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.domain.TicketTypeRequest;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.exception.InvalidPurchaseException;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.exception.ServiceOverloadedException;
+
+/**
+ * Puts an {@link AdaptiveConcurrencyLimiter} in front of {@link TicketServiceImpl}.
+ *
+ * <p>Orders are validated and priced outside the limit, so invalid requests are still
+ * answered and never count as latency samples. Only the payment and seat reservation calls
+ * hold a slot. When the limit is reached the purchase is shed with a
+ * {@link ServiceOverloadedException} before anything is charged.</p>
+ */
+public class ConcurrencyLimitedTicketService implements TicketService {
+
+    private final TicketServiceImpl          delegate;
+    private final AdaptiveConcurrencyLimiter limiter;
+
+    public ConcurrencyLimitedTicketService(TicketServiceImpl delegate, AdaptiveConcurrencyLimiter limiter) {
+        this.delegate = delegate;
+        this.limiter  = limiter;
+    }
+
+    @Override
+    public void purchaseTickets(Long accountId, TicketTypeRequest... ticketTypeRequests)
+            throws InvalidPurchaseException {
+
+        purchaseTickets(accountId, null, ticketTypeRequests);
+    }
+
+    /**
+     * As {@link TicketServiceImpl#purchaseTickets(Long, String, TicketTypeRequest...)}, within the limit.
+     */
+    public void purchaseTickets(Long accountId, String screeningId, TicketTypeRequest... ticketTypeRequests)
+            throws InvalidPurchaseException {
+
+        PurchaseOrder order = delegate.preparePurchase(accountId, screeningId, ticketTypeRequests);
+
+        if (!limiter.tryAcquire()) {
+            delegate.cancelPurchase(order);
+            throw new ServiceOverloadedException(
+                "Purchase capacity reached (" + limiter.getLimit() + " in flight), please retry shortly.");
+        }
+
+        long start = System.nanoTime();
+        try {
+            delegate.completePurchase(order);
+        } finally {
+            limiter.release(System.nanoTime() - start);
+        }
+    }
+
+    public AdaptiveConcurrencyLimiter getLimiter() {
+        return limiter;
+    }
+}
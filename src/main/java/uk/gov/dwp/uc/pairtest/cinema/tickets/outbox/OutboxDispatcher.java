@@ -0,0 +1,268 @@
+package uk.gov.dwp.uc.pairtest.cinema.tickets.outbox;
+
+import thirdparty.paymentgateway.TicketPaymentService;
+import thirdparty.seatbooking.SeatReservationService;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.domain.OutboxEntry;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.domain.PurchaseOrder;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.exception.InvalidPurchaseException.Reason;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.repository.PurchaseOutboxRepository;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Dispatches purchases recorded in the outbox to the payment gateway and the seat
+ * reservation service on a bounded worker pool, off the HTTP thread.
+ *
+ * <p>Failed dispatches are retried with exponential backoff up to {@code maxAttempts},
+ * after which the purchase is marked FAILED. A periodic sweep picks up PENDING purchases
+ * that are not already in flight, which covers purchases left behind by a crash or
+ * turned away while the worker queue was full.</p>
+ *
+ * <p>An {@link OutboxListener} is told when each purchase completes or fails for good. Purchases
+ * enqueued by this dispatcher are reported as they were priced; those recovered from a previous
+ * run carry only the totals the outbox stores.</p>
+ *
+ * <p>Delivery is at-least-once: a crash after the gateway has taken a payment but before
+ * the outbox records it will charge again on recovery.</p>
+ */
+public class OutboxDispatcher {
+
+    private static final int  DEFAULT_QUEUE_CAPACITY    = 1_000;
+    private static final int  DEFAULT_MAX_ATTEMPTS      = 5;
+    private static final long DEFAULT_RETRY_BACKOFF_MS  = 200;
+    private static final long DEFAULT_SWEEP_INTERVAL_MS = 5_000;
+    private static final long MAX_RETRY_BACKOFF_MS      = 30_000;
+
+    private final PurchaseOutboxRepository repository;
+    private final TicketPaymentService     paymentService;
+    private final SeatReservationService   seatReservationService;
+    private final int                      queueCapacity;
+    private final int                      maxAttempts;
+    private final long                     retryBackoffMillis;
+    private final long                     sweepIntervalMillis;
+
+    private final ThreadPoolExecutor       workers;
+    private final ScheduledExecutorService scheduler;
+
+    // Purchases queued, running or waiting for a retry; keeps the sweep from dispatching them twice
+    private final Set<Long> inFlight = ConcurrentHashMap.newKeySet();
+
+    // Orders enqueued by this process and not yet finished, as priced, for the listener
+    private final Map<Long, PurchaseOrder> orders = new ConcurrentHashMap<>();
+
+    private volatile OutboxListener listener = OutboxListener.NONE;
+
+    public OutboxDispatcher(PurchaseOutboxRepository repository,
+                            TicketPaymentService paymentService,
+                            SeatReservationService seatReservationService,
+                            int workerThreads) {
+        this(repository, paymentService, seatReservationService, workerThreads, DEFAULT_QUEUE_CAPACITY,
+             DEFAULT_MAX_ATTEMPTS, DEFAULT_RETRY_BACKOFF_MS, DEFAULT_SWEEP_INTERVAL_MS);
+    }
+
+    public OutboxDispatcher(PurchaseOutboxRepository repository,
+                            TicketPaymentService paymentService,
+                            SeatReservationService seatReservationService,
+                            int workerThreads,
+                            int queueCapacity,
+                            int maxAttempts,
+                            long retryBackoffMillis,
+                            long sweepIntervalMillis) {
+        this.repository             = repository;
+        this.paymentService         = paymentService;
+        this.seatReservationService = seatReservationService;
+        this.queueCapacity          = queueCapacity;
+        this.maxAttempts            = maxAttempts;
+        this.retryBackoffMillis     = retryBackoffMillis;
+        this.sweepIntervalMillis    = sweepIntervalMillis;
+
+        this.workers = new ThreadPoolExecutor(workerThreads, workerThreads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), namedThreads("outbox-worker"),
+                new ThreadPoolExecutor.AbortPolicy());
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(namedThreads("outbox-scheduler"));
+    }
+
+    /**
+     * Sets who is told how each purchase ended. Call before {@link #start()}, so purchases
+     * recovered from a previous run are reported too.
+     */
+    public void setListener(OutboxListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Starts the periodic sweep. The first sweep runs immediately, so purchases left
+     * PENDING by a previous run are picked up on startup.
+     */
+    public void start() {
+        scheduler.scheduleWithFixedDelay(this::sweep, 0, sweepIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Records a validated purchase in the outbox and queues it for dispatch.
+     *
+     * @return the purchase id the client can poll for completion
+     */
+    public long enqueue(PurchaseOrder order) {
+        long purchaseId = repository.enqueue(order);
+        orders.put(purchaseId, order);
+        submit(purchaseId);
+        return purchaseId;
+    }
+
+    /**
+     * Queues a purchase for dispatch. If the worker queue is full the purchase stays
+     * PENDING and is picked up by the next sweep.
+     */
+    public void submit(long purchaseId) {
+        if (!inFlight.add(purchaseId)) {
+            return;
+        }
+        try {
+            workers.execute(() -> dispatch(purchaseId));
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(purchaseId);
+        }
+    }
+
+    public void shutdown() {
+        scheduler.shutdownNow();
+        workers.shutdown();
+        try {
+            if (!workers.awaitTermination(5, TimeUnit.SECONDS)) {
+                workers.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            workers.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public Optional<OutboxEntry> findPurchase(long purchaseId) {
+        return repository.findById(purchaseId);
+    }
+
+    int getInFlightCount() {
+        return inFlight.size();
+    }
+
+
+    // Dispatch
+
+    private void sweep() {
+        try {
+            for (OutboxEntry entry : repository.findPending(queueCapacity)) {
+                submit(entry.getPurchaseId());
+            }
+        } catch (Exception e) {
+            System.err.println("[Outbox] Sweep failed: " + e.getMessage());
+        }
+    }
+
+    private void dispatch(long purchaseId) {
+        OutboxEntry entry;
+        try {
+            entry = repository.findById(purchaseId).orElse(null);
+        } catch (Exception e) {
+            System.err.println("[Outbox] Could not load purchase " + purchaseId + ": " + e.getMessage());
+            inFlight.remove(purchaseId);
+            return;
+        }
+
+        if (entry == null || entry.getStatus() != OutboxEntry.Status.PENDING) {
+            orders.remove(purchaseId);
+            inFlight.remove(purchaseId);
+            return;
+        }
+
+        PurchaseOrder order = entry.getOrder();
+        boolean       paid  = entry.isPaymentTaken();
+        try {
+            if (!paid) {
+                paymentService.makePayment(order.getAccountId(), order.getTotalAmount());
+                paid = true;
+                repository.markPaymentTaken(purchaseId);
+            }
+            seatReservationService.reserveSeat(order.getAccountId(), order.getTotalSeats());
+            repository.markCompleted(purchaseId);
+
+        } catch (Exception e) {
+            handleFailure(entry, paid ? Reason.SEAT_RESERVATION_FAILED : Reason.PAYMENT_FAILED, e);
+            return;
+        }
+
+        System.out.println("[Outbox] Purchase " + purchaseId + " completed.");
+        PurchaseOrder priced = orders.remove(purchaseId);
+        tellListener(purchaseId, () -> listener.purchaseCompleted(priced != null ? priced : order));
+        inFlight.remove(purchaseId);
+    }
+
+    private void handleFailure(OutboxEntry entry, Reason reason, Exception cause) {
+        long    purchaseId = entry.getPurchaseId();
+        int     attempts   = entry.getAttempts() + 1;
+        boolean giveUp     = attempts >= maxAttempts;
+
+        try {
+            repository.recordFailedAttempt(purchaseId, cause.getMessage(), giveUp);
+        } catch (Exception e) {
+            System.err.println("[Outbox] Could not record failure for purchase " + purchaseId + ": " + e.getMessage());
+            inFlight.remove(purchaseId);
+            return;
+        }
+
+        if (giveUp) {
+            System.err.println("[Outbox] Purchase " + purchaseId + " FAILED after " + attempts
+                    + " attempts: " + cause.getMessage());
+            PurchaseOrder priced = orders.remove(purchaseId);
+            tellListener(purchaseId, () -> listener.purchaseFailed(priced != null ? priced : entry.getOrder(), reason));
+            inFlight.remove(purchaseId);
+            return;
+        }
+
+        long delay = Math.min(retryBackoffMillis << (attempts - 1), MAX_RETRY_BACKOFF_MS);
+        System.out.println("[Outbox] Purchase " + purchaseId + " attempt " + attempts + " failed ("
+                + cause.getMessage() + "), retrying in " + delay + "ms");
+        try {
+            scheduler.schedule(() -> retry(purchaseId), delay, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(purchaseId);
+        }
+    }
+
+    private void retry(long purchaseId) {
+        try {
+            workers.execute(() -> dispatch(purchaseId));
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(purchaseId);
+        }
+    }
+
+    // The outbox already holds the outcome, so a listener failure is only logged
+    private static void tellListener(long purchaseId, Runnable call) {
+        try {
+            call.run();
+        } catch (Exception e) {
+            System.err.println("[Outbox] Listener failed for purchase " + purchaseId + ": " + e.getMessage());
+        }
+    }
+
+    private static ThreadFactory namedThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,25 @@
+package uk.gov.dwp.uc.pairtest.cinema.tickets.outbox;
+
+import uk.gov.dwp.uc.pairtest.cinema.tickets.domain.PurchaseOrder;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.exception.InvalidPurchaseException.Reason;
+
+/**
+ * Told how each purchase taken on by an {@link OutboxDispatcher} ended.
+ *
+ * <p>Called on the worker thread once the purchase has been marked COMPLETED or FAILED in the
+ * outbox. An implementation must be quick and must not throw.</p>
+ */
+@FunctionalInterface
+public interface OutboxListener {
+
+    OutboxListener NONE = order -> { };
+
+    void purchaseCompleted(PurchaseOrder order);
+
+    /**
+     * @param reason {@link Reason#PAYMENT_FAILED} or {@link Reason#SEAT_RESERVATION_FAILED},
+     *               whichever step failed last
+     */
+    default void purchaseFailed(PurchaseOrder order, Reason reason) {
+    }
+}
@@ -0,0 +1,199 @@
+package uk.gov.dwp.uc.pairtest.cinema.tickets.pricing;
+
+import uk.gov.dwp.uc.pairtest.cinema.tickets.domain.PriceScheduleEntry;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.domain.TicketTypeRequest.Type;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * An immutable index over price schedule entries, answering "what does this ticket cost at
+ * this moment" without touching the database.
+ *
+ * <p>Entries are grouped by ticket type and scope: one screening, one auditorium or the whole
+ * site. Each group is flattened when the index is built into a sorted array of boundaries with
+ * the price in force from each one, so a lookup is one hash probe per scope and a binary
+ * search, O(log n) in the group's entries and free of allocation.</p>
+ *
+ * <p>The narrowest scope with a price in force wins: screening, then auditorium, then site.
+ * Within one scope, where windows overlap the entry added last wins, so a one-off price can be
+ * laid over a longer season without splitting it.</p>
+ */
+public final class PriceSchedule {
+
+    /** Returned by {@link #priceAt} when no schedule covers the moment. */
+    public static final int NO_PRICE = -1;
+
+    private static final Type[] TYPES = Type.values();
+
+    private static final PriceSchedule EMPTY = new PriceSchedule(Collections.emptyList());
+
+    private final List<PriceScheduleEntry> entries;
+
+    // Indexed by Type ordinal
+    private final Timeline[]              site;
+    private final Map<String, Timeline>[] byAuditorium;
+    private final Map<String, Timeline>[] byScreening;
+
+    @SuppressWarnings("unchecked")
+    private PriceSchedule(List<PriceScheduleEntry> entries) {
+        this.entries      = Collections.unmodifiableList(new ArrayList<>(entries));
+        this.site         = new Timeline[TYPES.length];
+        this.byAuditorium = new Map[TYPES.length];
+        this.byScreening  = new Map[TYPES.length];
+
+        List<PriceScheduleEntry>[]              siteGroups       = new List[TYPES.length];
+        Map<String, List<PriceScheduleEntry>>[] auditoriumGroups = new Map[TYPES.length];
+        Map<String, List<PriceScheduleEntry>>[] screeningGroups  = new Map[TYPES.length];
+        for (int t = 0; t < TYPES.length; t++) {
+            siteGroups[t]       = new ArrayList<>();
+            auditoriumGroups[t] = new HashMap<>();
+            screeningGroups[t]  = new HashMap<>();
+        }
+
+        for (PriceScheduleEntry entry : entries) {
+            int t = entry.getTicketType().ordinal();
+            if (entry.getScreeningId() != null) {
+                screeningGroups[t].computeIfAbsent(entry.getScreeningId(), k -> new ArrayList<>()).add(entry);
+            } else if (entry.getAuditorium() != null) {
+                auditoriumGroups[t].computeIfAbsent(entry.getAuditorium(), k -> new ArrayList<>()).add(entry);
+            } else {
+                siteGroups[t].add(entry);
+            }
+        }
+
+        for (int t = 0; t < TYPES.length; t++) {
+            site[t]         = siteGroups[t].isEmpty() ? null : Timeline.of(siteGroups[t]);
+            byAuditorium[t] = timelines(auditoriumGroups[t]);
+            byScreening[t]  = timelines(screeningGroups[t]);
+        }
+    }
+
+    public static PriceSchedule empty() {
+        return EMPTY;
+    }
+
+    public static PriceSchedule of(List<PriceScheduleEntry> entries) {
+        return entries.isEmpty() ? EMPTY : new PriceSchedule(entries);
+    }
+
+    /**
+     * Returns the scheduled price of a ticket at {@code epochMillis}, or {@link #NO_PRICE}.
+     *
+     * @param screeningId the screening, or {@code null}
+     * @param auditorium  the screening's auditorium, or {@code null}
+     */
+    public int priceAt(Type type, String screeningId, String auditorium, long epochMillis) {
+        int t = type.ordinal();
+        int price = NO_PRICE;
+
+        if (screeningId != null) {
+            price = priceAt(byScreening[t].get(screeningId), epochMillis);
+        }
+        if (price == NO_PRICE && auditorium != null) {
+            price = priceAt(byAuditorium[t].get(auditorium), epochMillis);
+        }
+        if (price == NO_PRICE) {
+            price = priceAt(site[t], epochMillis);
+        }
+        return price;
+    }
+
+    /** Every entry, in the order the index was built from. */
+    public List<PriceScheduleEntry> getEntries() {
+        return entries;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+
+    // Helpers
+
+    private static int priceAt(Timeline timeline, long epochMillis) {
+        return timeline == null ? NO_PRICE : timeline.priceAt(epochMillis);
+    }
+
+    private static Map<String, Timeline> timelines(Map<String, List<PriceScheduleEntry>> groups) {
+        Map<String, Timeline> timelines = new HashMap<>();
+        for (Map.Entry<String, List<PriceScheduleEntry>> group : groups.entrySet()) {
+            timelines.put(group.getKey(), Timeline.of(group.getValue()));
+        }
+        return timelines;
+    }
+
+
+    // Timeline
+
+    /**
+     * One group's windows flattened into disjoint segments: {@code prices[i]} is in force from
+     * {@code starts[i]} until {@code starts[i + 1]}, and after the last boundary nothing is.
+     */
+    private static final class Timeline {
+
+        private final long[] starts;
+        private final int[]  prices;
+
+        private Timeline(long[] starts, int[] prices) {
+            this.starts = starts;
+            this.prices = prices;
+        }
+
+        int priceAt(long epochMillis) {
+            int i = Arrays.binarySearch(starts, epochMillis);
+            if (i < 0) {
+                i = -i - 2; // the segment starting before the moment
+            }
+            return i < 0 ? NO_PRICE : prices[i];
+        }
+
+        // Sweeps the boundaries in time order, keeping the windows open at each one in a heap
+        // with the latest added on top; windows that have closed are dropped as they surface
+        static Timeline of(List<PriceScheduleEntry> group) {
+            List<PriceScheduleEntry> byStart = new ArrayList<>(group);
+            byStart.sort(Comparator.comparing(PriceScheduleEntry::getStartsAt));
+
+            long[] boundaries = new long[byStart.size() * 2];
+            int n = 0;
+            for (PriceScheduleEntry entry : byStart) {
+                boundaries[n++] = entry.getStartsAt().toEpochMilli();
+                boundaries[n++] = entry.getEndsAt().toEpochMilli();
+            }
+            Arrays.sort(boundaries);
+
+            PriorityQueue<PriceScheduleEntry> open = new PriorityQueue<>(
+                Comparator.comparingLong(PriceScheduleEntry::getId).reversed());
+            long[] starts = new long[boundaries.length];
+            int[]  prices = new int[boundaries.length];
+            int segments = 0;
+            int next     = 0;
+
+            for (int i = 0; i < boundaries.length; i++) {
+                long at = boundaries[i];
+                if (i > 0 && at == boundaries[i - 1]) {
+                    continue;
+                }
+                while (next < byStart.size() && byStart.get(next).getStartsAt().toEpochMilli() <= at) {
+                    open.add(byStart.get(next++));
+                }
+                while (!open.isEmpty() && open.peek().getEndsAt().toEpochMilli() <= at) {
+                    open.poll();
+                }
+                int price = open.isEmpty() ? NO_PRICE : open.peek().getPrice();
+                if (segments == 0 || prices[segments - 1] != price) {
+                    starts[segments] = at;
+                    prices[segments] = price;
+                    segments++;
+                }
+            }
+            return new Timeline(Arrays.copyOf(starts, segments), Arrays.copyOf(prices, segments));
+        }
+    }
+}
@@ -0,0 +1,356 @@
+package uk.gov.dwp.uc.pairtest.cinema.tickets.protocol;
+
+import uk.gov.dwp.uc.pairtest.cinema.tickets.domain.TicketPrice;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.domain.TicketTypeRequest;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.domain.TicketTypeRequest.Type;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compact binary encoding of purchase and price lookup, for kiosk clients that send the same
+ * small order many times a day. It is carried over HTTP with {@link #CONTENT_TYPE} as the body of
+ * {@code POST /api/tickets/purchase} and {@code POST /api/tickets/prices}, so it shares the JSON
+ * endpoints' bulkheads, limiter and transports.
+ *
+ * <p>Every frame is big-endian and length-prefixed:</p>
+ * <pre>
+ *   u16 length   bytes that follow this field
+ *   u8  version  {@link #VERSION}
+ *   u8  opcode   {@link #OP_PURCHASE} or {@link #OP_PRICES}
+ *   ... payload
+ * </pre>
+ *
+ * <p>Request payloads:</p>
+ * <pre>
+ *   PURCHASE  i64 accountId, u8 idLength, idLength x UTF-8 screeningId,
+ *             u8 count, count x (u8 ticketType, u8 quantity)
+ *   PRICES    (none)
+ * </pre>
+ *
+ * <p>Response payloads start with a {@code u8 status}:</p>
+ * <pre>
+ *   OK        PURCHASE: i32 totalAmount, i32 totalSeats
+ *             PRICES:   u8 count, count x (u8 ticketType, i32 price, u8 requiresSeat)
+ *   ACCEPTED  PURCHASE in outbox mode: i64 purchaseId, i32 totalAmount, i32 totalSeats
+ *   others    u16 length, UTF-8 error message
+ * </pre>
+ *
+ * <p>Ticket types are {@code 0 = ADULT}, {@code 1 = CHILD}, {@code 2 = INFANT}. Purchase requests
+ * are decoded straight from the body into {@link TicketTypeRequest}s, with no text in between.
+ * An empty screening id buys at the prices in force now, as a JSON purchase without one does.</p>
+ *
+ * <p>Version 2 added the screening id; version 1 frames are refused as unsupported.</p>
+ */
+public final class BinaryProtocol {
+
+    public static final String CONTENT_TYPE = "application/x-cinema-tickets";
+
+    public static final byte VERSION     = 2;
+    public static final byte OP_PURCHASE = 1;
+    public static final byte OP_PRICES   = 2;
+
+    public static final byte STATUS_OK          = 0;
+    public static final byte STATUS_ACCEPTED    = 1;
+    public static final byte STATUS_INVALID     = 2; // broke a purchase rule
+    public static final byte STATUS_OVERLOADED  = 3; // shed; retry shortly
+    public static final byte STATUS_UNAVAILABLE = 4; // still starting up
+    public static final byte STATUS_MALFORMED   = 5; // frame could not be decoded
+    public static final byte STATUS_ERROR       = 6;
+
+    static final int HEADER_SIZE = 4; // length, version, opcode
+
+    // Wire codes, fixed independently of the enum's declaration order
+    private static final Type[] TYPES = {Type.ADULT, Type.CHILD, Type.INFANT};
+
+    private BinaryProtocol() {
+    }
+
+    /** A decoded purchase request. */
+    public static final class Purchase {
+        private final long                accountId;
+        private final String              screeningId;
+        private final TicketTypeRequest[] tickets;
+
+        Purchase(long accountId, String screeningId, TicketTypeRequest[] tickets) {
+            this.accountId   = accountId;
+            this.screeningId = screeningId;
+            this.tickets     = tickets;
+        }
+
+        public long                getAccountId()   { return accountId;   }
+        /** The screening bought for, or {@code null} if the frame named none. */
+        public String              getScreeningId() { return screeningId; }
+        public TicketTypeRequest[] getTickets()     { return tickets;     }
+    }
+
+    public static boolean isBinary(String contentType) {
+        return contentType != null && contentType.startsWith(CONTENT_TYPE);
+    }
+
+    /**
+     * The opcode of a request frame, for answering one the server cannot serve yet without
+     * decoding it; {@code 0} if the frame is too short to have one.
+     */
+    public static byte opcodeOf(byte[] frame) {
+        return frame != null && frame.length >= HEADER_SIZE ? frame[3] : 0;
+    }
+
+
+    // Requests
+
+    public static byte[] encodePurchaseRequest(long accountId, TicketTypeRequest... tickets) {
+        return encodePurchaseRequest(accountId, null, tickets);
+    }
+
+    /**
+     * @param screeningId the screening to buy for, or {@code null} for the prices in force now
+     * @throws IllegalArgumentException if the screening id is over 255 bytes of UTF-8, there are
+     *                                  more than 255 requests or a quantity is outside 0-255
+     */
+    public static byte[] encodePurchaseRequest(long accountId, String screeningId, TicketTypeRequest... tickets) {
+        byte[] screening = screeningId == null ? new byte[0] : screeningId.getBytes(StandardCharsets.UTF_8);
+        if (screening.length > 0xFF) {
+            throw new IllegalArgumentException("A screening id must be at most 255 bytes, got " + screening.length);
+        }
+        if (tickets.length > 0xFF) {
+            throw new IllegalArgumentException("At most 255 ticket requests fit in a frame");
+        }
+        for (TicketTypeRequest ticket : tickets) {
+            if (ticket.getNoOfTickets() < 0 || ticket.getNoOfTickets() > 0xFF) {
+                throw new IllegalArgumentException("Quantity must be 0-255, got " + ticket.getNoOfTickets());
+            }
+        }
+        byte[] frame = newFrame(OP_PURCHASE, 8 + 1 + screening.length + 1 + 2 * tickets.length);
+        int at = putLong(frame, HEADER_SIZE, accountId);
+        frame[at++] = (byte) screening.length;
+        System.arraycopy(screening, 0, frame, at, screening.length);
+        at += screening.length;
+        frame[at++] = (byte) tickets.length;
+        for (TicketTypeRequest ticket : tickets) {
+            frame[at++] = typeCode(ticket.getTicketType());
+            frame[at++] = (byte) ticket.getNoOfTickets();
+        }
+        return frame;
+    }
+
+    public static byte[] encodePricesRequest() {
+        return newFrame(OP_PRICES, 0);
+    }
+
+    /**
+     * Decodes a purchase request frame.
+     *
+     * @throws IllegalArgumentException if the frame is truncated, has trailing bytes or is not a purchase
+     */
+    public static Purchase decodePurchase(byte[] frame) {
+        checkHeader(frame, OP_PURCHASE);
+        if (frame.length < HEADER_SIZE + 10) {
+            throw new IllegalArgumentException("Truncated purchase frame");
+        }
+        long accountId = getLong(frame, HEADER_SIZE);
+        int  idLength  = frame[HEADER_SIZE + 8] & 0xFF;
+        int  at        = HEADER_SIZE + 9 + idLength;
+        if (frame.length < at + 1) {
+            throw new IllegalArgumentException("Truncated purchase frame");
+        }
+        String screeningId = idLength == 0 ? null : new String(frame, HEADER_SIZE + 9, idLength, StandardCharsets.UTF_8);
+        int    count       = frame[at++] & 0xFF;
+        if (frame.length != at + 2 * count) {
+            throw new IllegalArgumentException("Purchase frame holds " + count + " tickets but is " + frame.length + " bytes");
+        }
+
+        TicketTypeRequest[] tickets = new TicketTypeRequest[count];
+        for (int i = 0; i < count; i++) {
+            int code = frame[at++] & 0xFF;
+            if (code >= TYPES.length) {
+                throw new IllegalArgumentException("Unknown ticket type code: " + code);
+            }
+            tickets[i] = new TicketTypeRequest(TYPES[code], frame[at++] & 0xFF);
+        }
+        return new Purchase(accountId, screeningId, tickets);
+    }
+
+    /**
+     * Checks that the frame is a price lookup request.
+     *
+     * @throws IllegalArgumentException otherwise
+     */
+    public static void decodePricesRequest(byte[] frame) {
+        checkHeader(frame, OP_PRICES);
+        if (frame.length != HEADER_SIZE) {
+            throw new IllegalArgumentException("Prices frame has an unexpected payload");
+        }
+    }
+
+
+    // Responses
+
+    public static byte[] encodePurchaseOk(int totalAmount, int totalSeats) {
+        byte[] frame = newFrame(OP_PURCHASE, 1 + 4 + 4);
+        frame[HEADER_SIZE] = STATUS_OK;
+        putInt(frame, putInt(frame, HEADER_SIZE + 1, totalAmount), totalSeats);
+        return frame;
+    }
+
+    public static byte[] encodePurchaseAccepted(long purchaseId, int totalAmount, int totalSeats) {
+        byte[] frame = newFrame(OP_PURCHASE, 1 + 8 + 4 + 4);
+        frame[HEADER_SIZE] = STATUS_ACCEPTED;
+        putInt(frame, putInt(frame, putLong(frame, HEADER_SIZE + 1, purchaseId), totalAmount), totalSeats);
+        return frame;
+    }
+
+    /**
+     * @throws IllegalArgumentException if there are more than 255 prices
+     */
+    public static byte[] encodePrices(List<TicketPrice> prices) {
+        if (prices.size() > 0xFF) {
+            throw new IllegalArgumentException("At most 255 prices fit in a frame, got " + prices.size());
+        }
+        byte[] frame = newFrame(OP_PRICES, 1 + 1 + 6 * prices.size());
+        frame[HEADER_SIZE]     = STATUS_OK;
+        frame[HEADER_SIZE + 1] = (byte) prices.size();
+        int at = HEADER_SIZE + 2;
+        for (TicketPrice price : prices) {
+            frame[at++] = typeCode(Type.valueOf(price.getTicketType()));
+            at = putInt(frame, at, price.getPrice());
+            frame[at++] = (byte) (price.isRequiresSeat() ? 1 : 0);
+        }
+        return frame;
+    }
+
+    public static byte[] encodeError(byte opcode, byte status, String message) {
+        byte[] text  = (message == null ? "" : message).getBytes(StandardCharsets.UTF_8);
+        int    size  = Math.min(text.length, 0xFFFF - 5); // keep the length prefix within a u16
+        byte[] frame = newFrame(opcode, 1 + 2 + size);
+        frame[HEADER_SIZE] = status;
+        putShort(frame, HEADER_SIZE + 1, size);
+        System.arraycopy(text, 0, frame, HEADER_SIZE + 3, size);
+        return frame;
+    }
+
+    /**
+     * Decodes any response frame; used by {@link BinaryTicketClient}.
+     *
+     * @throws IllegalArgumentException if the frame is malformed
+     */
+    public static BinaryResponse decodeResponse(byte[] frame) {
+        if (frame.length < HEADER_SIZE + 1) {
+            throw new IllegalArgumentException("Truncated response frame");
+        }
+        checkLength(frame);
+        byte opcode = frame[3];
+        byte status = frame[HEADER_SIZE];
+        int  at     = HEADER_SIZE + 1;
+
+        if (status == STATUS_OK && opcode == OP_PURCHASE) {
+            checkPayload(frame, at + 8, "purchase");
+            return BinaryResponse.purchased(getInt(frame, at), getInt(frame, at + 4));
+        }
+        if (status == STATUS_ACCEPTED && opcode == OP_PURCHASE) {
+            checkPayload(frame, at + 16, "accepted purchase");
+            return BinaryResponse.accepted(getLong(frame, at), getInt(frame, at + 8), getInt(frame, at + 12));
+        }
+        if (status == STATUS_OK && opcode == OP_PRICES) {
+            if (frame.length < at + 1) {
+                throw new IllegalArgumentException("Truncated prices response frame");
+            }
+            int count = frame[at++] & 0xFF;
+            if (frame.length != at + 6 * count) {
+                throw new IllegalArgumentException("Prices frame holds " + count + " prices but is " + frame.length + " bytes");
+            }
+            List<TicketPrice> prices = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                int code = frame[at] & 0xFF;
+                if (code >= TYPES.length) {
+                    throw new IllegalArgumentException("Unknown ticket type code: " + code);
+                }
+                Type type = TYPES[code];
+                prices.add(new TicketPrice(type.name(), getInt(frame, at + 1), frame[at + 5] != 0));
+                at += 6;
+            }
+            return BinaryResponse.prices(prices);
+        }
+        int size = frame.length >= at + 2 ? getShort(frame, at) : -1;
+        if (size < 0 || at + 2 + size != frame.length) {
+            throw new IllegalArgumentException("Malformed response frame with status " + status);
+        }
+        return BinaryResponse.error(status, new String(frame, at + 2, size, StandardCharsets.UTF_8));
+    }
+
+
+    // Layout helpers
+
+    private static byte[] newFrame(byte opcode, int payloadSize) {
+        byte[] frame = new byte[HEADER_SIZE + payloadSize];
+        putShort(frame, 0, frame.length - 2);
+        frame[2] = VERSION;
+        frame[3] = opcode;
+        return frame;
+    }
+
+    private static void checkHeader(byte[] frame, byte opcode) {
+        if (frame.length < HEADER_SIZE) {
+            throw new IllegalArgumentException("Truncated frame header");
+        }
+        checkLength(frame);
+        if (frame[2] != VERSION) {
+            throw new IllegalArgumentException("Unsupported protocol version: " + frame[2]);
+        }
+        if (frame[3] != opcode) {
+            throw new IllegalArgumentException("Expected opcode " + opcode + " but got " + frame[3]);
+        }
+    }
+
+    private static void checkLength(byte[] frame) {
+        if (getShort(frame, 0) != frame.length - 2) {
+            throw new IllegalArgumentException("Frame length prefix " + getShort(frame, 0)
+                    + " does not match the " + (frame.length - 2) + " bytes that follow it");
+        }
+    }
+
+    private static void checkPayload(byte[] frame, int end, String kind) {
+        if (frame.length != end) {
+            throw new IllegalArgumentException("A " + kind + " response frame must be " + end
+                    + " bytes but is " + frame.length);
+        }
+    }
+
+    private static byte typeCode(Type type) {
+        for (int i = 0; i < TYPES.length; i++) {
+            if (TYPES[i] == type) {
+                return (byte) i;
+            }
+        }
+        throw new IllegalArgumentException("Ticket type has no wire code: " + type);
+    }
+
+    private static int putShort(byte[] frame, int at, int value) {
+        frame[at]     = (byte) (value >>> 8);
+        frame[at + 1] = (byte) value;
+        return at + 2;
+    }
+
+    private static int putInt(byte[] frame, int at, int value) {
+        putShort(frame, at, value >>> 16);
+        return putShort(frame, at + 2, value);
+    }
+
+    private static int putLong(byte[] frame, int at, long value) {
+        putInt(frame, at, (int) (value >>> 32));
+        return putInt(frame, at + 4, (int) value);
+    }
+
+    static int getShort(byte[] frame, int at) {
+        return (frame[at] & 0xFF) << 8 | (frame[at + 1] & 0xFF);
+    }
+
+    private static int getInt(byte[] frame, int at) {
+        return getShort(frame, at) << 16 | getShort(frame, at + 2);
+    }
+
+    private static long getLong(byte[] frame, int at) {
+        return (long) getInt(frame, at) << 32 | (getInt(frame, at + 4) & 0xFFFFFFFFL);
+    }
+}
@@ -0,0 +1,68 @@
+package uk.gov.dwp.uc.pairtest.cinema.tickets.protocol;
+
+import uk.gov.dwp.uc.pairtest.cinema.tickets.domain.TicketPrice;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A decoded {@link BinaryProtocol} response. Which fields are set depends on the request and
+ * {@link #getStatus()}: purchase totals for {@code OK}/{@code ACCEPTED} purchases, prices for an
+ * {@code OK} price lookup, and a message for every other status.
+ */
+public final class BinaryResponse {
+
+    private final byte              status;
+    private final int               totalAmount;
+    private final int               totalSeats;
+    private final long              purchaseId;
+    private final List<TicketPrice> prices;
+    private final String            message;
+
+    private BinaryResponse(byte status, int totalAmount, int totalSeats, long purchaseId,
+                           List<TicketPrice> prices, String message) {
+        this.status      = status;
+        this.totalAmount = totalAmount;
+        this.totalSeats  = totalSeats;
+        this.purchaseId  = purchaseId;
+        this.prices      = prices;
+        this.message     = message;
+    }
+
+    static BinaryResponse purchased(int totalAmount, int totalSeats) {
+        return new BinaryResponse(BinaryProtocol.STATUS_OK, totalAmount, totalSeats, 0, Collections.emptyList(), null);
+    }
+
+    static BinaryResponse accepted(long purchaseId, int totalAmount, int totalSeats) {
+        return new BinaryResponse(BinaryProtocol.STATUS_ACCEPTED, totalAmount, totalSeats, purchaseId,
+                                  Collections.emptyList(), null);
+    }
+
+    static BinaryResponse prices(List<TicketPrice> prices) {
+        return new BinaryResponse(BinaryProtocol.STATUS_OK, 0, 0, 0, Collections.unmodifiableList(prices), null);
+    }
+
+    static BinaryResponse error(byte status, String message) {
+        return new BinaryResponse(status, 0, 0, 0, Collections.emptyList(), message);
+    }
+
+    public byte              getStatus()      { return status;      }
+    public int               getTotalAmount() { return totalAmount; }
+    public int               getTotalSeats()  { return totalSeats;  }
+    public long              getPurchaseId()  { return purchaseId;  }
+    public List<TicketPrice> getPrices()      { return prices;      }
+    public String            getMessage()     { return message;     }
+
+    public boolean isSuccess() {
+        return status == BinaryProtocol.STATUS_OK || status == BinaryProtocol.STATUS_ACCEPTED;
+    }
+
+    @Override
+    public String toString() {
+        return "BinaryResponse{status=" + status
+                + (isSuccess() ? ", totalAmount=" + totalAmount + ", totalSeats=" + totalSeats : "")
+                + (purchaseId != 0 ? ", purchaseId=" + purchaseId : "")
+                + (prices.isEmpty() ? "" : ", prices=" + prices)
+                + (message != null ? ", message=" + message : "") + "}";
+    }
+}
@@ -0,0 +1,157 @@
+package uk.gov.dwp.uc.pairtest.cinema.tickets.protocol;
+
+import uk.gov.dwp.uc.pairtest.cinema.tickets.domain.TicketTypeRequest;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reference client for {@link BinaryProtocol}, as a kiosk would use it.
+ *
+ * <p>Holds one keep-alive HTTP/1.1 connection and sends each request as soon as the previous
+ * response has been read; it reconnects if the server closes the connection. Not thread-safe:
+ * use one client per thread.</p>
+ *
+ * <pre>
+ * try (BinaryTicketClient client = new BinaryTicketClient("localhost", 8080)) {
+ *     BinaryResponse response = client.purchase(1L, new TicketTypeRequest(Type.ADULT, 2));
+ * }
+ * </pre>
+ *
+ * <p>Any binary reply is decoded for its own status, whatever the HTTP code, so a 503 while the
+ * server starts up comes back as {@link BinaryProtocol#STATUS_UNAVAILABLE}. Replies the server
+ * produces without looking at the request, such as a 503 from a full bulkhead, are JSON; they
+ * come back with {@link BinaryProtocol#STATUS_OVERLOADED} for a 503, else
+ * {@link BinaryProtocol#STATUS_ERROR}, and the HTTP body as the message.</p>
+ */
+public class BinaryTicketClient implements Closeable {
+
+    private static final byte[] CRLF_CRLF = {'\r', '\n', '\r', '\n'};
+
+    private final String host;
+    private final int    port;
+    private final byte[] purchaseHead;
+    private final byte[] pricesHead;
+
+    private Socket       socket;
+    private OutputStream out;
+    private InputStream  in;
+
+    public BinaryTicketClient(String host, int port) {
+        this.host         = host;
+        this.port         = port;
+        this.purchaseHead = head("/api/tickets/purchase");
+        this.pricesHead   = head("/api/tickets/prices");
+    }
+
+    public BinaryResponse purchase(long accountId, TicketTypeRequest... tickets) throws IOException {
+        return exchange(purchaseHead, BinaryProtocol.encodePurchaseRequest(accountId, tickets));
+    }
+
+    /**
+     * Buys for a screening, at the prices scheduled for it.
+     */
+    public BinaryResponse purchase(long accountId, String screeningId, TicketTypeRequest... tickets) throws IOException {
+        return exchange(purchaseHead, BinaryProtocol.encodePurchaseRequest(accountId, screeningId, tickets));
+    }
+
+    public BinaryResponse prices() throws IOException {
+        return exchange(pricesHead, BinaryProtocol.encodePricesRequest());
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (socket != null) {
+            socket.close();
+            socket = null;
+        }
+    }
+
+    // Request head up to "Content-Length: "; the length and blank line are written per request
+    private byte[] head(String path) {
+        return ("POST " + path + " HTTP/1.1\r\n"
+                + "Host: " + host + "\r\n"
+                + "Content-Type: " + BinaryProtocol.CONTENT_TYPE + "\r\n"
+                + "Content-Length: ").getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    private BinaryResponse exchange(byte[] head, byte[] frame) throws IOException {
+        if (socket == null || socket.isClosed()) {
+            connect();
+        }
+        try {
+            out.write(head);
+            out.write(Integer.toString(frame.length).getBytes(StandardCharsets.ISO_8859_1));
+            out.write(CRLF_CRLF);
+            out.write(frame);
+            out.flush();
+            return readResponse();
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+    }
+
+    private void connect() throws IOException {
+        socket = new Socket(host, port);
+        socket.setTcpNoDelay(true);
+        out = new BufferedOutputStream(socket.getOutputStream());
+        in  = new BufferedInputStream(socket.getInputStream());
+    }
+
+    private BinaryResponse readResponse() throws IOException {
+        int     status        = -1;
+        int     contentLength = 0;
+        boolean binary        = false;
+        boolean closeAfter    = false;
+
+        StringBuilder line = new StringBuilder();
+        while (true) {
+            int b = in.read();
+            if (b < 0) {
+                throw new IOException("Connection closed before the response was complete");
+            }
+            if (b == '\r') {
+                continue;
+            }
+            if (b != '\n') {
+                line.append((char) b);
+                continue;
+            }
+            if (line.length() == 0) {
+                break;
+            }
+            if (status < 0) {
+                status = Integer.parseInt(line.substring(9, 12));
+            } else if (startsWithIgnoreCase(line, "Content-Length:")) {
+                contentLength = Integer.parseInt(line.substring(15).trim());
+            } else if (startsWithIgnoreCase(line, "Content-Type:")) {
+                binary = BinaryProtocol.isBinary(line.substring(13).trim());
+            } else if (startsWithIgnoreCase(line, "Connection:")) {
+                closeAfter = "close".equalsIgnoreCase(line.substring(11).trim());
+            }
+            line.setLength(0);
+        }
+
+        byte[] body = in.readNBytes(contentLength);
+        if (closeAfter) {
+            close();
+        }
+        if (binary) {
+            return BinaryProtocol.decodeResponse(body); // the frame's own status, not the HTTP code
+        }
+        // Only a full bulkhead answers a binary request with a JSON 503
+        return BinaryResponse.error(status == 503 ? BinaryProtocol.STATUS_OVERLOADED : BinaryProtocol.STATUS_ERROR,
+                                    new String(body, StandardCharsets.UTF_8));
+    }
+
+    private static boolean startsWithIgnoreCase(StringBuilder line, String prefix) {
+        return line.length() >= prefix.length() && line.substring(0, prefix.length()).equalsIgnoreCase(prefix);
+    }
+}
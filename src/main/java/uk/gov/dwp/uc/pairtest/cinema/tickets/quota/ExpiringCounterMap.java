@@ -0,0 +1,200 @@
+package uk.gov.dwp.uc.pairtest.cinema.tickets.quota;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A fixed-size concurrent map from {@code long} keys to counters that expire, held in primitive
+ * arrays so neither keys nor counts are ever boxed and nothing is allocated after construction.
+ *
+ * <p>The table is split into segments, each an open-addressed array of keys and packed values
+ * (expiry in epoch seconds in the high 32 bits, count in the low 32) guarded by its own lock, so
+ * purchases for different accounts rarely meet. A key lives within {@link #MAX_PROBES} slots of
+ * its home slot. Expired entries are not removed; their slots are reused by the next key that
+ * probes past them, so memory stays at the capacity given however many keys come and go.</p>
+ *
+ * <p>If every slot a new key may use holds a live entry, the one expiring soonest is evicted
+ * and counted in {@link #getEvictions()}. Kept at most 60% full, this does not happen.</p>
+ */
+public final class ExpiringCounterMap {
+
+    static final int MAX_PROBES = 64;
+
+    private static final long EMPTY    = 0L;
+    private static final int  SEGMENTS = 256;
+
+    private final Segment[] segments;
+    private final int       segmentShift;
+    private final int       capacity;
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param capacity number of slots, rounded up to a power of two; each takes 16 bytes
+     */
+    public ExpiringCounterMap(int capacity) {
+        int slots      = Integer.highestOneBit(Math.max(capacity, SEGMENTS * MAX_PROBES) - 1) << 1;
+        int perSegment = slots / SEGMENTS;
+        this.capacity     = slots;
+        this.segments     = new Segment[SEGMENTS];
+        this.segmentShift = 64 - Integer.numberOfTrailingZeros(SEGMENTS);
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(perSegment);
+        }
+    }
+
+    /**
+     * Adds {@code amount} to the key's counter unless that would take it over {@code limit}. A
+     * key with no live counter starts a new one expiring at {@code expiresAt}; a live counter
+     * keeps its own expiry.
+     *
+     * @param key       any value but {@code 0}
+     * @param expiresAt epoch seconds at which a new counter expires
+     * @param now       the current time in epoch seconds
+     * @return {@code false}, changing nothing, if the limit would be exceeded
+     */
+    public boolean tryAdd(long key, int amount, int limit, long expiresAt, long now) {
+        long hash = mix(key);
+        return segmentFor(hash).tryAdd(key, (int) hash, amount, limit, expiresAt, now, evictions);
+    }
+
+    /**
+     * Takes {@code amount} off the key's live counter, stopping at zero. Does nothing if the
+     * key has none.
+     */
+    public void subtract(long key, int amount, long now) {
+        long hash = mix(key);
+        segmentFor(hash).subtract(key, (int) hash, amount, now);
+    }
+
+    /** The key's live count, or {@code 0}. */
+    public int get(long key, long now) {
+        long hash = mix(key);
+        return segmentFor(hash).get(key, (int) hash, now);
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /** Live counters pushed out to make room for a new key. */
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+
+    // Helpers
+
+    private Segment segmentFor(long hash) {
+        return segments[(int) (hash >>> segmentShift)];
+    }
+
+    // Stafford's variant 13 of the MurmurHash3 finaliser: spreads sequential account ids evenly
+    static long mix(long key) {
+        key = (key ^ (key >>> 30)) * 0xBF58476D1CE4E5B9L;
+        key = (key ^ (key >>> 27)) * 0x94D049BB133111EBL;
+        return key ^ (key >>> 31);
+    }
+
+    private static long pack(long expiresAt, int count) {
+        return (expiresAt << 32) | (count & 0xFFFFFFFFL);
+    }
+
+    private static long expiresAt(long value) {
+        return value >>> 32;
+    }
+
+    private static int count(long value) {
+        return (int) value;
+    }
+
+
+    // Segment
+
+    private static final class Segment {
+
+        private final long[] keys;
+        private final long[] values;
+        private final int    mask;
+
+        Segment(int slots) {
+            this.keys   = new long[slots];
+            this.values = new long[slots];
+            this.mask   = slots - 1;
+        }
+
+        synchronized boolean tryAdd(long key, int hash, int amount, int limit, long expiresAt, long now,
+                                    LongAdder evictions) {
+            int free        = -1;
+            int soonest     = -1;
+            long soonestAt  = Long.MAX_VALUE;
+
+            for (int probe = 0; probe < MAX_PROBES; probe++) {
+                int  slot = (hash + probe) & mask;
+                long k    = keys[slot];
+
+                if (k == key) {
+                    long value = values[slot];
+                    boolean live = ExpiringCounterMap.expiresAt(value) > now;
+                    int  count = live ? count(value) : 0;
+                    if (count + amount > limit) {
+                        return false;
+                    }
+                    values[slot] = pack(live ? ExpiringCounterMap.expiresAt(value) : expiresAt, count + amount);
+                    return true;
+                }
+                if (k == EMPTY) {
+                    if (free < 0) {
+                        free = slot;
+                    }
+                    break; // slots are never emptied again, so the key is not further on
+                }
+                long at = ExpiringCounterMap.expiresAt(values[slot]);
+                if (at <= now) {
+                    if (free < 0) {
+                        free = slot;
+                    }
+                } else if (at < soonestAt) {
+                    soonest   = slot;
+                    soonestAt = at;
+                }
+            }
+
+            if (amount > limit) {
+                return false;
+            }
+            if (free < 0) {
+                free = soonest;
+                evictions.increment();
+            }
+            keys[free]   = key;
+            values[free] = pack(expiresAt, amount);
+            return true;
+        }
+
+        synchronized void subtract(long key, int hash, int amount, long now) {
+            int slot = find(key, hash);
+            if (slot >= 0 && ExpiringCounterMap.expiresAt(values[slot]) > now) {
+                long value = values[slot];
+                values[slot] = pack(ExpiringCounterMap.expiresAt(value), Math.max(0, count(value) - amount));
+            }
+        }
+
+        synchronized int get(long key, int hash, long now) {
+            int slot = find(key, hash);
+            return slot >= 0 && ExpiringCounterMap.expiresAt(values[slot]) > now ? count(values[slot]) : 0;
+        }
+
+        private int find(long key, int hash) {
+            for (int probe = 0; probe < MAX_PROBES; probe++) {
+                int  slot = (hash + probe) & mask;
+                long k    = keys[slot];
+                if (k == key) {
+                    return slot;
+                }
+                if (k == EMPTY) {
+                    return -1;
+                }
+            }
+            return -1;
+        }
+    }
+}
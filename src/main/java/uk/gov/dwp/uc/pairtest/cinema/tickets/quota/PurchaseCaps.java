@@ -0,0 +1,162 @@
+package uk.gov.dwp.uc.pairtest.cinema.tickets.quota;
+
+import uk.gov.dwp.uc.pairtest.cinema.tickets.domain.PurchaseOrder;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.domain.Screening;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.exception.InvalidPurchaseException;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.exception.InvalidPurchaseException.Reason;
+
+import java.time.Clock;
+
+/**
+ * Caps how many tickets one account may buy in total, beyond the limit on a single purchase: so
+ * many per UTC day, and so many for any one screening.
+ *
+ * <p>Counts are kept in an {@link ExpiringCounterMap} keyed by account id, and for screenings by
+ * the account id and a 64-bit hash of the screening id with the top bit set, so the two kinds
+ * never meet. A day's count expires at midnight UTC and a screening's a day after it starts.
+ * Checking and counting a purchase is one locked probe per cap, with no allocation.</p>
+ *
+ * <p>The screening is the one the order was priced for, looked up by the server. While the
+ * screening cap is on, an order must name a screening that has not yet started; otherwise the
+ * cap could be dodged by leaving the screening out.</p>
+ *
+ * <p>Counts are held in memory by each instance; instances behind one load balancer each
+ * enforce the caps on the purchases they take.</p>
+ */
+public class PurchaseCaps {
+
+    /** Default map size: 4M slots, 64 MB, for up to about 2.5 million accounts active in a day. */
+    public static final int DEFAULT_CAPACITY = 1 << 22;
+
+    static final long DAY_SECONDS = 86_400;
+
+    private static final long SCREENING_KEY = Long.MIN_VALUE;
+
+    private final int                maxPerDay;
+    private final int                maxPerScreening;
+    private final ExpiringCounterMap counters;
+    private final Clock              clock;
+
+    /**
+     * @param maxPerDay       tickets one account may buy per UTC day; {@code 0} for no cap
+     * @param maxPerScreening tickets one account may buy for one screening; {@code 0} for no cap
+     */
+    public PurchaseCaps(int maxPerDay, int maxPerScreening, int capacity) {
+        this(maxPerDay, maxPerScreening, capacity, Clock.systemUTC());
+    }
+
+    public PurchaseCaps(int maxPerDay, int maxPerScreening, int capacity, Clock clock) {
+        this.maxPerDay       = maxPerDay;
+        this.maxPerScreening = maxPerScreening;
+        this.counters        = maxPerDay > 0 || maxPerScreening > 0 ? new ExpiringCounterMap(capacity) : null;
+        this.clock           = clock;
+    }
+
+    /** Caps that let everything through. */
+    public static PurchaseCaps none() {
+        return new PurchaseCaps(0, 0, 0);
+    }
+
+    public boolean isEnabled() {
+        return counters != null;
+    }
+
+    /**
+     * Counts the order's tickets against the account's caps.
+     *
+     * @throws InvalidPurchaseException if they would take the account over a cap, or the screening
+     *                                  cap is on and the order has no screening or one already
+     *                                  started; nothing is counted
+     */
+    public void reserve(PurchaseOrder order) throws InvalidPurchaseException {
+        if (counters == null) {
+            return;
+        }
+        long      now       = clock.millis() / 1000;
+        long      account   = order.getAccountId();
+        int       tickets   = order.getTotalTickets();
+        Screening screening = order.getScreening();
+
+        if (maxPerScreening > 0) {
+            if (screening == null) {
+                throw new InvalidPurchaseException(Reason.INVALID_SCREENING,
+                    "A screening is required; each account may buy " + maxPerScreening + " tickets per screening.");
+            }
+            if (screening.getStartsAt().getEpochSecond() <= now) {
+                throw new InvalidPurchaseException(Reason.INVALID_SCREENING,
+                    "Screening " + screening.getScreeningId() + " has already started.");
+            }
+        }
+
+        if (maxPerDay > 0 && !counters.tryAdd(account, tickets, maxPerDay, endOfDay(now), now)) {
+            throw new InvalidPurchaseException(Reason.ACCOUNT_LIMIT_REACHED,
+                "Account " + account + " has reached its limit of " + maxPerDay + " tickets per day.");
+        }
+
+        if (maxPerScreening > 0) {
+            long expiresAt = screening.getStartsAt().getEpochSecond() + DAY_SECONDS;
+            if (!counters.tryAdd(screeningKey(account, screening.getScreeningId()), tickets,
+                                 maxPerScreening, expiresAt, now)) {
+                if (maxPerDay > 0) {
+                    counters.subtract(account, tickets, now);
+                }
+                throw new InvalidPurchaseException(Reason.ACCOUNT_LIMIT_REACHED,
+                    "Account " + account + " has reached its limit of " + maxPerScreening
+                    + " tickets for screening " + screening.getScreeningId() + ".");
+            }
+        }
+    }
+
+    /**
+     * Gives back what {@link #reserve} counted for an order that was not completed.
+     */
+    public void release(PurchaseOrder order) {
+        if (counters == null) {
+            return;
+        }
+        long now     = clock.millis() / 1000;
+        long account = order.getAccountId();
+        int  tickets = order.getTotalTickets();
+
+        if (maxPerDay > 0) {
+            counters.subtract(account, tickets, now);
+        }
+        Screening screening = order.getScreening();
+        if (maxPerScreening > 0 && screening != null) {
+            counters.subtract(screeningKey(account, screening.getScreeningId()), tickets, now);
+        }
+    }
+
+    /** Tickets the account has bought today. */
+    public int getTicketsToday(long accountId) {
+        return counters == null ? 0 : counters.get(accountId, clock.millis() / 1000);
+    }
+
+    public int getMaxPerDay()       { return maxPerDay;       }
+    public int getMaxPerScreening() { return maxPerScreening; }
+
+    public int getCapacity() {
+        return counters == null ? 0 : counters.getCapacity();
+    }
+
+    /** Live counts lost because the map was full; see {@link ExpiringCounterMap}. */
+    public long getEvictions() {
+        return counters == null ? 0 : counters.getEvictions();
+    }
+
+
+    // Helpers
+
+    private static long endOfDay(long epochSecond) {
+        return (epochSecond / DAY_SECONDS + 1) * DAY_SECONDS;
+    }
+
+    // FNV-1a over the id's chars, mixed with the account; never collides with a bare account id
+    static long screeningKey(long accountId, String screeningId) {
+        long hash = 0xCBF29CE484222325L;
+        for (int i = 0; i < screeningId.length(); i++) {
+            hash = (hash ^ screeningId.charAt(i)) * 0x100000001B3L;
+        }
+        return ExpiringCounterMap.mix(accountId ^ hash) | SCREENING_KEY;
+    }
+}
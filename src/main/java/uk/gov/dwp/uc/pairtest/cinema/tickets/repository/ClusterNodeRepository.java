@@ -0,0 +1,118 @@
+package uk.gov.dwp.uc.pairtest.cinema.tickets.repository;
+
+import java.net.InetSocketAddress;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ * Records the instances sharing a price store in the CLUSTER_NODES table, with the local
+ * address each one listens on for price change notifications.
+ *
+ * <p>Only useful when the instances share a server-mode database; against the default
+ * in-memory URL every instance only ever sees itself.</p>
+ */
+public class ClusterNodeRepository {
+
+    private static final String DB_USER = "sa";
+    private static final String DB_PASS = "";
+
+    private final String dbUrl;
+
+    public ClusterNodeRepository(String dbUrl) {
+        this.dbUrl = dbUrl;
+        initDatabase();
+    }
+
+
+    // Initialisation
+
+
+    private void initDatabase() {
+        try (Connection conn = getConnection();
+             Statement  stmt = conn.createStatement()) {
+
+            stmt.execute(
+                "CREATE TABLE IF NOT EXISTS CLUSTER_NODES (" +
+                "  node_id       VARCHAR(64)  PRIMARY KEY," +
+                "  host          VARCHAR(255) NOT NULL," +
+                "  port          INT          NOT NULL," +
+                "  registered_at TIMESTAMP    DEFAULT CURRENT_TIMESTAMP NOT NULL" +
+                ")"
+            );
+
+            System.out.println("[DB] CLUSTER_NODES table ready.");
+
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to initialise cluster nodes: " + e.getMessage(), e);
+        }
+    }
+
+
+    // Commands
+
+    /** Registers this node, replacing any earlier registration under the same id. */
+    public void register(String nodeId, InetSocketAddress address) {
+        String sql = "MERGE INTO CLUSTER_NODES (node_id, host, port, registered_at) KEY (node_id)" +
+                     " VALUES (?, ?, ?, CURRENT_TIMESTAMP)";
+
+        try (Connection        conn = getConnection();
+             PreparedStatement ps   = conn.prepareStatement(sql)) {
+
+            ps.setString(1, nodeId);
+            ps.setString(2, address.getHostString());
+            ps.setInt(3, address.getPort());
+            ps.executeUpdate();
+
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to register cluster node " + nodeId + ": " + e.getMessage(), e);
+        }
+    }
+
+    public void deregister(String nodeId) {
+        try (Connection        conn = getConnection();
+             PreparedStatement ps   = conn.prepareStatement("DELETE FROM CLUSTER_NODES WHERE node_id = ?")) {
+
+            ps.setString(1, nodeId);
+            ps.executeUpdate();
+
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to deregister cluster node " + nodeId + ": " + e.getMessage(), e);
+        }
+    }
+
+
+    // Query methods
+
+    /**
+     * Returns the notification addresses of every registered node other than {@code nodeId}.
+     */
+    public List<InetSocketAddress> findPeers(String nodeId) {
+        List<InetSocketAddress> peers = new ArrayList<>();
+        String sql = "SELECT host, port FROM CLUSTER_NODES WHERE node_id <> ?";
+
+        try (Connection        conn = getConnection();
+             PreparedStatement ps   = conn.prepareStatement(sql)) {
+
+            ps.setString(1, nodeId);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    peers.add(new InetSocketAddress(rs.getString("host"), rs.getInt("port")));
+                }
+            }
+
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to fetch cluster peers: " + e.getMessage(), e);
+        }
+
+        return peers;
+    }
+
+
+    // Helpers
+
+    private Connection getConnection() throws SQLException {
+        return DriverManager.getConnection(dbUrl, DB_USER, DB_PASS);
+    }
+}
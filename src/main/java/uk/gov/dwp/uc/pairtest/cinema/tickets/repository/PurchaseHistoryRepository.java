@@ -0,0 +1,203 @@
+package uk.gov.dwp.uc.pairtest.cinema.tickets.repository;
+
+import uk.gov.dwp.uc.pairtest.cinema.tickets.domain.PurchaseHistoryEntry;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.domain.PurchaseOrder;
+
+import java.sql.*;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ * Keeps every completed purchase in the PURCHASE_HISTORY table, for looking up an account's
+ * bookings.
+ *
+ * <p>Pages are read newest first with keyset pagination: each page continues from the
+ * (purchased_at, id) of the last row of the one before, which the account/time index finds
+ * directly. Unlike OFFSET nothing is read and thrown away, so a late page costs the same as
+ * the first however many bookings an account has.</p>
+ */
+public class PurchaseHistoryRepository {
+
+    private static final String DB_USER = "sa";
+    private static final String DB_PASS = "";
+
+    // account_id is fixed by the WHERE clause, but H2 only reads rows in index order, stopping at the
+    // LIMIT, when the ORDER BY names every leading column of the index
+    private static final String PAGE_ORDER = " ORDER BY account_id, purchased_at DESC, id DESC LIMIT ?";
+
+    private static final String COLUMNS =
+        "id, account_id, adult_count, child_count, infant_count, total_amount, total_seats, purchased_at";
+
+    private final String dbUrl;
+
+    public PurchaseHistoryRepository(String dbUrl) {
+        this(dbUrl, true);
+    }
+
+    /**
+     * @param initialise whether to create PURCHASE_HISTORY now; if {@code false},
+     *                   {@link #initialise()} must be called before it is used
+     */
+    public PurchaseHistoryRepository(String dbUrl, boolean initialise) {
+        this.dbUrl = dbUrl;
+        if (initialise) {
+            initialise();
+        }
+    }
+
+
+    // Initialisation
+
+
+    /**
+     * Creates PURCHASE_HISTORY and its indexes if they do not exist.
+     */
+    public void initialise() {
+        try (Connection conn = getConnection();
+             Statement  stmt = conn.createStatement()) {
+
+            stmt.execute(
+                "CREATE TABLE IF NOT EXISTS PURCHASE_HISTORY (" +
+                "  id           BIGINT AUTO_INCREMENT PRIMARY KEY," +
+                "  account_id   BIGINT NOT NULL," +
+                "  adult_count  INT    NOT NULL," +
+                "  child_count  INT    NOT NULL," +
+                "  infant_count INT    NOT NULL," +
+                "  total_amount INT    NOT NULL," +
+                "  total_seats  INT    NOT NULL," +
+                "  purchased_at TIMESTAMP WITH TIME ZONE NOT NULL" +
+                ")"
+            );
+            // Serves the account lookup in page order; the time index serves reporting by date
+            stmt.execute("CREATE INDEX IF NOT EXISTS IDX_PURCHASE_HISTORY_ACCOUNT" +
+                         " ON PURCHASE_HISTORY (account_id, purchased_at DESC, id DESC)");
+            stmt.execute("CREATE INDEX IF NOT EXISTS IDX_PURCHASE_HISTORY_TIME ON PURCHASE_HISTORY (purchased_at)");
+
+            System.out.println("[DB] PURCHASE_HISTORY table ready.");
+
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to initialise purchase history: " + e.getMessage(), e);
+        }
+    }
+
+
+    // Commands
+
+    /**
+     * Stores the entries as one JDBC batch in a single transaction. Their purchase ids are
+     * ignored and assigned afresh.
+     */
+    public void insertAll(List<PurchaseHistoryEntry> entries) {
+        String sql = "INSERT INTO PURCHASE_HISTORY " +
+                     "(account_id, adult_count, child_count, infant_count, total_amount, total_seats, purchased_at)" +
+                     " VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+        try (Connection conn = getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                for (PurchaseHistoryEntry entry : entries) {
+                    PurchaseOrder order = entry.getOrder();
+                    ps.setLong(1, order.getAccountId());
+                    ps.setInt(2, order.getAdultCount());
+                    ps.setInt(3, order.getChildCount());
+                    ps.setInt(4, order.getInfantCount());
+                    ps.setInt(5, order.getTotalAmount());
+                    ps.setInt(6, order.getTotalSeats());
+                    ps.setObject(7, utc(entry.getPurchasedAt()));
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+                conn.commit();
+
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to record purchase history: " + e.getMessage(), e);
+        }
+    }
+
+
+    // Query methods
+
+    /**
+     * Returns the account's newest purchases, up to {@code limit}.
+     */
+    public List<PurchaseHistoryEntry> findByAccount(long accountId, int limit) {
+        String sql = "SELECT " + COLUMNS + " FROM PURCHASE_HISTORY WHERE account_id = ?" +
+                     PAGE_ORDER;
+
+        try (Connection        conn = getConnection();
+             PreparedStatement ps   = conn.prepareStatement(sql)) {
+
+            ps.setLong(1, accountId);
+            ps.setInt(2, limit);
+            return toEntries(ps);
+
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to fetch purchases for account " + accountId + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Returns up to {@code limit} of the account's purchases that come after the given one in
+     * newest-first order, i.e. made before {@code purchasedAt}, or at it with a lower id.
+     */
+    public List<PurchaseHistoryEntry> findByAccountBefore(long accountId, Instant purchasedAt, long purchaseId, int limit) {
+        // The leading range on purchased_at lets the index seek straight to the page
+        String sql = "SELECT " + COLUMNS + " FROM PURCHASE_HISTORY" +
+                     " WHERE account_id = ? AND purchased_at <= ? AND (purchased_at < ? OR id < ?)" +
+                     PAGE_ORDER;
+
+        try (Connection        conn = getConnection();
+             PreparedStatement ps   = conn.prepareStatement(sql)) {
+
+            OffsetDateTime at = utc(purchasedAt);
+            ps.setLong(1, accountId);
+            ps.setObject(2, at);
+            ps.setObject(3, at);
+            ps.setLong(4, purchaseId);
+            ps.setInt(5, limit);
+            return toEntries(ps);
+
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to fetch purchases for account " + accountId + ": " + e.getMessage(), e);
+        }
+    }
+
+
+    // Helpers
+
+    private static List<PurchaseHistoryEntry> toEntries(PreparedStatement ps) throws SQLException {
+        List<PurchaseHistoryEntry> entries = new ArrayList<>();
+        try (ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                PurchaseOrder order = new PurchaseOrder(
+                    rs.getLong("account_id"),
+                    rs.getInt("adult_count"),
+                    rs.getInt("child_count"),
+                    rs.getInt("infant_count"),
+                    rs.getInt("total_amount"),
+                    rs.getInt("total_seats")
+                );
+                Instant purchasedAt = rs.getObject("purchased_at", OffsetDateTime.class).toInstant();
+                entries.add(new PurchaseHistoryEntry(rs.getLong("id"), order, purchasedAt));
+            }
+        }
+        return entries;
+    }
+
+    private static OffsetDateTime utc(Instant instant) {
+        return instant.atOffset(ZoneOffset.UTC);
+    }
+
+    private Connection getConnection() throws SQLException {
+        return DriverManager.getConnection(dbUrl, DB_USER, DB_PASS);
+    }
+}
@@ -0,0 +1,251 @@
+package uk.gov.dwp.uc.pairtest.cinema.tickets.repository;
+
+import uk.gov.dwp.uc.pairtest.cinema.tickets.domain.OutboxEntry;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.domain.OutboxEntry.Status;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.domain.PurchaseOrder;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+
+/**
+ * Stores validated purchases in the PURCHASE_OUTBOX table until they have been dispatched
+ * to the payment gateway and the seat reservation service.
+ *
+ * <p>The payment step is recorded separately from completion, so a purchase interrupted
+ * between taking payment and reserving seats resumes at the seat reservation instead of
+ * charging the account again.</p>
+ *
+ * <p>Each purchase is stamped with the node that accepted it, and {@link #findPending} only
+ * returns the node's own, so instances sharing one store never dispatch a purchase twice. A
+ * node keeps its name across restarts to pick up what it left behind.</p>
+ */
+public class PurchaseOutboxRepository {
+
+    private static final String DEFAULT_DB_URL = "jdbc:h2:mem:ticketdb;DB_CLOSE_DELAY=-1";
+    private static final String DB_USER = "sa";
+    private static final String DB_PASS = "";
+
+    /** Node name used when only one instance dispatches from the store. */
+    public static final String DEFAULT_NODE = "local";
+
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private final String dbUrl;
+    private final String node;
+
+    public PurchaseOutboxRepository() {
+        this(DEFAULT_DB_URL);
+    }
+
+    public PurchaseOutboxRepository(String dbUrl) {
+        this(dbUrl, DEFAULT_NODE);
+    }
+
+    public PurchaseOutboxRepository(String dbUrl, String node) {
+        this.dbUrl = dbUrl;
+        this.node  = node;
+        initDatabase();
+    }
+
+
+    // Initialisation
+
+
+    private void initDatabase() {
+        try (Connection conn = getConnection();
+             Statement  stmt = conn.createStatement()) {
+
+            stmt.execute(
+                "CREATE TABLE IF NOT EXISTS PURCHASE_OUTBOX (" +
+                "  id            BIGINT AUTO_INCREMENT PRIMARY KEY," +
+                "  node          VARCHAR(100) NOT NULL," +
+                "  account_id    BIGINT       NOT NULL," +
+                "  adult_count   INT          NOT NULL," +
+                "  child_count   INT          NOT NULL," +
+                "  infant_count  INT          NOT NULL," +
+                "  total_amount  INT          NOT NULL," +
+                "  total_seats   INT          NOT NULL," +
+                "  status        VARCHAR(10)  NOT NULL," +
+                "  payment_taken BOOLEAN      NOT NULL," +
+                "  attempts      INT          NOT NULL," +
+                "  last_error    VARCHAR(" + MAX_ERROR_LENGTH + ")," +
+                "  created_at    TIMESTAMP    DEFAULT CURRENT_TIMESTAMP NOT NULL," +
+                "  updated_at    TIMESTAMP    DEFAULT CURRENT_TIMESTAMP NOT NULL" +
+                ")"
+            );
+            stmt.execute("CREATE INDEX IF NOT EXISTS IDX_PURCHASE_OUTBOX_NODE_STATUS ON PURCHASE_OUTBOX (node, status, id)");
+
+            System.out.println("[DB] PURCHASE_OUTBOX table ready.");
+
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to initialise purchase outbox: " + e.getMessage(), e);
+        }
+    }
+
+
+    // Commands
+
+    /**
+     * Records a validated purchase as PENDING in a single transaction.
+     *
+     * @return the purchase id the client can poll for completion
+     */
+    public long enqueue(PurchaseOrder order) {
+        String sql = "INSERT INTO PURCHASE_OUTBOX " +
+                     "(node, account_id, adult_count, child_count, infant_count, total_amount, total_seats, " +
+                     " status, payment_taken, attempts) VALUES (?, ?, ?, ?, ?, ?, ?, ?, FALSE, 0)";
+
+        try (Connection conn = getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement ps = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+                ps.setString(1, node);
+                ps.setLong(2, order.getAccountId());
+                ps.setInt(3, order.getAdultCount());
+                ps.setInt(4, order.getChildCount());
+                ps.setInt(5, order.getInfantCount());
+                ps.setInt(6, order.getTotalAmount());
+                ps.setInt(7, order.getTotalSeats());
+                ps.setString(8, Status.PENDING.name());
+                ps.executeUpdate();
+
+                long id;
+                try (ResultSet keys = ps.getGeneratedKeys()) {
+                    keys.next();
+                    id = keys.getLong(1);
+                }
+                conn.commit();
+                return id;
+
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to record purchase in outbox: " + e.getMessage(), e);
+        }
+    }
+
+    /** Records that the payment for this purchase has been taken. */
+    public void markPaymentTaken(long purchaseId) {
+        update("UPDATE PURCHASE_OUTBOX SET payment_taken = TRUE, updated_at = CURRENT_TIMESTAMP WHERE id = ?",
+               purchaseId);
+    }
+
+    /** Records that both payment and seat reservation have succeeded. */
+    public void markCompleted(long purchaseId) {
+        update("UPDATE PURCHASE_OUTBOX SET status = '" + Status.COMPLETED.name() + "', last_error = NULL," +
+               " updated_at = CURRENT_TIMESTAMP WHERE id = ?", purchaseId);
+    }
+
+    /**
+     * Records a failed dispatch attempt. The purchase stays PENDING for another attempt
+     * unless {@code giveUp} is set, in which case it is marked FAILED.
+     */
+    public void recordFailedAttempt(long purchaseId, String error, boolean giveUp) {
+        String sql = "UPDATE PURCHASE_OUTBOX SET attempts = attempts + 1, last_error = ?, status = ?," +
+                     " updated_at = CURRENT_TIMESTAMP WHERE id = ?";
+        try (Connection conn = getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+
+            ps.setString(1, truncate(error));
+            ps.setString(2, (giveUp ? Status.FAILED : Status.PENDING).name());
+            ps.setLong(3, purchaseId);
+            ps.executeUpdate();
+
+        } catch (SQLException e) {
+            throw new RuntimeException(
+                "Failed to record dispatch attempt for purchase " + purchaseId + ": " + e.getMessage(), e);
+        }
+    }
+
+
+    // Query methods
+
+    public Optional<OutboxEntry> findById(long purchaseId) {
+        String sql = "SELECT * FROM PURCHASE_OUTBOX WHERE id = ?";
+        try (Connection conn = getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+
+            ps.setLong(1, purchaseId);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? Optional.of(toEntry(rs)) : Optional.empty();
+            }
+
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to fetch purchase " + purchaseId + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Returns up to {@code limit} of this node's PENDING purchases, oldest first.
+     */
+    public List<OutboxEntry> findPending(int limit) {
+        List<OutboxEntry> pending = new ArrayList<>();
+        String sql = "SELECT * FROM PURCHASE_OUTBOX WHERE node = ? AND status = ? ORDER BY id LIMIT ?";
+
+        try (Connection conn = getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+
+            ps.setString(1, node);
+            ps.setString(2, Status.PENDING.name());
+            ps.setInt(3, limit);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    pending.add(toEntry(rs));
+                }
+            }
+
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to fetch pending purchases: " + e.getMessage(), e);
+        }
+
+        return pending;
+    }
+
+
+    // Helpers
+
+    private void update(String sql, long purchaseId) {
+        try (Connection conn = getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+
+            ps.setLong(1, purchaseId);
+            ps.executeUpdate();
+
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to update purchase " + purchaseId + ": " + e.getMessage(), e);
+        }
+    }
+
+    private OutboxEntry toEntry(ResultSet rs) throws SQLException {
+        PurchaseOrder order = new PurchaseOrder(
+            rs.getLong("account_id"),
+            rs.getInt("adult_count"),
+            rs.getInt("child_count"),
+            rs.getInt("infant_count"),
+            rs.getInt("total_amount"),
+            rs.getInt("total_seats")
+        );
+        return new OutboxEntry(
+            rs.getLong("id"),
+            order,
+            Status.valueOf(rs.getString("status")),
+            rs.getBoolean("payment_taken"),
+            rs.getInt("attempts"),
+            rs.getString("last_error")
+        );
+    }
+
+    private static String truncate(String error) {
+        if (error == null || error.length() <= MAX_ERROR_LENGTH) return error;
+        return error.substring(0, MAX_ERROR_LENGTH);
+    }
+
+    private Connection getConnection() throws SQLException {
+        return DriverManager.getConnection(dbUrl, DB_USER, DB_PASS);
+    }
+}
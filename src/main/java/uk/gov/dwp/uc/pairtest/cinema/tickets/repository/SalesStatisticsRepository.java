@@ -0,0 +1,199 @@
+package uk.gov.dwp.uc.pairtest.cinema.tickets.repository;
+
+import java.sql.*;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.Map;
+
+
+/**
+ * Persists one node's sales counters: running totals in SALES_TOTALS and per-minute figures in
+ * SALES_MINUTES, one row per node and counter.
+ *
+ * <p>Both tables are only ever added to, never overwritten. Instances sharing a store each keep
+ * their own rows, and a restarted instance carries on from its own stored totals; a figure for
+ * the whole cluster is the sum over nodes.</p>
+ */
+public class SalesStatisticsRepository {
+
+    private static final String DB_USER = "sa";
+    private static final String DB_PASS = "";
+
+    /** Node name used when only one instance keeps statistics in the store. */
+    public static final String DEFAULT_NODE = "local";
+
+    private final String dbUrl;
+    private final String node;
+
+    public SalesStatisticsRepository(String dbUrl) {
+        this(dbUrl, DEFAULT_NODE, true);
+    }
+
+    /**
+     * @param node       the instance whose counters are read and written
+     * @param initialise whether to create the tables now; if {@code false},
+     *                   {@link #initialise()} must be called before they are used
+     */
+    public SalesStatisticsRepository(String dbUrl, String node, boolean initialise) {
+        this.dbUrl = dbUrl;
+        this.node  = node;
+        if (initialise) {
+            initialise();
+        }
+    }
+
+
+    // Initialisation
+
+
+    /**
+     * Creates SALES_TOTALS and SALES_MINUTES if they do not exist.
+     */
+    public void initialise() {
+        try (Connection conn = getConnection();
+             Statement  stmt = conn.createStatement()) {
+
+            stmt.execute(
+                "CREATE TABLE IF NOT EXISTS SALES_TOTALS (" +
+                "  node    VARCHAR(100) NOT NULL," +
+                "  counter VARCHAR(64)  NOT NULL," +
+                "  amount  BIGINT       NOT NULL," +
+                "  PRIMARY KEY (node, counter)" +
+                ")"
+            );
+            stmt.execute(
+                "CREATE TABLE IF NOT EXISTS SALES_MINUTES (" +
+                "  node         VARCHAR(100)             NOT NULL," +
+                "  minute_start TIMESTAMP WITH TIME ZONE NOT NULL," +
+                "  counter      VARCHAR(64)              NOT NULL," +
+                "  amount       BIGINT                   NOT NULL," +
+                "  PRIMARY KEY (node, minute_start, counter)" +
+                ")"
+            );
+
+            System.out.println("[DB] SALES_TOTALS and SALES_MINUTES tables ready.");
+
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to initialise sales statistics: " + e.getMessage(), e);
+        }
+    }
+
+
+    // Commands
+
+    /**
+     * Adds the given counts to this node's stored totals and per-minute figures in one transaction.
+     * Zero counts are skipped.
+     *
+     * @param totals  counter name to amount to add
+     * @param minutes start of each minute to its counter name to amount to add
+     */
+    public void add(Map<String, Long> totals, Map<Instant, Map<String, Long>> minutes) {
+        String addTotal =
+            "MERGE INTO SALES_TOTALS t USING (VALUES (CAST(? AS VARCHAR(100)), CAST(? AS VARCHAR(64))," +
+            " CAST(? AS BIGINT))) s (node, counter, amount)" +
+            " ON t.node = s.node AND t.counter = s.counter" +
+            " WHEN MATCHED THEN UPDATE SET amount = t.amount + s.amount" +
+            " WHEN NOT MATCHED THEN INSERT (node, counter, amount) VALUES (s.node, s.counter, s.amount)";
+        String addMinute =
+            "MERGE INTO SALES_MINUTES t USING (VALUES (CAST(? AS VARCHAR(100)), CAST(? AS TIMESTAMP WITH TIME ZONE)," +
+            " CAST(? AS VARCHAR(64)), CAST(? AS BIGINT))) s (node, minute_start, counter, amount)" +
+            " ON t.node = s.node AND t.minute_start = s.minute_start AND t.counter = s.counter" +
+            " WHEN MATCHED THEN UPDATE SET amount = t.amount + s.amount" +
+            " WHEN NOT MATCHED THEN INSERT (node, minute_start, counter, amount)" +
+            " VALUES (s.node, s.minute_start, s.counter, s.amount)";
+
+        try (Connection conn = getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement totalsPs  = conn.prepareStatement(addTotal);
+                 PreparedStatement minutesPs = conn.prepareStatement(addMinute)) {
+
+                for (Map.Entry<String, Long> total : totals.entrySet()) {
+                    if (total.getValue() != 0) {
+                        totalsPs.setString(1, node);
+                        totalsPs.setString(2, total.getKey());
+                        totalsPs.setLong(3, total.getValue());
+                        totalsPs.addBatch();
+                    }
+                }
+                for (Map.Entry<Instant, Map<String, Long>> minute : minutes.entrySet()) {
+                    for (Map.Entry<String, Long> counter : minute.getValue().entrySet()) {
+                        if (counter.getValue() != 0) {
+                            minutesPs.setString(1, node);
+                            minutesPs.setObject(2, minute.getKey().atOffset(ZoneOffset.UTC));
+                            minutesPs.setString(3, counter.getKey());
+                            minutesPs.setLong(4, counter.getValue());
+                            minutesPs.addBatch();
+                        }
+                    }
+                }
+                totalsPs.executeBatch();
+                minutesPs.executeBatch();
+                conn.commit();
+
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to save sales statistics: " + e.getMessage(), e);
+        }
+    }
+
+
+    // Query methods
+
+    /** Returns this node's stored totals by counter name. */
+    public Map<String, Long> findTotals() {
+        Map<String, Long> totals = new HashMap<>();
+        String sql = "SELECT counter, amount FROM SALES_TOTALS WHERE node = ?";
+
+        try (Connection        conn = getConnection();
+             PreparedStatement ps   = conn.prepareStatement(sql)) {
+
+            ps.setString(1, node);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    totals.put(rs.getString("counter"), rs.getLong("amount"));
+                }
+            }
+
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to fetch sales totals: " + e.getMessage(), e);
+        }
+
+        return totals;
+    }
+
+    /** Returns this node's stored figures for the minute starting at {@code minuteStart}, by counter name. */
+    public Map<String, Long> findMinute(Instant minuteStart) {
+        Map<String, Long> counters = new HashMap<>();
+        String sql = "SELECT counter, amount FROM SALES_MINUTES WHERE node = ? AND minute_start = ?";
+
+        try (Connection        conn = getConnection();
+             PreparedStatement ps   = conn.prepareStatement(sql)) {
+
+            ps.setString(1, node);
+            ps.setObject(2, minuteStart.atOffset(ZoneOffset.UTC));
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    counters.put(rs.getString("counter"), rs.getLong("amount"));
+                }
+            }
+
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to fetch sales for minute " + minuteStart + ": " + e.getMessage(), e);
+        }
+
+        return counters;
+    }
+
+
+    // Helpers
+
+    private Connection getConnection() throws SQLException {
+        return DriverManager.getConnection(dbUrl, DB_USER, DB_PASS);
+    }
+}
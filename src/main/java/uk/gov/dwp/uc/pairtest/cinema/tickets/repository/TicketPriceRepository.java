@@ -1,20 +1,95 @@
 package uk.gov.dwp.uc.pairtest.cinema.tickets.repository;
 
+import uk.gov.dwp.uc.pairtest.cinema.tickets.domain.PriceScheduleEntry;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.domain.Screening;
 import uk.gov.dwp.uc.pairtest.cinema.tickets.domain.TicketPrice;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.domain.TicketTypeRequest.Type;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.pricing.PriceSchedule;
 
 import java.sql.*;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 
+/**
+ * Ticket prices backed by the TICKET_PRICES table, with time-windowed overrides for the site, an
+ * auditorium or a screening in PRICE_SCHEDULES, and the screenings on sale in SCREENINGS.
+ *
+ * <p>A purchase names only its screening's id; the auditorium and start time that decide its
+ * price are looked up here, so a buyer cannot choose them.</p>
+ *
+ * <p>All three are loaded into one immutable in-memory snapshot at start-up, the schedules as a
+ * {@link PriceSchedule} index, so price reads on the purchase path and the prices endpoint
+ * never touch the database. Call {@link #refresh()} after any of the tables changes; the update
+ * methods here do so themselves and then tell the change listeners, which in cluster mode
+ * notify the other instances. Refreshes run one at a time and read the three tables in one
+ * transaction, so a slow refresh can never replace a newer snapshot with an older one.</p>
+ *
+ * <p>By default the table lives in a private in-memory database. Instances given the same
+ * server-mode URL share one price store.</p>
+ */
 public class TicketPriceRepository {
 
-    private static final String DB_URL  = "jdbc:h2:mem:ticketdb;DB_CLOSE_DELAY=-1";
+    public static final String DEFAULT_DB_URL = "jdbc:h2:mem:ticketdb;DB_CLOSE_DELAY=-1";
+
     private static final String DB_USER = "sa";
     private static final String DB_PASS = "";
 
+    private static final String DUPLICATE_KEY_STATE = "23505";
+
+    private final String         dbUrl;
+    private final List<Runnable> changeListeners = new CopyOnWriteArrayList<>();
+
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+
+    // The three tables as read together by one refresh
+    private static final class Snapshot {
+        static final Snapshot EMPTY = new Snapshot(Collections.emptyMap(), PriceSchedule.empty(), Collections.emptyMap());
+
+        final Map<String, TicketPrice> prices;     // keyed by ticket type, in id order
+        final PriceSchedule            schedule;
+        final Map<String, Screening>   screenings; // keyed by screening id, in start order
+
+        Snapshot(Map<String, TicketPrice> prices, PriceSchedule schedule, Map<String, Screening> screenings) {
+            this.prices     = prices;
+            this.schedule   = schedule;
+            this.screenings = screenings;
+        }
+    }
+
     public TicketPriceRepository() {
+        this(true);
+    }
+
+    /**
+     * @param initialise whether to create, seed and load TICKET_PRICES now; if {@code false},
+     *                   {@link #initialise()} must be called before prices are read
+     */
+    public TicketPriceRepository(boolean initialise) {
+        this(DEFAULT_DB_URL, initialise);
+    }
+
+    public TicketPriceRepository(String dbUrl, boolean initialise) {
+        this.dbUrl = dbUrl;
+        if (initialise) {
+            initialise();
+        }
+    }
+
+    /**
+     * Creates and seeds TICKET_PRICES and creates PRICE_SCHEDULES and SCREENINGS if needed, then
+     * loads the in-memory prices.
+     */
+    public void initialise() {
         initDatabase();
+        refresh();
     }
 
    
@@ -41,20 +116,54 @@ public class TicketPriceRepository {
                 }
             }
 
-            System.out.println("[DB] TICKET_PRICES table ready.");
+            stmt.execute(
+                "CREATE TABLE IF NOT EXISTS PRICE_SCHEDULES (" +
+                "  id           BIGINT AUTO_INCREMENT PRIMARY KEY," +
+                "  ticket_type  VARCHAR(10) NOT NULL REFERENCES TICKET_PRICES (ticket_type)," +
+                "  screening_id VARCHAR(64)," +
+                "  auditorium   VARCHAR(64)," +
+                "  starts_at    TIMESTAMP WITH TIME ZONE NOT NULL," +
+                "  ends_at      TIMESTAMP WITH TIME ZONE NOT NULL," +
+                "  price        INT         NOT NULL," +
+                "  CHECK (ends_at > starts_at)," +
+                "  CHECK (screening_id IS NULL OR auditorium IS NULL)" +
+                ")"
+            );
+
+            stmt.execute(
+                "CREATE TABLE IF NOT EXISTS SCREENINGS (" +
+                "  screening_id VARCHAR(64) PRIMARY KEY," +
+                "  auditorium   VARCHAR(64)," +
+                "  starts_at    TIMESTAMP WITH TIME ZONE NOT NULL" +
+                ")"
+            );
+
+            System.out.println("[DB] TICKET_PRICES, PRICE_SCHEDULES and SCREENINGS tables ready.");
 
         } catch (SQLException e) {
             throw new RuntimeException("Failed to initialise ticket price database: " + e.getMessage(), e);
         }
     }
 
+    // Seeds in one transaction, so an instance starting alongside this one against a shared store
+    // either sees every default price or fails on the duplicate key and keeps the ones it finds
     private void seedPrices(Connection conn) throws SQLException {
         String sql = "INSERT INTO TICKET_PRICES (ticket_type, price, requires_seat) VALUES (?, ?, ?)";
+        conn.setAutoCommit(false);
         try (PreparedStatement ps = conn.prepareStatement(sql)) {
             insertPrice(ps, "ADULT",  25, true);
             insertPrice(ps, "CHILD",  15, true);
             insertPrice(ps, "INFANT",  0, false);
+            conn.commit();
             System.out.println("[DB] Seeded default ticket prices.");
+        } catch (SQLException e) {
+            conn.rollback();
+            if (!DUPLICATE_KEY_STATE.equals(e.getSQLState())) {
+                throw e;
+            }
+            System.out.println("[DB] Default ticket prices already seeded by another instance.");
+        } finally {
+            conn.setAutoCommit(true);
         }
     }
 
@@ -72,57 +181,291 @@ public class TicketPriceRepository {
     /**
      * Returns the price in GBP for the given ticket type 
      *
-     * @throws RuntimeException if the type is not found or a DB error occurs
+     * @throws RuntimeException if the type is not found
      */
     public int getPriceByType(String ticketType) {
-        String sql = "SELECT price FROM TICKET_PRICES WHERE ticket_type = ?";
-        try (Connection conn = getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
+        return priceByType(snapshot, ticketType);
+    }
 
-            ps.setString(1, ticketType.toUpperCase());
-            try (ResultSet rs = ps.executeQuery()) {
-                if (rs.next()) {
-                    return rs.getInt("price");
-                }
-            }
+    private static int priceByType(Snapshot current, String ticketType) {
+        Map<String, TicketPrice> prices = current.prices;
+        TicketPrice price = prices.get(ticketType);
+        if (price == null) {
+            price = prices.get(ticketType.toUpperCase(Locale.ROOT));
+        }
+        if (price == null) {
             throw new RuntimeException("Unknown ticket type: " + ticketType);
-
-        } catch (SQLException e) {
-            throw new RuntimeException(
-                "Failed to fetch price for ticket type '" + ticketType + "': " + e.getMessage(), e);
         }
+        return price.getPrice();
+    }
+
+    /**
+     * Returns the price in GBP of a ticket of the given type at {@code epochMillis}: the
+     * scheduled price for the screening, else for its auditorium, else for the site, and
+     * failing those the standing price. Served from memory, without allocating.
+     *
+     * @param screeningId the screening, or {@code null}
+     * @param auditorium  the screening's auditorium, or {@code null}
+     */
+    public int getPrice(Type type, String screeningId, String auditorium, long epochMillis) {
+        Snapshot current = snapshot;
+        int price = current.schedule.priceAt(type, screeningId, auditorium, epochMillis);
+        return price != PriceSchedule.NO_PRICE ? price : priceByType(current, type.name());
     }
 
     /**
      * Returns all ticket price records ordered by id.
      */
     public List<TicketPrice> getAllPrices() {
-        List<TicketPrice> prices = new ArrayList<>();
-        String sql = "SELECT ticket_type, price, requires_seat FROM TICKET_PRICES ORDER BY id";
+        return new ArrayList<>(snapshot.prices.values());
+    }
+
+    /**
+     * Sets the price of a ticket type, reloads the in-memory prices and tells the change listeners.
+     *
+     * @throws RuntimeException if the type is not found
+     */
+    public void updatePrice(String ticketType, int price) {
+        String sql = "UPDATE TICKET_PRICES SET price = ? WHERE ticket_type = ?";
+
+        try (Connection        conn = getConnection();
+             PreparedStatement ps   = conn.prepareStatement(sql)) {
+
+            ps.setInt(1, price);
+            ps.setString(2, ticketType.toUpperCase(Locale.ROOT));
+            if (ps.executeUpdate() == 0) {
+                throw new RuntimeException("Unknown ticket type: " + ticketType);
+            }
+
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to update ticket price: " + e.getMessage(), e);
+        }
+
+        changed();
+    }
+
+    /**
+     * Returns every price schedule entry ordered by id.
+     */
+    public List<PriceScheduleEntry> getSchedules() {
+        return snapshot.schedule.getEntries();
+    }
+
+    /**
+     * Stores a price schedule entry, reloads the in-memory prices and tells the change listeners.
+     * Where its window overlaps another in the same scope, this one wins.
+     *
+     * @return the stored entry, with its id
+     */
+    public PriceScheduleEntry addSchedule(PriceScheduleEntry entry) {
+        String sql = "INSERT INTO PRICE_SCHEDULES (ticket_type, screening_id, auditorium, starts_at, ends_at, price)" +
+                     " VALUES (?, ?, ?, ?, ?, ?)";
+        long id;
+
+        try (Connection        conn = getConnection();
+             PreparedStatement ps   = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+
+            ps.setString(1, entry.getTicketType().name());
+            ps.setString(2, entry.getScreeningId());
+            ps.setString(3, entry.getAuditorium());
+            ps.setObject(4, entry.getStartsAt().atOffset(ZoneOffset.UTC));
+            ps.setObject(5, entry.getEndsAt().atOffset(ZoneOffset.UTC));
+            ps.setInt(6, entry.getPrice());
+            ps.executeUpdate();
+
+            try (ResultSet keys = ps.getGeneratedKeys()) {
+                keys.next();
+                id = keys.getLong(1);
+            }
+
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to add price schedule: " + e.getMessage(), e);
+        }
+
+        changed();
+        return new PriceScheduleEntry(id, entry.getTicketType(), entry.getScreeningId(), entry.getAuditorium(),
+                                      entry.getStartsAt(), entry.getEndsAt(), entry.getPrice());
+    }
+
+    /**
+     * Deletes a price schedule entry, reloads the in-memory prices and tells the change listeners.
+     *
+     * @return {@code false} if there was no such entry
+     */
+    public boolean deleteSchedule(long id) {
+        try (Connection        conn = getConnection();
+             PreparedStatement ps   = conn.prepareStatement("DELETE FROM PRICE_SCHEDULES WHERE id = ?")) {
+
+            ps.setLong(1, id);
+            if (ps.executeUpdate() == 0) {
+                return false;
+            }
+
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to delete price schedule " + id + ": " + e.getMessage(), e);
+        }
+
+        changed();
+        return true;
+    }
+
+    /**
+     * Returns the screening with the given id, or {@code null} if none is on sale. Served from memory.
+     */
+    public Screening findScreening(String screeningId) {
+        return snapshot.screenings.get(screeningId);
+    }
+
+    /**
+     * Returns every screening ordered by start time.
+     */
+    public List<Screening> getScreenings() {
+        return new ArrayList<>(snapshot.screenings.values());
+    }
+
+    /**
+     * Stores a screening, reloads the in-memory prices and tells the change listeners.
+     *
+     * @return {@code false} if a screening with its id already exists
+     * @throws IllegalArgumentException if the screening has no id
+     */
+    public boolean addScreening(Screening screening) {
+        if (screening.getScreeningId() == null) {
+            throw new IllegalArgumentException("A screening on sale must have an id");
+        }
+        String sql = "INSERT INTO SCREENINGS (screening_id, auditorium, starts_at) VALUES (?, ?, ?)";
+
+        try (Connection        conn = getConnection();
+             PreparedStatement ps   = conn.prepareStatement(sql)) {
+
+            ps.setString(1, screening.getScreeningId());
+            ps.setString(2, screening.getAuditorium());
+            ps.setObject(3, screening.getStartsAt().atOffset(ZoneOffset.UTC));
+            ps.executeUpdate();
+
+        } catch (SQLException e) {
+            if (DUPLICATE_KEY_STATE.equals(e.getSQLState())) {
+                return false;
+            }
+            throw new RuntimeException("Failed to add screening: " + e.getMessage(), e);
+        }
+
+        changed();
+        return true;
+    }
+
+    /**
+     * Deletes a screening, reloads the in-memory prices and tells the change listeners. Its price
+     * schedules are kept.
+     *
+     * @return {@code false} if there was no such screening
+     */
+    public boolean deleteScreening(String screeningId) {
+        try (Connection        conn = getConnection();
+             PreparedStatement ps   = conn.prepareStatement("DELETE FROM SCREENINGS WHERE screening_id = ?")) {
+
+            ps.setString(1, screeningId);
+            if (ps.executeUpdate() == 0) {
+                return false;
+            }
+
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to delete screening " + screeningId + ": " + e.getMessage(), e);
+        }
+
+        changed();
+        return true;
+    }
+
+    /**
+     * Registers a callback run after each price, schedule or screening change made through this instance.
+     */
+    public void addChangeListener(Runnable listener) {
+        changeListeners.add(listener);
+    }
+
+    public String getDbUrl() {
+        return dbUrl;
+    }
+
+    /**
+     * Reloads the in-memory prices from TICKET_PRICES, PRICE_SCHEDULES and SCREENINGS, read in
+     * one transaction and published together. Synchronized, so a change notice from the cluster
+     * and a local change cannot race and leave the older read in place.
+     */
+    public synchronized void refresh() {
+        Map<String, TicketPrice>  loaded    = new LinkedHashMap<>();
+        List<PriceScheduleEntry>  schedules = new ArrayList<>();
+        Map<String, Screening>    showings  = new LinkedHashMap<>();
 
         try (Connection conn = getConnection();
-             Statement  stmt = conn.createStatement();
-             ResultSet  rs   = stmt.executeQuery(sql)) {
-
-            while (rs.next()) {
-                prices.add(new TicketPrice(
-                    rs.getString("ticket_type"),
-                    rs.getInt("price"),
-                    rs.getBoolean("requires_seat")
-                ));
+             Statement  stmt = conn.createStatement()) {
+
+            // One consistent view of all three tables, even while another instance is writing
+            conn.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+            conn.setAutoCommit(false);
+
+            try (ResultSet rs = stmt.executeQuery(
+                    "SELECT ticket_type, price, requires_seat FROM TICKET_PRICES ORDER BY id")) {
+                while (rs.next()) {
+                    TicketPrice price = new TicketPrice(
+                        rs.getString("ticket_type"),
+                        rs.getInt("price"),
+                        rs.getBoolean("requires_seat")
+                    );
+                    loaded.put(price.getTicketType(), price);
+                }
             }
 
+            try (ResultSet rs = stmt.executeQuery(
+                    "SELECT id, ticket_type, screening_id, auditorium, starts_at, ends_at, price" +
+                    " FROM PRICE_SCHEDULES ORDER BY id")) {
+                while (rs.next()) {
+                    schedules.add(new PriceScheduleEntry(
+                        rs.getLong("id"),
+                        Type.valueOf(rs.getString("ticket_type")),
+                        rs.getString("screening_id"),
+                        rs.getString("auditorium"),
+                        rs.getObject("starts_at", OffsetDateTime.class).toInstant(),
+                        rs.getObject("ends_at", OffsetDateTime.class).toInstant(),
+                        rs.getInt("price")
+                    ));
+                }
+            }
+
+            try (ResultSet rs = stmt.executeQuery(
+                    "SELECT screening_id, auditorium, starts_at FROM SCREENINGS ORDER BY starts_at, screening_id")) {
+                while (rs.next()) {
+                    Screening screening = new Screening(
+                        rs.getString("screening_id"),
+                        rs.getString("auditorium"),
+                        rs.getObject("starts_at", OffsetDateTime.class).toInstant()
+                    );
+                    showings.put(screening.getScreeningId(), screening);
+                }
+            }
+
+            conn.commit();
+
         } catch (SQLException e) {
             throw new RuntimeException("Failed to retrieve ticket prices: " + e.getMessage(), e);
         }
 
-        return prices;
+        snapshot = new Snapshot(Collections.unmodifiableMap(loaded), PriceSchedule.of(schedules),
+                                Collections.unmodifiableMap(showings));
     }
 
  
     // Helper
-  
+
+    private void changed() {
+        refresh();
+        for (Runnable listener : changeListeners) {
+            listener.run();
+        }
+    }
+
     private Connection getConnection() throws SQLException {
-        return DriverManager.getConnection(DB_URL, DB_USER, DB_PASS);
+        return DriverManager.getConnection(dbUrl, DB_USER, DB_PASS);
     }
 }
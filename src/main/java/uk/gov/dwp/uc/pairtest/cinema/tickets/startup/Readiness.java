@@ -0,0 +1,41 @@
+package uk.gov.dwp.uc.pairtest.cinema.tickets.startup;
+
+/**
+ * Whether the service can take traffic yet, as opposed to merely being alive.
+ *
+ * <p>In fast-startup mode the listener is bound before storage has finished initialising, so
+ * the process is live (it answers {@code /health/live}) but not ready: endpoints that need
+ * storage answer 503 and {@code /health/ready} reports {@code STARTING} until
+ * {@link #markReady()} is called.</p>
+ */
+public class Readiness {
+
+    private volatile boolean ready;
+
+    private Readiness(boolean ready) {
+        this.ready = ready;
+    }
+
+    /** Readiness that has to be signalled with {@link #markReady()}. */
+    public static Readiness starting() {
+        return new Readiness(false);
+    }
+
+    /** Readiness for a service whose storage was initialised before it started listening. */
+    public static Readiness ready() {
+        return new Readiness(true);
+    }
+
+    public void markReady() {
+        ready = true;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    @Override
+    public String toString() {
+        return ready ? "READY" : "STARTING";
+    }
+}
@@ -0,0 +1,49 @@
+package uk.gov.dwp.uc.pairtest.cinema.tickets.startup;
+
+import java.time.Instant;
+
+/**
+ * Logs how long each start-up phase takes, and how long after JVM launch the service became ready.
+ *
+ * <p>Phases may finish on different threads. Each is logged as it completes, e.g.
+ * {@code [Startup] storage  212 ms (storage-init)}.</p>
+ */
+public class StartupTimer {
+
+    private final long mainEnteredMillis = System.currentTimeMillis();
+    private final long mainEnteredNanos  = System.nanoTime();
+
+    /** Returns a start mark to pass to {@link #phase(String, long)}. */
+    public long start() {
+        return System.nanoTime();
+    }
+
+    /** Logs the phase as taking from {@code startNanos} until now. */
+    public void phase(String name, long startNanos) {
+        System.out.printf("[Startup] %-9s %5d ms (%s)%n",
+            name, (System.nanoTime() - startNanos) / 1_000_000, Thread.currentThread().getName());
+    }
+
+    /**
+     * Logs the time from JVM launch to now, split into JVM start-up (launch until {@code main})
+     * and the service's own start-up.
+     */
+    public void ready() {
+        long serviceMillis = (System.nanoTime() - mainEnteredNanos) / 1_000_000;
+        long jvmMillis     = jvmStartupMillis();
+        if (jvmMillis < 0) {
+            System.out.printf("[Startup] ready in %d ms after main%n", serviceMillis);
+        } else {
+            System.out.printf("[Startup] ready in %d ms after JVM launch (JVM %d ms, service %d ms)%n",
+                jvmMillis + serviceMillis, jvmMillis, serviceMillis);
+        }
+    }
+
+    // Launch time comes from the OS process table, so this avoids loading the management classes
+    private long jvmStartupMillis() {
+        return ProcessHandle.current().info().startInstant()
+                .map(Instant::toEpochMilli)
+                .map(launched -> Math.max(0, mainEnteredMillis - launched))
+                .orElse(-1L);
+    }
+}
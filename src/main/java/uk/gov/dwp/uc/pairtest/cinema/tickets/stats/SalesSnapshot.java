@@ -0,0 +1,107 @@
+package uk.gov.dwp.uc.pairtest.cinema.tickets.stats;
+
+import uk.gov.dwp.uc.pairtest.cinema.tickets.domain.TicketTypeRequest.Type;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.exception.InvalidPurchaseException.Reason;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Sales figures at one moment: purchases, tickets and revenue by ticket type, and rejections
+ * by reason, either in total or for a window of time.
+ */
+public final class SalesSnapshot {
+
+    private static final Type[]   TYPES   = Type.values();
+    private static final Reason[] REASONS = Reason.values();
+
+    // Counter layout, shared by the live counters, every snapshot and the persisted names
+    static final int PURCHASES = 0;
+    static final int TICKETS   = 1;                      // + type ordinal
+    static final int REVENUE   = TICKETS + TYPES.length; // + type ordinal
+    static final int REJECTED  = REVENUE + TYPES.length; // + reason ordinal
+    static final int COUNTERS  = REJECTED + REASONS.length;
+
+    private static final String[] NAMES = names();
+
+    private final long[] counters;
+
+    SalesSnapshot(long[] counters) {
+        this.counters = counters;
+    }
+
+    public long getPurchases()               { return counters[PURCHASES];                  }
+    public long getTickets(Type type)        { return counters[TICKETS + type.ordinal()];    }
+    public long getRevenue(Type type)        { return counters[REVENUE + type.ordinal()];    }
+    public long getRejections(Reason reason) { return counters[REJECTED + reason.ordinal()]; }
+
+    public long getTotalTickets()    { return sum(TICKETS, REVENUE);   }
+    public long getTotalRevenue()    { return sum(REVENUE, REJECTED);  }
+    public long getTotalRejections() { return sum(REJECTED, COUNTERS); }
+
+    /** Every counter by its persisted name, e.g. {@code tickets.ADULT} or {@code rejected.NO_TICKETS}. */
+    public Map<String, Long> toMap() {
+        Map<String, Long> map = new LinkedHashMap<>();
+        for (int i = 0; i < COUNTERS; i++) {
+            map.put(NAMES[i], counters[i]);
+        }
+        return map;
+    }
+
+    /** The reverse of {@link #toMap()}; unknown names are ignored and missing ones read as 0. */
+    public static SalesSnapshot fromMap(Map<String, Long> map) {
+        long[] counters = new long[COUNTERS];
+        for (int i = 0; i < COUNTERS; i++) {
+            counters[i] = map.getOrDefault(NAMES[i], 0L);
+        }
+        return new SalesSnapshot(counters);
+    }
+
+    long get(int counter) {
+        return counters[counter];
+    }
+
+    /** This snapshot less {@code earlier}, counter by counter. */
+    SalesSnapshot minus(SalesSnapshot earlier) {
+        long[] delta = new long[COUNTERS];
+        for (int i = 0; i < COUNTERS; i++) {
+            delta[i] = counters[i] - earlier.counters[i];
+        }
+        return new SalesSnapshot(delta);
+    }
+
+    boolean isEmpty() {
+        for (long counter : counters) {
+            if (counter != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private long sum(int from, int to) {
+        long total = 0;
+        for (int i = from; i < to; i++) {
+            total += counters[i];
+        }
+        return total;
+    }
+
+    private static String[] names() {
+        String[] names = new String[COUNTERS];
+        names[PURCHASES] = "purchases";
+        for (Type type : TYPES) {
+            names[TICKETS + type.ordinal()] = "tickets." + type;
+            names[REVENUE + type.ordinal()] = "revenue." + type;
+        }
+        for (Reason reason : REASONS) {
+            names[REJECTED + reason.ordinal()] = "rejected." + reason;
+        }
+        return names;
+    }
+
+    @Override
+    public String toString() {
+        return "SalesSnapshot" + toMap();
+    }
+}
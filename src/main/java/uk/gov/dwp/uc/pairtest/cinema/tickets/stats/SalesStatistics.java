@@ -0,0 +1,167 @@
+package uk.gov.dwp.uc.pairtest.cinema.tickets.stats;
+
+import uk.gov.dwp.uc.pairtest.cinema.tickets.PurchaseListener;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.domain.PurchaseOrder;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.domain.TicketTypeRequest.Type;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.exception.InvalidPurchaseException.Reason;
+
+import java.time.Clock;
+import java.util.concurrent.atomic.LongAdder;
+
+import static uk.gov.dwp.uc.pairtest.cinema.tickets.stats.SalesSnapshot.*;
+
+/**
+ * Live sales figures, fed from every purchase {@link uk.gov.dwp.uc.pairtest.cinema.tickets.TicketServiceImpl}
+ * completes or rejects.
+ *
+ * <p>Every counter is a {@link LongAdder}, which spreads concurrent increments over per-thread
+ * cells instead of contending on one value, so recording a purchase costs a handful of
+ * uncontended adds and never blocks. Reads sum the cells and are only as exact as a moment
+ * without writers; that is fine for a dashboard.</p>
+ *
+ * <p>Alongside the running totals, a ring of {@link #WINDOW_MINUTES} per-minute buckets holds
+ * the last hour. The first purchase in a new minute clears the bucket it reuses.</p>
+ */
+public class SalesStatistics implements PurchaseListener {
+
+    public static final int WINDOW_MINUTES = 60;
+
+    private static final long MILLIS_PER_MINUTE = 60_000;
+
+    private static final Type[] TYPES = Type.values();
+
+    private final Clock       clock;
+    private final LongAdder[] totals = adders();
+    private final Minute[]    window = new Minute[WINDOW_MINUTES];
+
+    // Totals carried over from earlier runs, added to what this run has counted
+    private volatile SalesSnapshot restored = new SalesSnapshot(new long[COUNTERS]);
+
+    private static final class Minute {
+        volatile long     epochMinute = -1;
+        final LongAdder[] counters    = adders();
+    }
+
+    public SalesStatistics() {
+        this(Clock.systemUTC());
+    }
+
+    public SalesStatistics(Clock clock) {
+        this.clock = clock;
+        for (int i = 0; i < WINDOW_MINUTES; i++) {
+            window[i] = new Minute();
+        }
+    }
+
+    @Override
+    public void purchaseCompleted(PurchaseOrder order) {
+        LongAdder[] minute = currentBucket().counters;
+
+        totals[PURCHASES].increment();
+        minute[PURCHASES].increment();
+        for (Type type : TYPES) {
+            int count = order.getCount(type);
+            if (count != 0) {
+                totals[TICKETS + type.ordinal()].add(count);
+                minute[TICKETS + type.ordinal()].add(count);
+            }
+            int amount = order.getAmount(type);
+            if (amount != 0) {
+                totals[REVENUE + type.ordinal()].add(amount);
+                minute[REVENUE + type.ordinal()].add(amount);
+            }
+        }
+    }
+
+    @Override
+    public void purchaseRejected(Reason reason) {
+        totals[REJECTED + reason.ordinal()].increment();
+        currentBucket().counters[REJECTED + reason.ordinal()].increment();
+    }
+
+    /** Everything counted, including totals restored from earlier runs. */
+    public SalesSnapshot totals() {
+        long[] counters = sum(totals);
+        for (int i = 0; i < COUNTERS; i++) {
+            counters[i] += restored.get(i);
+        }
+        return new SalesSnapshot(counters);
+    }
+
+    /** The current minute and the {@code WINDOW_MINUTES - 1} before it. */
+    public SalesSnapshot lastHour() {
+        long   now      = currentMinute();
+        long[] counters = new long[COUNTERS];
+        for (Minute minute : window) {
+            long epochMinute = minute.epochMinute;
+            if (epochMinute > now - WINDOW_MINUTES && epochMinute <= now) {
+                long[] bucket = sum(minute.counters);
+                for (int i = 0; i < COUNTERS; i++) {
+                    counters[i] += bucket[i];
+                }
+            }
+        }
+        return new SalesSnapshot(counters);
+    }
+
+    /**
+     * The figures for one minute since the epoch; all zero if it has left the window or
+     * nothing happened in it.
+     */
+    public SalesSnapshot minute(long epochMinute) {
+        Minute minute = window[(int) Math.floorMod(epochMinute, (long) WINDOW_MINUTES)];
+        if (minute.epochMinute != epochMinute) {
+            return new SalesSnapshot(new long[COUNTERS]);
+        }
+        return new SalesSnapshot(sum(minute.counters));
+    }
+
+    public long currentMinute() {
+        return Math.floorDiv(clock.millis(), MILLIS_PER_MINUTE);
+    }
+
+    /** Sets the totals carried over from earlier runs. */
+    public void restore(SalesSnapshot persisted) {
+        this.restored = persisted;
+    }
+
+    /** What this run alone has counted, for persisting as deltas. */
+    SalesSnapshot sinceStart() {
+        return new SalesSnapshot(sum(totals));
+    }
+
+
+    // Helpers
+
+    private Minute currentBucket() {
+        long   now    = currentMinute();
+        Minute minute = window[(int) Math.floorMod(now, (long) WINDOW_MINUTES)];
+        if (minute.epochMinute < now) {
+            synchronized (minute) {
+                if (minute.epochMinute < now) {
+                    for (LongAdder counter : minute.counters) {
+                        counter.reset();
+                    }
+                    minute.epochMinute = now;
+                }
+            }
+        }
+        return minute;
+    }
+
+    private static LongAdder[] adders() {
+        LongAdder[] adders = new LongAdder[COUNTERS];
+        for (int i = 0; i < COUNTERS; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+
+    private static long[] sum(LongAdder[] adders) {
+        long[] counters = new long[COUNTERS];
+        for (int i = 0; i < COUNTERS; i++) {
+            counters[i] = adders[i].sum();
+        }
+        return counters;
+    }
+}
@@ -0,0 +1,97 @@
+package uk.gov.dwp.uc.pairtest.cinema.tickets.stats;
+
+import uk.gov.dwp.uc.pairtest.cinema.tickets.repository.SalesStatisticsRepository;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Saves {@link SalesStatistics} to H2 on a fixed interval, off the purchase path, and restores
+ * the stored totals on start-up. The repository is scoped to this node, so the figures served
+ * are this instance's alone, before and after a restart.
+ *
+ * <p>Each flush adds what has been counted since the previous one to the stored totals, along
+ * with every minute that has closed since then. A failed flush is simply retried with more
+ * counted next time. On shutdown the current, still open minute is saved too.</p>
+ */
+public class SalesStatisticsFlusher {
+
+    private static final long DEFAULT_INTERVAL_MS = 10_000;
+
+    private final SalesStatistics           statistics;
+    private final SalesStatisticsRepository repository;
+    private final long                      intervalMillis;
+    private final ScheduledExecutorService  scheduler;
+
+    // What has been saved so far; guarded by this
+    private SalesSnapshot saved;
+    private long          lastSavedMinute;
+
+    public SalesStatisticsFlusher(SalesStatistics statistics, SalesStatisticsRepository repository) {
+        this(statistics, repository, DEFAULT_INTERVAL_MS);
+    }
+
+    public SalesStatisticsFlusher(SalesStatistics statistics, SalesStatisticsRepository repository,
+                                  long intervalMillis) {
+        this.statistics     = statistics;
+        this.repository     = repository;
+        this.intervalMillis = intervalMillis;
+        this.scheduler      = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "stats-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Restores this node's stored totals and starts flushing.
+     */
+    public synchronized void start() {
+        statistics.restore(SalesSnapshot.fromMap(repository.findTotals()));
+        saved           = statistics.sinceStart();
+        lastSavedMinute = statistics.currentMinute() - 1;
+
+        scheduler.scheduleWithFixedDelay(() -> flush(false), intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public void shutdown() {
+        scheduler.shutdownNow();
+        flush(true);
+    }
+
+    /**
+     * Saves the counts since the last flush and every minute closed since then; with
+     * {@code includeOpenMinute}, the current minute as well.
+     */
+    synchronized void flush(boolean includeOpenMinute) {
+        if (saved == null) {
+            return; // never started
+        }
+        SalesSnapshot now     = statistics.sinceStart();
+        long          current = statistics.currentMinute();
+        long          upTo    = includeOpenMinute ? current : current - 1;
+
+        // Minutes older than the window have been overwritten; they are lost from the per-minute figures
+        long from = Math.max(lastSavedMinute + 1, current - SalesStatistics.WINDOW_MINUTES + 1);
+
+        Map<Instant, Map<String, Long>> minutes = new LinkedHashMap<>();
+        for (long minute = from; minute <= upTo; minute++) {
+            SalesSnapshot figures = statistics.minute(minute);
+            if (!figures.isEmpty()) {
+                minutes.put(Instant.ofEpochSecond(minute * 60), figures.toMap());
+            }
+        }
+
+        try {
+            repository.add(now.minus(saved).toMap(), minutes);
+            saved           = now;
+            lastSavedMinute = Math.max(lastSavedMinute, upTo);
+        } catch (Exception e) {
+            System.err.println("[Stats] Flush failed, will retry: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,77 @@
+import uk.gov.dwp.uc.pairtest.cinema.tickets.domain.TicketTypeRequest;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.domain.TicketTypeRequest.Type;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.http.NioHttpServer;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.protocol.BinaryProtocol;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.protocol.BinaryResponse;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.protocol.BinaryTicketClient;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.repository.TicketPriceRepository;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+
+/**
+ * Throughput and latency of the JSON and binary purchase protocols on the same server. Not a
+ * unit test; run it by hand as described on {@link TransportBenchmark}, with
+ * {@code -Dexec.mainClass=ProtocolBenchmark}.
+ *
+ * <p>Both protocols send the same order (2 adults, 1 child) over keep-alive connections to the
+ * NIO transport, with no-op payment and seat services and request logging silenced. Arguments:
+ * {@code [clients] [seconds]}, default 32 and 10.</p>
+ */
+public class ProtocolBenchmark {
+
+    private static final TicketTypeRequest[] ORDER = {
+        new TicketTypeRequest(Type.ADULT, 2), new TicketTypeRequest(Type.CHILD, 1)
+    };
+
+    public static void main(String[] args) throws Exception {
+        int  clients = args.length > 0 ? Integer.parseInt(args[0]) : 32;
+        long seconds = args.length > 1 ? Long.parseLong(args[1]) : 10;
+
+        PrintStream console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        System.setProperty("tickets.limiter", "false"); // measure the protocol, not load shedding
+
+        console.printf("clients=%d, %ds per run, keep-alive purchases over the nio transport%n", clients, seconds);
+        console.printf("request body: json %d bytes, binary %d bytes%n",
+            TransportBenchmark.PURCHASE_BODY.length(), BinaryProtocol.encodePurchaseRequest(1L, ORDER).length);
+
+        NioHttpServer server = new NioHttpServer(new InetSocketAddress("localhost", 0),
+                                                 TransportBenchmark.router(new TicketPriceRepository()));
+        server.start();
+        int port = server.getAddress().getPort();
+        try {
+            TransportBenchmark.run(console, "json   (warm-up)", port, clients, Math.max(1, seconds / 3), TransportBenchmark::drive);
+            TransportBenchmark.run(console, "json",             port, clients, seconds,                  TransportBenchmark::drive);
+            TransportBenchmark.run(console, "binary (warm-up)", port, clients, Math.max(1, seconds / 3), ProtocolBenchmark::drive);
+            TransportBenchmark.run(console, "binary",           port, clients, seconds,                  ProtocolBenchmark::drive);
+        } finally {
+            server.stop(1_000);
+        }
+
+        System.exit(0);
+    }
+
+    // One keep-alive connection sending binary purchases until the deadline
+    private static long[] drive(int port, long deadline) throws IOException {
+        long[] latencies = new long[1 << 16];
+        int    count     = 0;
+        try (BinaryTicketClient client = new BinaryTicketClient("localhost", port)) {
+            while (System.nanoTime() < deadline) {
+                long start = System.nanoTime();
+                BinaryResponse response = client.purchase(1L, ORDER);
+                if (!response.isSuccess()) {
+                    throw new IOException("Unexpected response " + response);
+                }
+                if (count == latencies.length) {
+                    latencies = Arrays.copyOf(latencies, count * 2);
+                }
+                latencies[count++] = System.nanoTime() - start;
+            }
+        }
+        return Arrays.copyOf(latencies, count);
+    }
+}
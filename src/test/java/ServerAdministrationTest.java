@@ -0,0 +1,123 @@
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.auth.AdminToken;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.http.ApiRequest;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.http.ApiResponse;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.http.Router;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.repository.TicketPriceRepository;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the administration endpoints in {@link Server}: they need the admin token, and their
+ * responses carry no CORS headers.
+ */
+class ServerAdministrationTest {
+
+    private static final String TOKEN = "s3cret";
+
+    private TicketPriceRepository priceRepository;
+    private Router                router;
+
+    @BeforeEach
+    void setUp() {
+        priceRepository = new TicketPriceRepository(
+            "jdbc:h2:mem:admin-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", true);
+        router = router(AdminToken.of(TOKEN));
+    }
+
+    @Test
+    @DisplayName("A price change without the admin token is refused and changes nothing")
+    void updatePrice_withoutToken_isRefused() {
+        ApiResponse none  = call("PUT", "/api/tickets/prices/ADULT", "{\"price\":1}", null);
+        ApiResponse wrong = call("PUT", "/api/tickets/prices/ADULT", "{\"price\":1}", "Bearer guess");
+
+        assertEquals(401, none.getStatus());
+        assertEquals(401, wrong.getStatus());
+        assertEquals("Bearer", none.getHeaders().get("WWW-Authenticate"));
+        assertEquals(25, priceRepository.getPriceByType("ADULT"));
+    }
+
+    @Test
+    @DisplayName("A price change with the admin token is applied, with no CORS headers on the answer")
+    void updatePrice_withToken_isApplied() {
+        ApiResponse response = call("PUT", "/api/tickets/prices/ADULT", "{\"price\":30}", "Bearer " + TOKEN);
+
+        assertEquals(200, response.getStatus());
+        assertEquals(30, priceRepository.getPriceByType("ADULT"));
+        assertNull(response.getHeaders().get("Access-Control-Allow-Origin"));
+    }
+
+    @Test
+    @DisplayName("Schedules can only be added and deleted with the admin token")
+    void schedules_needToken() {
+        String schedule = "{\"ticketType\":\"ADULT\",\"startsAt\":\"2026-06-01T00:00:00Z\"," +
+                          "\"endsAt\":\"2026-07-01T00:00:00Z\",\"price\":1}";
+
+        assertEquals(401, call("POST", "/api/tickets/schedules", schedule, null).getStatus());
+        assertTrue(priceRepository.getSchedules().isEmpty());
+
+        ApiResponse added = call("POST", "/api/tickets/schedules", schedule, "Bearer " + TOKEN);
+        assertEquals(201, added.getStatus());
+        assertNull(added.getHeaders().get("Access-Control-Allow-Origin"));
+        long id = priceRepository.getSchedules().get(0).getId();
+
+        assertEquals(401, call("DELETE", "/api/tickets/schedules/" + id, null, "Bearer guess").getStatus());
+        assertEquals(200, call("DELETE", "/api/tickets/schedules/" + id, null, "Bearer " + TOKEN).getStatus());
+        assertTrue(priceRepository.getSchedules().isEmpty());
+    }
+
+    @Test
+    @DisplayName("Screenings can only be added and deleted with the admin token")
+    void screenings_needToken() {
+        String screening = "{\"screeningId\":\"S-1\",\"startsAt\":\"2026-06-06T19:30:00Z\"}";
+
+        assertEquals(401, call("POST", "/api/tickets/screenings", screening, null).getStatus());
+        assertNull(priceRepository.findScreening("S-1"));
+
+        assertEquals(201, call("POST", "/api/tickets/screenings", screening, "Bearer " + TOKEN).getStatus());
+        assertEquals(401, call("DELETE", "/api/tickets/screenings/S-1", null, "Bearer guess").getStatus());
+        assertNotNull(priceRepository.findScreening("S-1"));
+    }
+
+    @Test
+    @DisplayName("Without a configured token administration is disabled")
+    void noToken_disablesAdministration() {
+        router = router(AdminToken.disabled());
+
+        assertEquals(403, call("PUT", "/api/tickets/prices/ADULT", "{\"price\":30}", "Bearer ").getStatus());
+        assertEquals(25, priceRepository.getPriceByType("ADULT"));
+    }
+
+    @Test
+    @DisplayName("Browsers on other origins are not offered PUT or DELETE")
+    void cors_doesNotOfferWriteMethods() {
+        for (String path : new String[] {"/api/tickets/prices", "/api/tickets/schedules", "/api/tickets/screenings"}) {
+            String methods = call("OPTIONS", path, null, null).getHeaders().get("Access-Control-Allow-Methods");
+            assertFalse(methods.contains("PUT"), path);
+            assertFalse(methods.contains("DELETE"), path);
+        }
+    }
+
+    // Helpers
+
+    private Router router(AdminToken adminToken) {
+        return Server.createRouter(
+            RouterConfig.builder((accountId, amount) -> { }, (accountId, seats) -> { }, priceRepository)
+                .adminToken(adminToken)
+                .build());
+    }
+
+    private ApiResponse call(String method, String path, String body, String authorization) {
+        Router.Route route = router.match(path);
+        assertNotNull(route, "no route for " + path);
+        return router.handle(route, new ApiRequest(method, path, null,
+                authorization == null ? Map.of() : Map.of("authorization", authorization),
+                body == null ? null : body.getBytes(StandardCharsets.UTF_8)));
+    }
+}
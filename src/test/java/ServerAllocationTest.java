@@ -0,0 +1,88 @@
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.AllocationMeter;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.domain.TicketPrice;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Allocation-regression tests for the request parsing and response encoding in {@link Server}.
+ *
+ * <p>Lives in the default package alongside {@code Server} so it can reach the
+ * package-private JSON helpers. Budgets are bytes allocated per call on the calling thread,
+ * judged on the median of several rounds by {@link AllocationMeter} and set at roughly twice
+ * the measured value.</p>
+ */
+class ServerAllocationTest {
+
+    private static final int WARMUP_CALLS   = 5_000;
+    private static final int MEASURED_CALLS = 5_000;
+
+    // Budgets in bytes per call
+    private static final long PARSE_ACCOUNT_BUDGET   = 3_600;    // measured ~1.8 KB
+    private static final long PARSE_TICKETS_BUDGET   = 26_000;   // measured ~12.8 KB, one Pattern per ticket field
+    private static final long ENCODE_PURCHASE_BUDGET = 2_200;    // measured ~1.1 KB
+    private static final long ENCODE_PRICES_BUDGET   = 7_000;    // measured ~3.5 KB
+    private static final long ENCODE_ERROR_BUDGET    = 2_000;    // measured ~1.0 KB
+
+    private static final String PURCHASE_BODY =
+        "{\"accountId\": 1, \"tickets\": ["
+        + "{ \"type\": \"ADULT\",  \"quantity\": 2 },"
+        + "{ \"type\": \"CHILD\",  \"quantity\": 3 },"
+        + "{ \"type\": \"INFANT\", \"quantity\": 2 }]}";
+
+    private static final List<TicketPrice> PRICES = List.of(
+        new TicketPrice("ADULT",  25, true),
+        new TicketPrice("CHILD",  15, true),
+        new TicketPrice("INFANT",  0, false)
+    );
+
+    @BeforeAll
+    static void enableAllocationCounters() {
+        AllocationMeter.enable();
+    }
+
+    @Test
+    @DisplayName("Parsing accountId stays within its allocation budget")
+    void parseAccountId_withinBudget() {
+        assertWithinBudget("parse accountId", PARSE_ACCOUNT_BUDGET,
+                () -> Server.parseAccountId(PURCHASE_BODY));
+    }
+
+    @Test
+    @DisplayName("Parsing the tickets array stays within its allocation budget")
+    void parseTickets_withinBudget() {
+        assertWithinBudget("parse tickets", PARSE_TICKETS_BUDGET,
+                () -> Server.parseTickets(PURCHASE_BODY));
+    }
+
+    @Test
+    @DisplayName("Encoding a purchase response stays within its allocation budget")
+    void encodePurchaseResponse_withinBudget() {
+        assertWithinBudget("encode purchase", ENCODE_PURCHASE_BUDGET,
+                () -> Server.purchaseSuccessJson(95, 5).getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    @DisplayName("Encoding the price list stays within its allocation budget")
+    void encodePricesResponse_withinBudget() {
+        assertWithinBudget("encode prices", ENCODE_PRICES_BUDGET,
+                () -> Server.pricesJson(PRICES).getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    @DisplayName("Encoding an error response stays within its allocation budget")
+    void encodeErrorResponse_withinBudget() {
+        assertWithinBudget("encode error", ENCODE_ERROR_BUDGET,
+                () -> Server.errorJson("Child and Infant tickets cannot be purchased without at least one Adult ticket.")
+                            .getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Helpers
+
+    private static void assertWithinBudget(String label, long budgetBytes, Runnable call) {
+        AllocationMeter.assertWithinBudget(label, budgetBytes, WARMUP_CALLS, MEASURED_CALLS, call);
+    }
+}
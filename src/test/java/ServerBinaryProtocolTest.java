@@ -0,0 +1,146 @@
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.domain.PriceScheduleEntry;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.domain.Screening;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.domain.TicketTypeRequest;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.domain.TicketTypeRequest.Type;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.protocol.BinaryProtocol;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.protocol.BinaryResponse;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.protocol.BinaryTicketClient;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.quota.PurchaseCaps;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.repository.TicketPriceRepository;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.startup.Readiness;
+
+import java.net.InetSocketAddress;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * End-to-end tests of the binary purchase protocol in {@link Server}, using {@link BinaryTicketClient}.
+ */
+class ServerBinaryProtocolTest {
+
+    private final Map<Long, Integer> charges = new ConcurrentHashMap<>();
+
+    private HttpServer         server;
+    private BinaryTicketClient client;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = Server.createServer(new InetSocketAddress("localhost", 0), RouterConfig.builder(
+                (accountId, amount) -> charges.put(accountId, amount), (accountId, seats) -> { },
+                new TicketPriceRepository()).build());
+        server.start();
+        client = new BinaryTicketClient("localhost", server.getAddress().getPort());
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        client.close();
+        server.stop(0);
+    }
+
+    @Test
+    @DisplayName("A binary purchase is charged and answered with the totals")
+    void purchase_isChargedAndAnswered() throws Exception {
+        BinaryResponse response = client.purchase(7L,
+            new TicketTypeRequest(Type.ADULT, 2), new TicketTypeRequest(Type.CHILD, 1), new TicketTypeRequest(Type.INFANT, 1));
+
+        assertEquals(BinaryProtocol.STATUS_OK, response.getStatus());
+        assertEquals(65, response.getTotalAmount());
+        assertEquals(3,  response.getTotalSeats());
+        assertEquals(65, charges.get(7L));
+    }
+
+    @Test
+    @DisplayName("Several requests share one keep-alive connection")
+    void requests_shareOneConnection() throws Exception {
+        for (long account = 1; account <= 20; account++) {
+            assertEquals(BinaryProtocol.STATUS_OK, client.purchase(account, new TicketTypeRequest(Type.ADULT, 1)).getStatus());
+        }
+        assertEquals(3, client.prices().getPrices().size());
+        assertEquals(20, charges.size());
+    }
+
+    @Test
+    @DisplayName("A purchase that breaks a rule is answered with INVALID and is not charged")
+    void invalidPurchase_isRejected() throws Exception {
+        BinaryResponse response = client.purchase(8L, new TicketTypeRequest(Type.CHILD, 1));
+
+        assertEquals(BinaryProtocol.STATUS_INVALID, response.getStatus());
+        assertNotNull(response.getMessage());
+        assertFalse(charges.containsKey(8L));
+    }
+
+    @Test
+    @DisplayName("With the screening cap on, a binary purchase names its screening and pays its scheduled price")
+    void screeningCap_binaryPurchaseNamesScreening() throws Exception {
+        Instant startsAt = Instant.now().plus(2, ChronoUnit.DAYS);
+        TicketPriceRepository prices = new TicketPriceRepository(
+            "jdbc:h2:mem:binary-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", true);
+        prices.addScreening(new Screening("S-1", "IMAX", startsAt));
+        prices.addSchedule(new PriceScheduleEntry(0, Type.ADULT, "S-1", null,
+            startsAt.minus(1, ChronoUnit.HOURS), startsAt.plus(1, ChronoUnit.HOURS), 40));
+
+        HttpServer capped = Server.createServer(new InetSocketAddress("localhost", 0), RouterConfig.builder(
+                (accountId, amount) -> charges.put(accountId, amount), (accountId, seats) -> { }, prices)
+            .purchaseCaps(new PurchaseCaps(0, 4, 1 << 12))
+            .build());
+        capped.start();
+        try (BinaryTicketClient kiosk = new BinaryTicketClient("localhost", capped.getAddress().getPort())) {
+            BinaryResponse bought = kiosk.purchase(10L, "S-1", new TicketTypeRequest(Type.ADULT, 3));
+            assertEquals(BinaryProtocol.STATUS_OK, bought.getStatus());
+            assertEquals(120, bought.getTotalAmount());
+
+            BinaryResponse overCap = kiosk.purchase(10L, "S-1", new TicketTypeRequest(Type.ADULT, 2));
+            assertEquals(BinaryProtocol.STATUS_INVALID, overCap.getStatus());
+
+            BinaryResponse unnamed = kiosk.purchase(11L, new TicketTypeRequest(Type.ADULT, 1));
+            assertEquals(BinaryProtocol.STATUS_INVALID, unnamed.getStatus());
+            assertEquals(120, charges.get(10L));
+            assertFalse(charges.containsKey(11L));
+        } finally {
+            capped.stop(0);
+        }
+    }
+
+    @Test
+    @DisplayName("Price lookup returns every ticket type")
+    void prices_areReturned() throws Exception {
+        BinaryResponse response = client.prices();
+
+        assertEquals(BinaryProtocol.STATUS_OK, response.getStatus());
+        assertEquals("ADULT", response.getPrices().get(0).getTicketType());
+        assertEquals(25,      response.getPrices().get(0).getPrice());
+    }
+
+    @Test
+    @DisplayName("While starting up, binary requests are answered with UNAVAILABLE rather than OVERLOADED")
+    void startingUp_isUnavailable() throws Exception {
+        HttpServer starting = Server.createServer(new InetSocketAddress("localhost", 0), RouterConfig.builder(
+                (accountId, amount) -> charges.put(accountId, amount), (accountId, seats) -> { },
+                new TicketPriceRepository())
+            .readiness(Readiness.starting())
+            .build());
+        starting.start();
+        try (BinaryTicketClient kiosk = new BinaryTicketClient("localhost", starting.getAddress().getPort())) {
+            BinaryResponse purchase = kiosk.purchase(9L, new TicketTypeRequest(Type.ADULT, 1));
+            BinaryResponse prices   = kiosk.prices();
+
+            assertEquals(BinaryProtocol.STATUS_UNAVAILABLE, purchase.getStatus());
+            assertEquals(BinaryProtocol.STATUS_UNAVAILABLE, prices.getStatus());
+            assertEquals("Service is starting up, retry shortly", purchase.getMessage());
+            assertFalse(charges.containsKey(9L));
+        } finally {
+            starting.stop(0);
+        }
+    }
+}
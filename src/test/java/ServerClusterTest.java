@@ -0,0 +1,167 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs two {@link Server} JVMs in cluster mode against one H2 server-mode store and checks that a price
+ * changed on one is served by the other straight away, without either of them polling.
+ */
+class ServerClusterTest {
+
+    private static final Pattern BASE_URL    = Pattern.compile("http://localhost:(\\d+)");
+    private static final String  ADMIN_TOKEN = "cluster-test";
+
+    private final List<Process> nodes = new ArrayList<>();
+
+    @TempDir
+    Path storeDir;
+
+    private org.h2.tools.Server store;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        store = org.h2.tools.Server.createTcpServer(
+            "-tcpPort", "0", "-baseDir", storeDir.toString(), "-ifNotExists").start();
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        for (Process node : nodes) {
+            node.destroy();
+        }
+        for (Process node : nodes) {
+            if (!node.waitFor(10, TimeUnit.SECONDS)) {
+                node.destroyForcibly();
+            }
+        }
+        store.stop();
+    }
+
+    @Test
+    @DisplayName("A price changed on one instance is served by the other within a second")
+    void priceChange_reachesOtherInstance() throws Exception {
+        String dbUrl = "jdbc:h2:tcp://localhost:" + store.getPort() + "/ticketdb";
+        int first  = startNode(dbUrl);
+        int second = startNode(dbUrl);
+
+        assertTrue(get(second, "/api/tickets/prices").contains("{\"ticketType\":\"ADULT\",\"price\":25,"));
+
+        assertEquals(200, put(first, "/api/tickets/prices/ADULT", "{\"price\":30}"));
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+        String prices = get(second, "/api/tickets/prices");
+        while (!prices.contains("\"price\":30") && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+            prices = get(second, "/api/tickets/prices");
+        }
+        assertTrue(prices.contains("{\"ticketType\":\"ADULT\",\"price\":30,"), prices);
+    }
+
+    // Helpers
+
+    // Starts a node on a free port and returns the port once it is ready to serve
+    private int startNode(String dbUrl) throws Exception {
+        Process node = new ProcessBuilder(
+                Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+                "-cp", System.getProperty("java.class.path"),
+                "-Dtickets.port=0",
+                "-Dtickets.cluster=true",
+                "-Dtickets.db.url=" + dbUrl,
+                "-Dtickets.admin.token=" + ADMIN_TOKEN,
+                "Server")
+            .redirectErrorStream(true)
+            .start();
+        nodes.add(node);
+
+        CompletableFuture<Integer> port = new CompletableFuture<>();
+        Thread reader = new Thread(() -> {
+            try (BufferedReader out = new BufferedReader(
+                    new InputStreamReader(node.getInputStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = out.readLine()) != null) {
+                    Matcher m = BASE_URL.matcher(line);
+                    if (m.find()) {
+                        port.complete(Integer.parseInt(m.group(1)));
+                    }
+                }
+                port.completeExceptionally(new IllegalStateException("Node exited with " + node.waitFor()));
+            } catch (Exception e) {
+                port.completeExceptionally(e);
+            }
+        });
+        reader.setDaemon(true);
+        reader.start();
+
+        int nodePort = port.get(30, TimeUnit.SECONDS);
+        awaitReady(nodePort);
+        return nodePort;
+    }
+
+    private static void awaitReady(int port) throws Exception {
+        long deadline = System.currentTimeMillis() + 30_000;
+        while (System.currentTimeMillis() < deadline) {
+            HttpURLConnection connection = open(port, "/health/ready");
+            try {
+                if (connection.getResponseCode() == 200) {
+                    return;
+                }
+            } catch (IOException e) {
+                // still binding
+            } finally {
+                connection.disconnect();
+            }
+            Thread.sleep(50);
+        }
+        fail("node on port " + port + " never became ready");
+    }
+
+    private static String get(int port, String path) throws IOException {
+        HttpURLConnection connection = open(port, path);
+        try {
+            return new String(connection.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private static int put(int port, String path, String body) throws IOException {
+        HttpURLConnection connection = open(port, path);
+        try {
+            connection.setRequestMethod("PUT");
+            connection.setRequestProperty("Authorization", "Bearer " + ADMIN_TOKEN);
+            connection.setDoOutput(true);
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(body.getBytes(StandardCharsets.UTF_8));
+            }
+            return connection.getResponseCode();
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private static HttpURLConnection open(int port, String path) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + port + path).openConnection();
+        connection.setConnectTimeout(5_000);
+        connection.setReadTimeout(5_000);
+        return connection;
+    }
+}
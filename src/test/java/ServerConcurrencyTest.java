@@ -0,0 +1,234 @@
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import thirdparty.paymentgateway.TicketPaymentService;
+import thirdparty.seatbooking.SeatReservationService;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.limit.AdaptiveConcurrencyLimiter;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.repository.TicketPriceRepository;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Concurrency stress tests for the HTTP handlers in {@link Server}.
+ *
+ * <p>The server is started on an ephemeral port with a multi-threaded executor, then many purchases are
+ * fired at it at once. Recording stand-ins capture what was charged and reserved for each account, and
+ * every response's {@code totalAmount}/{@code totalSeats} must match that order's own charge and
+ * reservation. The adaptive limiter is off for these, so every valid order must succeed; shedding
+ * is covered separately with a small fixed limit, where a shed purchase (503) must not have been
+ * charged at all.</p>
+ */
+class ServerConcurrencyTest {
+
+    private static final int SERVER_THREADS = 16;
+    private static final int CLIENT_THREADS = 32;
+    private static final int ORDERS         = 300;
+
+    private static final Pattern AMOUNT = Pattern.compile("\"totalAmount\":(\\d+)");
+    private static final Pattern SEATS  = Pattern.compile("\"totalSeats\":(\\d+)");
+
+    private final Map<Long, Integer> charges      = new ConcurrentHashMap<>();
+    private final Map<Long, Integer> reservations = new ConcurrentHashMap<>();
+
+    private volatile long paymentMillis;
+
+    private HttpServer      server;
+    private ExecutorService serverPool;
+    private ExecutorService clientPool;
+    private HttpClient      client;
+    private URI             purchaseUri;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        startServer(null);
+        clientPool = Executors.newFixedThreadPool(CLIENT_THREADS);
+        client     = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+        serverPool.shutdownNow();
+        clientPool.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("Each concurrent purchase response reports its own charged amount and reserved seats")
+    void concurrentPurchases_responsesMatchRecordedCharges() throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<HttpResponse<String>>> responses = new ArrayList<>();
+
+        for (int i = 0; i < ORDERS; i++) {
+            long accountId = i + 1;
+            int  adults    = 1 + (i % 10);
+            int  children  = i % 7;
+            String body = "{\"accountId\":" + accountId + ",\"tickets\":["
+                        + "{\"type\":\"ADULT\",\"quantity\":" + adults + "},"
+                        + "{\"type\":\"CHILD\",\"quantity\":" + children + "}]}";
+            responses.add(clientPool.submit(() -> {
+                start.await();
+                return post(body);
+            }));
+        }
+
+        start.countDown();
+
+        for (int i = 0; i < ORDERS; i++) {
+            long accountId = i + 1;
+            HttpResponse<String> response = responses.get(i).get(30, TimeUnit.SECONDS);
+
+            assertEquals(200, response.statusCode(), response.body());
+            assertEquals(charges.get(accountId),      extract(AMOUNT, response.body()), "amount for account " + accountId);
+            assertEquals(reservations.get(accountId), extract(SEATS,  response.body()), "seats for account " + accountId);
+            assertEquals((1 + i % 10) * 25 + (i % 7) * 15, charges.get(accountId));
+        }
+        assertEquals(ORDERS, charges.size());
+        assertEquals(ORDERS, reservations.size());
+    }
+
+    @Test
+    @DisplayName("Concurrent rejected purchases return 400 and are never charged")
+    void concurrentMixedPurchases_rejectedOrdersNotCharged() throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<HttpResponse<String>>> responses = new ArrayList<>();
+
+        for (int i = 0; i < ORDERS; i++) {
+            long   accountId = i + 1;
+            String type      = i % 2 == 0 ? "ADULT" : "CHILD";
+            String body = "{\"accountId\":" + accountId + ",\"tickets\":[{\"type\":\"" + type + "\",\"quantity\":2}]}";
+            responses.add(clientPool.submit(() -> {
+                start.await();
+                return post(body);
+            }));
+        }
+
+        start.countDown();
+
+        for (int i = 0; i < ORDERS; i++) {
+            long accountId = i + 1;
+            HttpResponse<String> response = responses.get(i).get(30, TimeUnit.SECONDS);
+
+            if (i % 2 == 0) {
+                assertEquals(200, response.statusCode(), response.body());
+                assertEquals(50, extract(AMOUNT, response.body()));
+                assertEquals(2,  extract(SEATS,  response.body()));
+                assertEquals(50, charges.get(accountId));
+            } else {
+                assertEquals(400, response.statusCode(), response.body());
+                assertNotCharged(accountId);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Purchases over a full limit are shed with 503 and never charged; the rest succeed")
+    void purchasesOverLimit_areShedUncharged() throws Exception {
+        server.stop(0);
+        serverPool.shutdownNow();
+        paymentMillis = 5;
+        startServer(new AdaptiveConcurrencyLimiter(4, 4, 4));
+
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<HttpResponse<String>>> responses = new ArrayList<>();
+
+        for (int i = 0; i < ORDERS; i++) {
+            String body = "{\"accountId\":" + (i + 1) + ",\"tickets\":[{\"type\":\"ADULT\",\"quantity\":1}]}";
+            responses.add(clientPool.submit(() -> {
+                start.await();
+                return post(body);
+            }));
+        }
+
+        start.countDown();
+
+        int succeeded = 0;
+        int shed      = 0;
+        for (int i = 0; i < ORDERS; i++) {
+            long accountId = i + 1;
+            HttpResponse<String> response = responses.get(i).get(30, TimeUnit.SECONDS);
+
+            if (response.statusCode() == 503) {
+                assertEquals("1", response.headers().firstValue("Retry-After").orElse(null));
+                assertNotCharged(accountId);
+                shed++;
+            } else {
+                assertEquals(200, response.statusCode(), response.body());
+                assertEquals(25, charges.get(accountId));
+                succeeded++;
+            }
+        }
+        assertTrue(shed > 0, "32 clients against a limit of 4 should shed some purchases");
+        assertTrue(succeeded > 0, "every purchase was shed");
+        assertEquals(succeeded, charges.size());
+        assertEquals(succeeded, reservations.size());
+    }
+
+    // Helpers
+
+    // A purchase limiter of null turns adaptive limiting off
+    private void startServer(AdaptiveConcurrencyLimiter purchaseLimiter) throws Exception {
+        TicketPaymentService paymentService = (accountId, amount) -> {
+            if (paymentMillis > 0) {
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(paymentMillis));
+            } else {
+                Thread.yield();
+            }
+            assertNull(charges.putIfAbsent(accountId, amount), "account charged twice: " + accountId);
+        };
+        SeatReservationService seatService = (accountId, seats) -> {
+            Thread.yield();
+            assertNull(reservations.putIfAbsent(accountId, seats), "seats reserved twice: " + accountId);
+        };
+
+        server = Server.createServer(new InetSocketAddress("localhost", 0),
+                RouterConfig.builder(paymentService, seatService, new TicketPriceRepository())
+                    .purchaseLimiter(purchaseLimiter)
+                    .build());
+        serverPool = Executors.newFixedThreadPool(SERVER_THREADS);
+        server.setExecutor(serverPool);
+        server.start();
+
+        purchaseUri = URI.create("http://localhost:" + server.getAddress().getPort() + "/api/tickets/purchase");
+    }
+
+    private HttpResponse<String> post(String body) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(purchaseUri)
+                .timeout(Duration.ofSeconds(20))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private void assertNotCharged(long accountId) {
+        assertFalse(charges.containsKey(accountId), "account charged: " + accountId);
+        assertFalse(reservations.containsKey(accountId), "account seated: " + accountId);
+    }
+
+    private static Integer extract(Pattern pattern, String json) {
+        Matcher m = pattern.matcher(json);
+        assertTrue(m.find(), "missing field in " + json);
+        return Integer.parseInt(m.group(1));
+    }
+}
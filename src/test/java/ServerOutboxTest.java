@@ -0,0 +1,125 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.auth.AccountTokens;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.domain.PurchaseOrder;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.domain.TicketTypeRequest;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.domain.TicketTypeRequest.Type;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.http.ApiRequest;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.http.ApiResponse;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.http.Router;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.outbox.OutboxDispatcher;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.protocol.BinaryProtocol;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.quota.PurchaseCaps;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.repository.PurchaseOutboxRepository;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.repository.TicketPriceRepository;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for purchases accepted into the outbox by {@link Server}: who may poll their status, and
+ * what happens when the outbox itself cannot take them.
+ */
+class ServerOutboxTest {
+
+    private static final AccountTokens TOKENS = AccountTokens.of("account-secret");
+
+    private final PurchaseCaps caps = new PurchaseCaps(30, 0, 1 << 12);
+
+    private OutboxDispatcher outbox;
+    private Router           router;
+
+    @BeforeEach
+    void setUp() {
+        // The outbox table cannot be written, as during a database outage
+        outbox = new OutboxDispatcher(new PurchaseOutboxRepository(
+            "jdbc:h2:mem:outbox-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1") {
+                @Override
+                public long enqueue(PurchaseOrder order) {
+                    throw new RuntimeException("Failed to record purchase in outbox: disk full");
+                }
+            },
+            (accountId, amount) -> { }, (accountId, seats) -> { }, 1);
+        router = Server.createRouter(
+            RouterConfig.builder((accountId, amount) -> { }, (accountId, seats) -> { }, new TicketPriceRepository())
+                .outbox(outbox)
+                .purchaseCaps(caps)
+                .build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        outbox.shutdown();
+    }
+
+    @Test
+    @DisplayName("A JSON purchase the outbox cannot record gives back its caps")
+    void jsonPurchase_outboxFailure_releasesCaps() {
+        ApiResponse response = call("application/json",
+            "{\"accountId\":1,\"tickets\":[{\"type\":\"ADULT\",\"quantity\":25}]}".getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(500, response.getStatus());
+        assertEquals(0, caps.getTicketsToday(1L));
+    }
+
+    @Test
+    @DisplayName("A binary purchase the outbox cannot record gives back its caps")
+    void binaryPurchase_outboxFailure_releasesCaps() {
+        ApiResponse response = call(BinaryProtocol.CONTENT_TYPE,
+            BinaryProtocol.encodePurchaseRequest(2L, new TicketTypeRequest(Type.ADULT, 25)));
+
+        assertEquals(500, response.getStatus());
+        assertEquals(BinaryProtocol.STATUS_ERROR, BinaryProtocol.decodeResponse(response.getBody()).getStatus());
+        assertEquals(0, caps.getTicketsToday(2L));
+    }
+
+    @Test
+    @DisplayName("A purchase's status is served only to the account that made it")
+    void purchaseStatus_isForItsBuyerOnly() {
+        OutboxDispatcher working = new OutboxDispatcher(new PurchaseOutboxRepository(
+            "jdbc:h2:mem:outbox-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1"),
+            (accountId, amount) -> { }, (accountId, seats) -> { }, 1); // never started, so it stays PENDING
+        router = Server.createRouter(
+            RouterConfig.builder((accountId, amount) -> { }, (accountId, seats) -> { }, new TicketPriceRepository())
+                .outbox(working)
+                .accountTokens(TOKENS)
+                .build());
+        try {
+            assertEquals(202, call("application/json",
+                "{\"accountId\":3,\"tickets\":[{\"type\":\"ADULT\",\"quantity\":1}]}".getBytes(StandardCharsets.UTF_8)).getStatus());
+
+            assertEquals(401, status(1, null).getStatus());
+            assertEquals(401, status(1, "Bearer forged").getStatus());
+            assertEquals(403, status(1, ownerOf(4)).getStatus());
+            assertEquals(200, status(1, ownerOf(3)).getStatus());
+            assertEquals(404, status(2, ownerOf(3)).getStatus());
+        } finally {
+            working.shutdown();
+        }
+    }
+
+    // Helpers
+
+    private ApiResponse status(long purchaseId, String authorization) {
+        String path = "/api/tickets/purchases/" + purchaseId;
+        ApiRequest request = new ApiRequest("GET", path, null,
+            authorization == null ? Map.of() : Map.of("authorization", authorization), null);
+        return router.handle(router.match(path), request);
+    }
+
+    private static String ownerOf(long accountId) {
+        return "Bearer " + TOKENS.issue(accountId, Instant.now().plusSeconds(60));
+    }
+
+    private ApiResponse call(String contentType, byte[] body) {
+        ApiRequest request = new ApiRequest("POST", "/api/tickets/purchase", null,
+                                            Map.of("content-type", contentType), body);
+        return router.handle(router.match("/api/tickets/purchase"), request);
+    }
+}
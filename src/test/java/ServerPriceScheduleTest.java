@@ -0,0 +1,153 @@
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.auth.AdminToken;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.http.ApiRequest;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.http.ApiResponse;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.http.Router;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.repository.TicketPriceRepository;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for {@code /api/tickets/schedules} and {@code /api/tickets/screenings} in {@link Server},
+ * and for purchases priced by the screening they are for.
+ */
+class ServerPriceScheduleTest {
+
+    private static final Pattern SCHEDULE_ID = Pattern.compile("\"id\":(\\d+)");
+    private static final String  ADMIN_TOKEN = "s3cret";
+
+    private TicketPriceRepository priceRepository;
+    private Router                router;
+
+    @BeforeEach
+    void setUp() {
+        // A store of its own, so schedules added here never reach other tests' prices
+        priceRepository = new TicketPriceRepository(
+            "jdbc:h2:mem:schedules-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", true);
+        router = Server.createRouter(
+            RouterConfig.builder((accountId, amount) -> { }, (accountId, seats) -> { }, priceRepository)
+                .adminToken(AdminToken.of(ADMIN_TOKEN))
+                .build());
+    }
+
+    @Test
+    @DisplayName("Purchases are priced by the schedule for their screening, auditorium and start time")
+    void purchase_usesScheduledPrices() {
+        addSchedule("{\"ticketType\":\"ADULT\",\"startsAt\":\"2026-06-06T00:00:00Z\",\"endsAt\":\"2026-06-08T00:00:00Z\",\"price\":30}");
+        addSchedule("{\"ticketType\":\"ADULT\",\"auditorium\":\"IMAX\",\"startsAt\":\"2026-06-01T00:00:00Z\",\"endsAt\":\"2026-07-01T00:00:00Z\",\"price\":40}");
+        addSchedule("{\"ticketType\":\"CHILD\",\"screeningId\":\"S-42\",\"startsAt\":\"2026-06-01T00:00:00Z\",\"endsAt\":\"2026-07-01T00:00:00Z\",\"price\":5}");
+        addScreening("{\"screeningId\":\"S-1\",\"auditorium\":\"SCREEN-1\",\"startsAt\":\"2026-06-03T19:30:00Z\"}");
+        addScreening("{\"screeningId\":\"S-2\",\"auditorium\":\"SCREEN-1\",\"startsAt\":\"2026-06-06T19:30:00Z\"}");
+        addScreening("{\"screeningId\":\"S-42\",\"auditorium\":\"IMAX\",\"startsAt\":\"2026-06-06T19:30:00Z\"}");
+
+        // Weekday, standard auditorium: standing prices, 2 × £25 + £15
+        assertEquals(65, totalAmount(purchase("S-1")));
+        // Weekend: the site-wide weekend price for adults
+        assertEquals(75, totalAmount(purchase("S-2")));
+        // The IMAX premium beats the weekend price, and screening S-42 has cheap child tickets
+        assertEquals(85, totalAmount(purchase("S-42")));
+    }
+
+    @Test
+    @DisplayName("A purchase is priced by the screening on record, whatever else the buyer sends")
+    void purchase_ignoresClientScreeningFields() {
+        addSchedule("{\"ticketType\":\"ADULT\",\"startsAt\":\"2026-06-03T00:00:00Z\",\"endsAt\":\"2026-06-04T00:00:00Z\",\"price\":5}");
+        addScreening("{\"screeningId\":\"S-1\",\"auditorium\":\"IMAX\",\"startsAt\":\"2026-06-06T19:30:00Z\"}");
+
+        ApiResponse response = call("POST", "/api/tickets/purchase",
+            "{\"accountId\":1,\"screeningId\":\"S-1\",\"auditorium\":\"SCREEN-1\",\"startsAt\":\"2026-06-03T10:00:00Z\"," +
+            "\"tickets\":[{\"type\":\"ADULT\",\"quantity\":2},{\"type\":\"CHILD\",\"quantity\":1}]}");
+
+        assertEquals(65, totalAmount(response));
+    }
+
+    @Test
+    @DisplayName("Screenings are listed, and one that is deleted or never existed cannot be bought")
+    void screenings_areListedAndDeleted() {
+        assertEquals(201, addScreening("{\"screeningId\":\"S-1\",\"auditorium\":\"IMAX\",\"startsAt\":\"2026-06-06T19:30:00Z\"}").getStatus());
+        assertEquals(409, addScreening("{\"screeningId\":\"S-1\",\"startsAt\":\"2026-06-07T19:30:00Z\"}").getStatus());
+        assertEquals("{\"success\":true,\"screenings\":[{\"screeningId\":\"S-1\",\"auditorium\":\"IMAX\"," +
+                     "\"startsAt\":\"2026-06-06T19:30:00Z\"}]}", body(call("GET", "/api/tickets/screenings", null)));
+
+        assertEquals(200, purchase("S-1").getStatus());
+        assertEquals(400, purchase("S-2").getStatus());
+
+        assertEquals(200, call("DELETE", "/api/tickets/screenings/S-1", null).getStatus());
+        assertEquals(404, call("DELETE", "/api/tickets/screenings/S-1", null).getStatus());
+        assertEquals(400, purchase("S-1").getStatus());
+    }
+
+    @Test
+    @DisplayName("Schedules are listed, and a deleted one no longer applies")
+    void schedules_areListedAndDeleted() {
+        String added = body(addSchedule(
+            "{\"ticketType\":\"ADULT\",\"startsAt\":\"2026-06-01T00:00:00Z\",\"endsAt\":\"2026-07-01T00:00:00Z\",\"price\":10}"));
+        Matcher id = SCHEDULE_ID.matcher(added);
+        assertTrue(id.find(), added);
+
+        String listed = body(call("GET", "/api/tickets/schedules", null));
+        assertTrue(listed.contains("\"ticketType\":\"ADULT\",\"screeningId\":null,\"auditorium\":null," +
+                                   "\"startsAt\":\"2026-06-01T00:00:00Z\",\"endsAt\":\"2026-07-01T00:00:00Z\",\"price\":10"), listed);
+        addScreening("{\"screeningId\":\"S-1\",\"startsAt\":\"2026-06-03T19:30:00Z\"}");
+        assertEquals(35, totalAmount(purchase("S-1")));
+
+        assertEquals(200, call("DELETE", "/api/tickets/schedules/" + id.group(1), null).getStatus());
+        assertEquals(404, call("DELETE", "/api/tickets/schedules/" + id.group(1), null).getStatus());
+        assertEquals(65, totalAmount(purchase("S-1")));
+        assertEquals("{\"success\":true,\"schedules\":[]}", body(call("GET", "/api/tickets/schedules", null)));
+    }
+
+    @Test
+    @DisplayName("Malformed schedules and screenings are answered with 400")
+    void badRequests() {
+        assertEquals(400, addSchedule("{\"ticketType\":\"SENIOR\",\"startsAt\":\"2026-06-01T00:00:00Z\",\"endsAt\":\"2026-07-01T00:00:00Z\",\"price\":10}").getStatus());
+        assertEquals(400, addSchedule("{\"ticketType\":\"ADULT\",\"startsAt\":\"2026-07-01T00:00:00Z\",\"endsAt\":\"2026-06-01T00:00:00Z\",\"price\":10}").getStatus());
+        assertEquals(400, addSchedule("{\"ticketType\":\"ADULT\",\"startsAt\":\"tomorrow\",\"endsAt\":\"2026-06-01T00:00:00Z\",\"price\":10}").getStatus());
+        assertEquals(400, addSchedule("{\"ticketType\":\"ADULT\",\"screeningId\":\"S-1\",\"auditorium\":\"IMAX\"," +
+                                      "\"startsAt\":\"2026-06-01T00:00:00Z\",\"endsAt\":\"2026-07-01T00:00:00Z\",\"price\":10}").getStatus());
+        assertEquals(400, addScreening("{\"screeningId\":\"S-1\"}").getStatus());
+        assertEquals(400, addScreening("{\"screeningId\":\"S-1\",\"startsAt\":\"tonight\"}").getStatus());
+    }
+
+    // Helpers
+
+    private ApiResponse addSchedule(String json) {
+        return call("POST", "/api/tickets/schedules", json);
+    }
+
+    private ApiResponse addScreening(String json) {
+        return call("POST", "/api/tickets/screenings", json);
+    }
+
+    // 2 adults and 1 child for the given screening
+    private ApiResponse purchase(String screeningId) {
+        return call("POST", "/api/tickets/purchase", "{\"accountId\":1,\"screeningId\":\"" + screeningId + "\"" +
+            ",\"tickets\":[{\"type\":\"ADULT\",\"quantity\":2},{\"type\":\"CHILD\",\"quantity\":1}]}");
+    }
+
+    private ApiResponse call(String method, String path, String json) {
+        ApiRequest request = new ApiRequest(method, path, null, Map.of("authorization", "Bearer " + ADMIN_TOKEN),
+                                            json == null ? null : json.getBytes(StandardCharsets.UTF_8));
+        Router.Route route = router.match(path);
+        assertNotNull(route, "no route for " + path);
+        return router.handle(route, request);
+    }
+
+    private static int totalAmount(ApiResponse response) {
+        Matcher m = Pattern.compile("\"totalAmount\":(\\d+)").matcher(body(response));
+        assertTrue(m.find(), body(response));
+        return Integer.parseInt(m.group(1));
+    }
+
+    private static String body(ApiResponse response) {
+        return new String(response.getBody(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,178 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.auth.AccountTokens;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.domain.OutboxEntry;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.history.PurchaseHistoryRecorder;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.http.ApiRequest;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.http.ApiResponse;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.http.Router;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.outbox.OutboxDispatcher;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.repository.PurchaseOutboxRepository;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.repository.PurchaseHistoryRepository;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.repository.TicketPriceRepository;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for {@code GET /api/accounts/{id}/purchases} in {@link Server}: purchases made through the
+ * router are recorded and read back a page at a time, by the account's owner only.
+ */
+class ServerPurchaseHistoryTest {
+
+    private static final Pattern       NEXT_CURSOR = Pattern.compile("\"nextCursor\":\"([^\"]+)\"");
+    private static final AccountTokens TOKENS      = AccountTokens.of("account-secret");
+
+    private PurchaseHistoryRecorder history;
+    private Router                  router;
+
+    @BeforeEach
+    void setUp() {
+        history = new PurchaseHistoryRecorder(new PurchaseHistoryRepository(
+            "jdbc:h2:mem:history-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1"));
+        router = Server.createRouter(
+            RouterConfig.builder((accountId, amount) -> { }, (accountId, seats) -> { }, new TicketPriceRepository())
+                .history(history)
+                .accountTokens(TOKENS)
+                .build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        history.shutdown();
+    }
+
+    @Test
+    @DisplayName("Completed purchases are listed newest first, a page at a time")
+    void completedPurchases_arePaged() {
+        for (int adults = 1; adults <= 5; adults++) {
+            assertEquals(200, purchase(1, adults).getStatus());
+        }
+        purchase(2, 1);
+        history.shutdown(); // flush
+
+        String first = body(call("/api/accounts/1/purchases", "limit=3", ownerOf(1)));
+        assertTrue(first.contains("\"adults\":5"), first);
+        assertTrue(first.contains("\"adults\":3"), first);
+        assertFalse(first.contains("\"adults\":2"), first);
+
+        Matcher cursor = NEXT_CURSOR.matcher(first);
+        assertTrue(cursor.find(), first);
+
+        String second = body(call("/api/accounts/1/purchases", "limit=3&after=" + cursor.group(1), ownerOf(1)));
+        assertTrue(second.contains("\"adults\":2,\"children\":0,\"infants\":0,\"totalAmount\":50"), second);
+        assertTrue(second.contains("\"adults\":1"), second);
+        assertTrue(second.endsWith("\"nextCursor\":null}"), second);
+    }
+
+    @Test
+    @DisplayName("Rejected purchases are not recorded")
+    void rejectedPurchase_isNotRecorded() {
+        assertEquals(400, purchase(1, 0).getStatus());
+        history.shutdown();
+
+        assertEquals("{\"success\":true,\"accountId\":1,\"purchases\":[],\"nextCursor\":null}",
+                     body(call("/api/accounts/1/purchases", null, ownerOf(1))));
+    }
+
+    @Test
+    @DisplayName("Purchases accepted into the outbox are recorded once dispatched")
+    void outboxPurchase_isRecordedOnCompletion() throws Exception {
+        OutboxDispatcher outbox = new OutboxDispatcher(new PurchaseOutboxRepository(
+            "jdbc:h2:mem:history-outbox-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1"),
+            (accountId, amount) -> { }, (accountId, seats) -> { }, 1);
+        router = Server.createRouter(
+            RouterConfig.builder((accountId, amount) -> { }, (accountId, seats) -> { }, new TicketPriceRepository())
+                .outbox(outbox)
+                .history(history)
+                .accountTokens(TOKENS)
+                .build());
+        outbox.start();
+
+        assertEquals(202, purchase(3, 2).getStatus());
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (outbox.findPurchase(1).orElseThrow().getStatus() != OutboxEntry.Status.COMPLETED
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        outbox.shutdown(); // lets the worker finish telling the listener
+        history.shutdown();
+
+        assertTrue(body(call("/api/accounts/3/purchases", null, ownerOf(3))).contains("\"adults\":2,\"children\":0"));
+    }
+
+    @Test
+    @DisplayName("Only the account's owner may list its purchases")
+    void otherCallers_areRefused() {
+        purchase(1, 1);
+        history.shutdown();
+
+        String expired = "Bearer " + TOKENS.issue(1, Instant.now().minus(Duration.ofMinutes(1)));
+        String forged  = "Bearer " + AccountTokens.of("guess").issue(1, Instant.now().plus(Duration.ofHours(1)));
+
+        ApiResponse anonymous = call("/api/accounts/1/purchases", null, null);
+        assertEquals(401, anonymous.getStatus());
+        assertEquals("Bearer", anonymous.getHeaders().get("WWW-Authenticate"));
+        assertEquals(401, call("/api/accounts/1/purchases", null, expired).getStatus());
+        assertEquals(401, call("/api/accounts/1/purchases", null, forged).getStatus());
+        assertEquals(403, call("/api/accounts/1/purchases", null, ownerOf(2)).getStatus());
+        assertEquals(200, call("/api/accounts/1/purchases", null, ownerOf(1)).getStatus());
+    }
+
+    @Test
+    @DisplayName("Without a configured secret purchase history is refused")
+    void noSecret_disablesHistory() {
+        router = Server.createRouter(
+            RouterConfig.builder((accountId, amount) -> { }, (accountId, seats) -> { }, new TicketPriceRepository())
+                .history(history)
+                .accountTokens(AccountTokens.disabled())
+                .build());
+
+        assertEquals(403, call("/api/accounts/1/purchases", null, ownerOf(1)).getStatus());
+    }
+
+    @Test
+    @DisplayName("Bad limits, cursors and paths are answered with 400 or 404")
+    void badRequests() {
+        assertEquals(400, call("/api/accounts/1/purchases", "limit=0", ownerOf(1)).getStatus());
+        assertEquals(400, call("/api/accounts/1/purchases", "limit=" + (Server.MAX_PAGE_SIZE + 1), ownerOf(1)).getStatus());
+        assertEquals(400, call("/api/accounts/1/purchases", "after=yesterday", ownerOf(1)).getStatus());
+        assertEquals(404, call("/api/accounts/abc/purchases", null, ownerOf(1)).getStatus());
+    }
+
+    // Helpers
+
+    private ApiResponse purchase(long accountId, int adults) {
+        String order = "{\"accountId\":" + accountId + ",\"tickets\":[{\"type\":\"ADULT\",\"quantity\":" + adults + "}]}";
+        return handle(new ApiRequest("POST", "/api/tickets/purchase", null, Map.of(),
+                                     order.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private ApiResponse call(String path, String query, String authorization) {
+        return handle(new ApiRequest("GET", path, query,
+                                     authorization == null ? Map.of() : Map.of("authorization", authorization), null));
+    }
+
+    private static String ownerOf(long accountId) {
+        return "Bearer " + TOKENS.issue(accountId, Instant.now().plus(Duration.ofHours(1)));
+    }
+
+    private ApiResponse handle(ApiRequest request) {
+        Router.Route route = router.match(request.getPath());
+        assertNotNull(route, "no route for " + request.getPath());
+        return router.handle(route, request);
+    }
+
+    private static String body(ApiResponse response) {
+        return new String(response.getBody(), StandardCharsets.UTF_8);
+    }
+}
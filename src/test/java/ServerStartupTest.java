@@ -0,0 +1,94 @@
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.http.ApiRequest;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.http.ApiResponse;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.http.Router;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.repository.TicketPriceRepository;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.startup.Readiness;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for fast-startup readiness in {@link Server}: the endpoints are registered before storage
+ * is initialised, and only liveness is reported until {@link Readiness#markReady()}.
+ */
+class ServerStartupTest {
+
+    private static final String ORDER = "{\"accountId\":1,\"tickets\":[{\"type\":\"ADULT\",\"quantity\":1}]}";
+
+    private final TicketPriceRepository priceRepository = new TicketPriceRepository(false);
+    private final Readiness             readiness       = Readiness.starting();
+
+    private Router router;
+
+    @BeforeEach
+    void setUp() {
+        router = Server.createRouter(
+            RouterConfig.builder((accountId, amount) -> { }, (accountId, seats) -> { }, priceRepository)
+                .readiness(readiness)
+                .build());
+    }
+
+    @Test
+    @DisplayName("While storage initialises the service is live but not ready")
+    void beforeStorageIsReady_onlyLivenessIsReported() {
+        assertEquals(200, call("GET", "/health/live", null).getStatus());
+        assertEquals(503, call("GET", "/health/ready", null).getStatus());
+
+        ApiResponse health = call("GET", "/health", null);
+        assertEquals(200, health.getStatus());
+        assertEquals("{\"status\":\"UP\",\"ready\":false}", body(health));
+    }
+
+    @Test
+    @DisplayName("Storage-backed endpoints answer 503 with Retry-After until ready")
+    void beforeStorageIsReady_storageEndpointsAnswer503() {
+        ApiResponse prices   = call("GET",  "/api/tickets/prices",   null);
+        ApiResponse purchase = call("POST", "/api/tickets/purchase", ORDER);
+
+        assertEquals(503, prices.getStatus());
+        assertEquals(503, purchase.getStatus());
+        assertEquals("1", purchase.getHeaders().get("Retry-After"));
+    }
+
+    @Test
+    @DisplayName("Once storage is initialised and readiness marked, every endpoint serves normally")
+    void afterStorageIsReady_endpointsServe() {
+        priceRepository.initialise();
+        readiness.markReady();
+
+        assertEquals(200, call("GET", "/health/ready", null).getStatus());
+        assertEquals(200, call("GET", "/api/tickets/prices", null).getStatus());
+
+        ApiResponse purchase = call("POST", "/api/tickets/purchase", ORDER);
+        assertEquals(200, purchase.getStatus());
+        assertTrue(body(purchase).contains("\"totalAmount\":25"), body(purchase));
+    }
+
+    @Test
+    @DisplayName("The health lane serves only the health probes; diagnostics have their own")
+    void healthLane_isLeftToProbes() {
+        for (String probe : new String[] {"/health", "/health/live", "/health/ready"}) {
+            assertEquals("health", router.match(probe).getBulkhead().getName(), probe);
+        }
+        assertEquals("diagnostics", router.match("/api/bulkheads").getBulkhead().getName());
+        assertEquals("diagnostics", router.match("/api/limiter").getBulkhead().getName());
+    }
+
+    // Helpers
+
+    private ApiResponse call(String method, String path, String body) {
+        Router.Route route = router.match(path);
+        assertNotNull(route, "no route for " + path);
+        return router.handle(route, new ApiRequest(method, path, null, Map.of(),
+                body == null ? null : body.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static String body(ApiResponse response) {
+        return new String(response.getBody(), StandardCharsets.UTF_8);
+    }
+}
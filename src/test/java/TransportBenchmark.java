@@ -0,0 +1,181 @@
+import com.sun.net.httpserver.HttpServer;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.http.JdkHttpTransport;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.http.NioHttpServer;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.http.Router;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.repository.TicketPriceRepository;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput and latency of the two HTTP transports, serving the same {@link Router} from
+ * {@link Server#createRouter}. Not a unit test; run it by hand:
+ *
+ * <pre>
+ * mvn -q test-compile exec:java -Dexec.mainClass=TransportBenchmark -Dexec.classpathScope=test
+ * </pre>
+ *
+ * <p>Each client holds one keep-alive connection and sends purchases back to back over it.
+ * Payment and seat calls are no-ops and request logging is silenced, so the figures are the
+ * transport's own overhead. Arguments: {@code [clients] [seconds]}, default 32 and 10.</p>
+ *
+ * <p>The JDK server leaves Nagle's algorithm on by default, which adds a delayed-ACK stall of
+ * tens of milliseconds to every keep-alive response; add {@code -Dsun.net.httpserver.nodelay=true}
+ * to compare against it at its best.</p>
+ */
+public class TransportBenchmark {
+
+    /** One client's loop: sends requests over one connection until the deadline, returning each latency in nanos. */
+    @FunctionalInterface
+    interface Driver {
+        long[] drive(int port, long deadline) throws IOException;
+    }
+
+    static final String PURCHASE_BODY =
+        "{\"accountId\":1,\"tickets\":[{\"type\":\"ADULT\",\"quantity\":2},{\"type\":\"CHILD\",\"quantity\":1}]}";
+
+    private static final byte[] PURCHASE_REQUEST = ("POST /api/tickets/purchase HTTP/1.1\r\n"
+        + "Host: localhost\r\n"
+        + "Content-Type: application/json\r\n"
+        + "Content-Length: " + PURCHASE_BODY.length() + "\r\n"
+        + "\r\n"
+        + PURCHASE_BODY).getBytes(StandardCharsets.ISO_8859_1);
+
+    public static void main(String[] args) throws Exception {
+        int  clients = args.length > 0 ? Integer.parseInt(args[0]) : 32;
+        long seconds = args.length > 1 ? Long.parseLong(args[1]) : 10;
+
+        PrintStream console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        System.setProperty("tickets.limiter", "false"); // measure the transport, not load shedding
+
+        TicketPriceRepository prices = new TicketPriceRepository();
+        console.printf("clients=%d, %ds per run, keep-alive POST /api/tickets/purchase%n", clients, seconds);
+
+        HttpServer jdk = JdkHttpTransport.create(new InetSocketAddress("localhost", 0), router(prices));
+        jdk.start();
+        try {
+            run(console, "jdk  (warm-up)", jdk.getAddress().getPort(), clients, Math.max(1, seconds / 3), TransportBenchmark::drive);
+            run(console, "jdk", jdk.getAddress().getPort(), clients, seconds, TransportBenchmark::drive);
+        } finally {
+            jdk.stop(0);
+        }
+
+        NioHttpServer nio = new NioHttpServer(new InetSocketAddress("localhost", 0), router(prices));
+        nio.start();
+        try {
+            run(console, "nio  (warm-up)", nio.getAddress().getPort(), clients, Math.max(1, seconds / 3), TransportBenchmark::drive);
+            run(console, "nio", nio.getAddress().getPort(), clients, seconds, TransportBenchmark::drive);
+        } finally {
+            nio.stop(1_000);
+        }
+
+        System.exit(0);
+    }
+
+    static Router router(TicketPriceRepository prices) {
+        return Server.createRouter(RouterConfig.builder((accountId, amount) -> { }, (accountId, seats) -> { }, prices).build());
+    }
+
+    static void run(PrintStream console, String label, int port, int clients, long seconds, Driver driver) throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+
+        ExecutorService pool = Executors.newFixedThreadPool(clients);
+        List<Future<long[]>> results = new ArrayList<>();
+        for (int i = 0; i < clients; i++) {
+            results.add(pool.submit(() -> driver.drive(port, deadline)));
+        }
+
+        long[] latencies = new long[0];
+        for (Future<long[]> result : results) {
+            long[] client = result.get();
+            int offset = latencies.length;
+            latencies = Arrays.copyOf(latencies, offset + client.length);
+            System.arraycopy(client, 0, latencies, offset, client.length);
+        }
+        pool.shutdown();
+        Arrays.sort(latencies);
+
+        console.printf(Locale.ROOT, "  %-15s %9.0f req/s   p50 %7.3f ms   p99 %7.3f ms   (%d requests)%n",
+            label, latencies.length / (double) seconds,
+            percentile(latencies, 0.50), percentile(latencies, 0.99), latencies.length);
+    }
+
+    // One keep-alive connection sending JSON purchases until the deadline
+    static long[] drive(int port, long deadline) throws IOException {
+        long[] latencies = new long[1 << 16];
+        int    count     = 0;
+        try (Socket socket = new Socket("localhost", port)) {
+            socket.setTcpNoDelay(true);
+            OutputStream out = socket.getOutputStream();
+            InputStream  in  = new BufferedInputStream(socket.getInputStream());
+
+            while (System.nanoTime() < deadline) {
+                long start = System.nanoTime();
+                out.write(PURCHASE_REQUEST);
+                out.flush();
+                int status = readResponse(in);
+                if (status != 200) {
+                    throw new IOException("Unexpected status " + status);
+                }
+                if (count == latencies.length) {
+                    latencies = Arrays.copyOf(latencies, count * 2);
+                }
+                latencies[count++] = System.nanoTime() - start;
+            }
+        }
+        return Arrays.copyOf(latencies, count);
+    }
+
+    // Reads one response and returns its status, skipping the body by Content-Length
+    private static int readResponse(InputStream in) throws IOException {
+        StringBuilder line          = new StringBuilder();
+        int           status        = -1;
+        int           contentLength = 0;
+        while (true) {
+            int b = in.read();
+            if (b < 0) {
+                throw new IOException("Connection closed");
+            }
+            if (b != '\n') {
+                if (b != '\r') {
+                    line.append((char) b);
+                }
+                continue;
+            }
+            if (line.length() == 0) {
+                break;
+            }
+            String header = line.toString();
+            if (status < 0) {
+                status = Integer.parseInt(header.substring(9, 12));
+            } else if (header.regionMatches(true, 0, "Content-Length:", 0, 15)) {
+                contentLength = Integer.parseInt(header.substring(15).trim());
+            }
+            line.setLength(0);
+        }
+        in.skipNBytes(contentLength);
+        return status;
+    }
+
+    static double percentile(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        return sorted[Math.min(sorted.length - 1, (int) (sorted.length * p))] / 1_000_000.0;
+    }
+}
@@ -0,0 +1,62 @@
+package uk.gov.dwp.uc.pairtest.cinema.tickets;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Measures the bytes the calling thread allocates per call, for the allocation-regression tests.
+ *
+ * <p>Uses the HotSpot {@code ThreadMXBean} allocation counter. After a warm-up, the call is timed
+ * over several rounds and the median round's average is taken, so one round disturbed by a JIT
+ * recompilation or a JDK-internal allocation cannot trip a budget.</p>
+ */
+public final class AllocationMeter {
+
+    private static final int ROUNDS = 5;
+
+    private static com.sun.management.ThreadMXBean threads;
+
+    private AllocationMeter() {
+    }
+
+    /**
+     * Turns the allocation counters on, or skips the calling test class on a JVM without them.
+     * Call from {@code @BeforeAll}.
+     */
+    public static void enable() {
+        assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean,
+                "Thread allocation counters need a HotSpot-compatible JVM");
+        threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threads.isThreadAllocatedMemorySupported(), "Thread allocation counters not supported");
+        threads.setThreadAllocatedMemoryEnabled(true);
+    }
+
+    public static void assertWithinBudget(String label, long budgetBytes, int warmupCalls, int measuredCalls,
+                                          Runnable call) {
+        long perCall = allocatedBytesPerCall(warmupCalls, measuredCalls, call);
+        System.out.printf("[Alloc] %-24s %,8d bytes/call (budget %,d)%n", label, perCall, budgetBytes);
+        assertTrue(perCall <= budgetBytes,
+                label + " allocated " + perCall + " bytes/call, budget is " + budgetBytes);
+    }
+
+    // Median over ROUNDS rounds of the average bytes per call
+    private static long allocatedBytesPerCall(int warmupCalls, int measuredCalls, Runnable call) {
+        for (int i = 0; i < warmupCalls; i++) {
+            call.run();
+        }
+        long   threadId = Thread.currentThread().getId();
+        long[] rounds   = new long[ROUNDS];
+        for (int r = 0; r < ROUNDS; r++) {
+            long before = threads.getThreadAllocatedBytes(threadId);
+            for (int i = 0; i < measuredCalls; i++) {
+                call.run();
+            }
+            rounds[r] = (threads.getThreadAllocatedBytes(threadId) - before) / measuredCalls;
+        }
+        Arrays.sort(rounds);
+        return rounds[ROUNDS / 2];
+    }
+}
@@ -0,0 +1,109 @@
+package uk.gov.dwp.uc.pairtest.cinema.tickets;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.domain.TicketTypeRequest;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.domain.TicketTypeRequest.Type;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.exception.InvalidPurchaseException;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.quota.PurchaseCaps;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.repository.TicketPriceRepository;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Allocation-regression tests for {@link TicketServiceImpl#purchaseTickets}.
+ *
+ * <p>Each test measures the bytes the calling thread allocates per purchase with
+ * {@link AllocationMeter}, which takes the median of several rounds, and fails when that goes
+ * over the recorded budget. The rejection budgets are set at roughly twice the measured value,
+ * so a change that doubles the garbage still trips them. The valid-purchase budget is several
+ * times its figure, because a few stray bytes are a large share of so small a number, and it
+ * would still catch a purchase that started allocating per ticket or per request. The
+ * valid-purchase figures were measured with the default JIT, with {@code -XX:-DoEscapeAnalysis}
+ * and with {@code -Xint}, and came out the same each time.
+ * They do not depend on the JIT removing allocations.</p>
+ *
+ * <p>The third-party services are no-op lambdas rather than Mockito mocks, because mocks
+ * record every invocation and would dominate the measurement.</p>
+ */
+class TicketServiceImplAllocationTest {
+
+    private static final int WARMUP_CALLS   = 2_000;
+    private static final int MEASURED_CALLS = 2_000;
+
+    // Budgets in bytes per call
+    private static final long VALID_PURCHASE_BUDGET   = 512;      // measured ~56 B: the PurchaseOrder, nothing else
+    private static final long INVALID_ACCOUNT_BUDGET  = 4_500;    // measured ~2.3 KB
+    private static final long BUSINESS_RULE_BUDGET    = 4_500;    // measured ~2.1 KB
+
+    private TicketServiceImpl ticketService;
+
+    @BeforeAll
+    static void enableAllocationCounters() {
+        AllocationMeter.enable();
+    }
+
+    @BeforeEach
+    void setUp() {
+        ticketService = new TicketServiceImpl((accountId, amount) -> { }, (accountId, seats) -> { });
+    }
+
+    @Test
+    @DisplayName("Valid mixed purchase stays within its allocation budget")
+    void validPurchase_withinBudget() {
+        TicketTypeRequest[] order = {
+            new TicketTypeRequest(Type.ADULT,  2),
+            new TicketTypeRequest(Type.CHILD,  3),
+            new TicketTypeRequest(Type.INFANT, 2)
+        };
+        assertWithinBudget("valid purchase", VALID_PURCHASE_BUDGET,
+                () -> ticketService.purchaseTickets(1L, order));
+    }
+
+    @Test
+    @DisplayName("Valid purchase counted against per-account caps stays within the same budget")
+    void validPurchaseWithCaps_withinBudget() {
+        TicketServiceImpl capped = new TicketServiceImpl((accountId, amount) -> { }, (accountId, seats) -> { },
+            new TicketPriceRepository(), PurchaseListener.NONE, new PurchaseCaps(Integer.MAX_VALUE / 2, 0, 1 << 16));
+        TicketTypeRequest[] order = {
+            new TicketTypeRequest(Type.ADULT,  2),
+            new TicketTypeRequest(Type.CHILD,  3),
+            new TicketTypeRequest(Type.INFANT, 2)
+        };
+        assertWithinBudget("valid purchase, capped", VALID_PURCHASE_BUDGET,
+                () -> capped.purchaseTickets(1L, order));
+    }
+
+    @Test
+    @DisplayName("Order rejected for an invalid account stays within its allocation budget")
+    void invalidAccount_withinBudget() {
+        TicketTypeRequest adult = new TicketTypeRequest(Type.ADULT, 1);
+        assertWithinBudget("invalid account", INVALID_ACCOUNT_BUDGET,
+                () -> expectRejected(() -> ticketService.purchaseTickets(0L, adult)));
+    }
+
+    @Test
+    @DisplayName("Order rejected by a business rule stays within its allocation budget")
+    void businessRuleRejection_withinBudget() {
+        TicketTypeRequest child = new TicketTypeRequest(Type.CHILD, 1);
+        assertWithinBudget("business rule rejection", BUSINESS_RULE_BUDGET,
+                () -> expectRejected(() -> ticketService.purchaseTickets(1L, child)));
+    }
+
+    // Helpers
+
+    private static void expectRejected(Runnable call) {
+        try {
+            call.run();
+        } catch (InvalidPurchaseException expected) {
+            return;
+        }
+        fail("Expected the purchase to be rejected");
+    }
+
+    private static void assertWithinBudget(String label, long budgetBytes, Runnable call) {
+        AllocationMeter.assertWithinBudget(label, budgetBytes, WARMUP_CALLS, MEASURED_CALLS, call);
+    }
+}
@@ -0,0 +1,161 @@
+package uk.gov.dwp.uc.pairtest.cinema.tickets;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import thirdparty.paymentgateway.TicketPaymentService;
+import thirdparty.seatbooking.SeatReservationService;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.domain.TicketTypeRequest;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.domain.TicketTypeRequest.Type;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.exception.InvalidPurchaseException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Concurrency stress tests for {@link TicketServiceImpl}.
+ *
+ * <p>Many purchases are released at once from a thread pool against recording stand-ins for the
+ * third-party services. Every order uses its own account id, so each charge and reservation can be
+ * matched back to the order that caused it.</p>
+ */
+class TicketServiceImplConcurrencyTest {
+
+    private static final int THREADS = 32;
+    private static final int ORDERS  = 2_000;
+
+    private final RecordingPaymentService   paymentService = new RecordingPaymentService();
+    private final RecordingSeatService      seatService    = new RecordingSeatService();
+
+    private TicketServiceImpl ticketService;
+    private ExecutorService   pool;
+
+    @BeforeEach
+    void setUp() {
+        ticketService = new TicketServiceImpl(paymentService, seatService);
+        pool = Executors.newFixedThreadPool(THREADS);
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("Concurrent valid purchases are each charged and seated exactly once with their own totals")
+    void concurrentPurchases_chargeAndSeatEachOrderCorrectly() throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> results = new ArrayList<>();
+
+        for (int i = 0; i < ORDERS; i++) {
+            long accountId = i + 1;
+            int  adults    = 1 + (i % 10);
+            int  children  = i % 7;
+            int  infants   = Math.min(i % 3, adults);
+            results.add(pool.submit(() -> {
+                start.await();
+                ticketService.purchaseTickets(accountId,
+                    new TicketTypeRequest(Type.ADULT,  adults),
+                    new TicketTypeRequest(Type.CHILD,  children),
+                    new TicketTypeRequest(Type.INFANT, infants));
+                return null;
+            }));
+        }
+
+        start.countDown();
+        for (Future<?> result : results) {
+            result.get(30, TimeUnit.SECONDS);
+        }
+
+        assertEquals(ORDERS, paymentService.charges.size());
+        assertEquals(ORDERS, seatService.reservations.size());
+
+        for (int i = 0; i < ORDERS; i++) {
+            long accountId = i + 1;
+            int  adults    = 1 + (i % 10);
+            int  children  = i % 7;
+
+            assertEquals(adults * 25 + children * 15, paymentService.charges.get(accountId),
+                    "amount charged for account " + accountId);
+            assertEquals(adults + children, seatService.reservations.get(accountId),
+                    "seats reserved for account " + accountId);
+        }
+    }
+
+    @Test
+    @DisplayName("Concurrent invalid purchases interleaved with valid ones never reach the third parties")
+    void concurrentMixedPurchases_onlyValidOrdersReachThirdParties() throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Boolean>> results = new ArrayList<>();
+
+        for (int i = 0; i < ORDERS; i++) {
+            long    accountId = i + 1;
+            boolean valid     = i % 2 == 0;
+            results.add(pool.submit(() -> {
+                start.await();
+                try {
+                    ticketService.purchaseTickets(accountId,
+                        new TicketTypeRequest(valid ? Type.ADULT : Type.CHILD, 2));
+                    return true;
+                } catch (InvalidPurchaseException e) {
+                    return false;
+                }
+            }));
+        }
+
+        start.countDown();
+        for (int i = 0; i < ORDERS; i++) {
+            assertEquals(i % 2 == 0, results.get(i).get(30, TimeUnit.SECONDS), "outcome of order " + i);
+        }
+
+        assertEquals(ORDERS / 2, paymentService.charges.size());
+        assertEquals(ORDERS / 2, seatService.reservations.size());
+        for (long accountId : paymentService.charges.keySet()) {
+            assertEquals(1, accountId % 2, "only odd (valid) account ids should be charged");
+            assertEquals(50, paymentService.charges.get(accountId));
+            assertEquals(2,  seatService.reservations.get(accountId));
+        }
+    }
+
+    // Recording stand-ins
+
+    /** Records every charge by account; a second charge for the same account fails the test. */
+    static class RecordingPaymentService implements TicketPaymentService {
+        final Map<Long, Integer> charges = new ConcurrentHashMap<>();
+
+        @Override
+        public void makePayment(long accountId, int totalAmountToPay) {
+            jitter();
+            assertNull(charges.putIfAbsent(accountId, totalAmountToPay), "account charged twice: " + accountId);
+        }
+    }
+
+    /** Records every reservation by account; a second reservation for the same account fails the test. */
+    static class RecordingSeatService implements SeatReservationService {
+        final Map<Long, Integer> reservations = new ConcurrentHashMap<>();
+
+        @Override
+        public void reserveSeat(long accountId, int totalSeatsToAllocate) {
+            jitter();
+            assertNull(reservations.putIfAbsent(accountId, totalSeatsToAllocate), "seats reserved twice: " + accountId);
+        }
+    }
+
+    // Widens race windows without slowing the run noticeably
+    private static void jitter() {
+        if (ThreadLocalRandom.current().nextInt(4) == 0) {
+            Thread.yield();
+        }
+    }
+}
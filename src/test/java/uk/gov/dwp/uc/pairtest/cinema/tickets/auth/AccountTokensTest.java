@@ -0,0 +1,51 @@
+package uk.gov.dwp.uc.pairtest.cinema.tickets.auth;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for {@link AccountTokens}.
+ */
+class AccountTokensTest {
+
+    private static final Instant NOW = Instant.parse("2026-06-01T12:00:00Z");
+
+    private final AccountTokens tokens = AccountTokens.of("secret", Clock.fixed(NOW, ZoneOffset.UTC));
+
+    @Test
+    @DisplayName("A token names the account it was issued for until it expires")
+    void issuedToken_namesItsAccount() {
+        assertEquals(42, tokens.accountOf("Bearer " + tokens.issue(42, NOW.plusSeconds(1))));
+        assertEquals(AccountTokens.NONE, tokens.accountOf("Bearer " + tokens.issue(42, NOW)));
+    }
+
+    @Test
+    @DisplayName("Altered, malformed and missing tokens name no account")
+    void badTokens_nameNoAccount() {
+        String token = tokens.issue(42, NOW.plusSeconds(60));
+        String later = token.substring(0, token.indexOf('.')) + "." + NOW.plusSeconds(3_600).getEpochSecond()
+                     + token.substring(token.lastIndexOf('.'));
+
+        assertEquals(AccountTokens.NONE, tokens.accountOf("Bearer 43" + token.substring(2)));
+        assertEquals(AccountTokens.NONE, tokens.accountOf("Bearer " + later));
+        assertEquals(AccountTokens.NONE, tokens.accountOf("Bearer " + token + "x"));
+        assertEquals(AccountTokens.NONE, tokens.accountOf(token));
+        assertEquals(AccountTokens.NONE, tokens.accountOf("Bearer 42"));
+        assertEquals(AccountTokens.NONE, tokens.accountOf("Bearer 42.x.!!"));
+        assertEquals(AccountTokens.NONE, tokens.accountOf(null));
+    }
+
+    @Test
+    @DisplayName("Without a secret no token is accepted and none can be issued")
+    void disabled_refusesEverything() {
+        assertFalse(AccountTokens.of(" ").isEnabled());
+        assertEquals(AccountTokens.NONE, AccountTokens.disabled().accountOf("Bearer " + tokens.issue(42, NOW.plusSeconds(60))));
+        assertThrows(IllegalStateException.class, () -> AccountTokens.disabled().issue(42, NOW.plusSeconds(60)));
+    }
+}
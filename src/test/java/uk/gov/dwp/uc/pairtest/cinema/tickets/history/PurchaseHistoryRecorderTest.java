@@ -0,0 +1,180 @@
+package uk.gov.dwp.uc.pairtest.cinema.tickets.history;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.domain.PurchaseHistoryEntry;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.domain.PurchaseOrder;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.repository.PurchaseHistoryRepository;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for {@link PurchaseHistoryRecorder} and the keyset pages it reads, against a private
+ * in-memory H2 database per test.
+ */
+class PurchaseHistoryRecorderTest {
+
+    private static final Instant START = Instant.parse("2026-01-01T10:00:00Z");
+
+    private String                    dbUrl;
+    private PurchaseHistoryRepository repository;
+    private PurchaseHistoryRecorder   recorder;
+
+    @BeforeEach
+    void setUp() {
+        dbUrl      = "jdbc:h2:mem:history-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1";
+        repository = new PurchaseHistoryRepository(dbUrl);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (recorder != null) {
+            recorder.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("Purchases queued before the writer starts are stored together in one batch")
+    void queuedPurchases_areWrittenInOneBatch() throws Exception {
+        recorder = new PurchaseHistoryRecorder(repository, 1_000, 500);
+        for (int i = 0; i < 50; i++) {
+            recorder.purchaseCompleted(new PurchaseOrder(7L, 1, 0, 0, 25, 1));
+        }
+
+        recorder.start();
+        awaitWritten(50);
+
+        assertEquals(1, recorder.getBatchCount());
+        assertEquals(50, recorder.findPurchases(7L, 100).size());
+    }
+
+    @Test
+    @DisplayName("A full queue is written by the purchasing thread rather than dropped")
+    void fullQueue_isWrittenByCaller() {
+        recorder = new PurchaseHistoryRecorder(repository, 10, 10); // writer never started
+
+        for (int i = 0; i < 25; i++) {
+            recorder.purchaseCompleted(new PurchaseOrder(7L, 1, 0, 0, 25, 1));
+        }
+
+        assertEquals(20, recorder.getWrittenCount());
+        recorder.shutdown();
+        assertEquals(25, recorder.findPurchases(7L, 100).size());
+    }
+
+    @Test
+    @DisplayName("A batch the database turns down is retried until it is stored")
+    void failedBatch_isRetried() throws Exception {
+        recorder = new PurchaseHistoryRecorder(failingFor(2), 1_000, 500);
+
+        recorder.purchaseCompleted(new PurchaseOrder(7L, 1, 0, 0, 25, 1));
+        recorder.start();
+        awaitWritten(1);
+        recorder.purchaseCompleted(new PurchaseOrder(7L, 2, 0, 0, 50, 2));
+        awaitWritten(2);
+
+        assertEquals(2, recorder.getRetryCount());
+        assertEquals(2, recorder.findPurchases(7L, 100).size());
+    }
+
+    @Test
+    @DisplayName("Shutdown retries what the database turned down")
+    void shutdown_retriesFailedBatches() {
+        recorder = new PurchaseHistoryRecorder(failingFor(1), 1_000, 500); // writer never started
+
+        recorder.purchaseCompleted(new PurchaseOrder(7L, 1, 0, 0, 25, 1));
+        recorder.shutdown();
+
+        assertEquals(1, recorder.findPurchases(7L, 100).size());
+    }
+
+    @Test
+    @DisplayName("While the database is failing, a purchase finding the queue full is dropped rather than held up")
+    void fullQueueDuringOutage_dropsRatherThanBlocks() {
+        recorder = new PurchaseHistoryRecorder(failingFor(Integer.MAX_VALUE), 1, 10); // writer never started
+
+        recorder.purchaseCompleted(new PurchaseOrder(7L, 1, 0, 0, 25, 1));
+        recorder.purchaseCompleted(new PurchaseOrder(7L, 1, 0, 0, 25, 1)); // its batch fails, then it queues
+
+        assertTimeoutPreemptively(Duration.ofSeconds(2), () ->
+            recorder.purchaseCompleted(new PurchaseOrder(7L, 1, 0, 0, 25, 1)));
+        assertEquals(1, recorder.getDroppedCount());
+        assertEquals(0, recorder.getWrittenCount());
+    }
+
+    @Test
+    @DisplayName("Keyset pages walk an account's purchases newest first with no gaps or repeats")
+    void keysetPages_coverEveryPurchaseOnce() {
+        List<PurchaseHistoryEntry> entries = new ArrayList<>();
+        for (int i = 0; i < 45; i++) {
+            // pairs share a timestamp, so the id has to break ties
+            entries.add(new PurchaseHistoryEntry(0, new PurchaseOrder(7L, 1, 0, 0, i, 1), START.plusSeconds(i / 2)));
+            entries.add(new PurchaseHistoryEntry(0, new PurchaseOrder(8L, 1, 0, 0, i, 1), START.plusSeconds(i)));
+        }
+        repository.insertAll(entries);
+
+        List<Integer> amounts = new ArrayList<>();
+        List<PurchaseHistoryEntry> page = repository.findByAccount(7L, 10);
+        while (!page.isEmpty()) {
+            page.forEach(e -> amounts.add(e.getOrder().getTotalAmount()));
+            PurchaseHistoryEntry last = page.get(page.size() - 1);
+            page = repository.findByAccountBefore(7L, last.getPurchasedAt(), last.getPurchaseId(), 10);
+        }
+
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 44; i >= 0; i--) {
+            expected.add(i);
+        }
+        assertEquals(expected, amounts);
+    }
+
+    @Test
+    @DisplayName("Stored purchases keep their counts, totals and time")
+    void storedPurchase_roundTrips() {
+        repository.insertAll(List.of(new PurchaseHistoryEntry(0, new PurchaseOrder(7L, 2, 1, 1, 65, 3), START)));
+
+        PurchaseHistoryEntry stored = repository.findByAccount(7L, 1).get(0);
+        PurchaseOrder        order  = stored.getOrder();
+        assertTrue(stored.getPurchaseId() > 0);
+        assertEquals(START, stored.getPurchasedAt());
+        assertEquals(7L, order.getAccountId());
+        assertEquals(2, order.getAdultCount());
+        assertEquals(1, order.getChildCount());
+        assertEquals(1, order.getInfantCount());
+        assertEquals(65, order.getTotalAmount());
+        assertEquals(3, order.getTotalSeats());
+    }
+
+    // Helpers
+
+    // The same store, turning down the first given number of writes
+    private PurchaseHistoryRepository failingFor(int writes) {
+        AtomicInteger outage = new AtomicInteger(writes);
+        return new PurchaseHistoryRepository(dbUrl) {
+            @Override
+            public void insertAll(List<PurchaseHistoryEntry> entries) {
+                if (outage.getAndDecrement() > 0) {
+                    throw new RuntimeException("connection refused");
+                }
+                super.insertAll(entries);
+            }
+        };
+    }
+
+    private void awaitWritten(long count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (recorder.getWrittenCount() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(count, recorder.getWrittenCount());
+    }
+}
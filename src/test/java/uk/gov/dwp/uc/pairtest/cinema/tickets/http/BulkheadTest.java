@@ -0,0 +1,91 @@
+package uk.gov.dwp.uc.pairtest.cinema.tickets.http;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link Bulkhead}.
+ */
+class BulkheadTest {
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private final Bulkhead purchase = new Bulkhead("purchase", 2, 3);
+    private final Bulkhead health   = new Bulkhead("health",   1, 1);
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        purchase.shutdown();
+        health.shutdown();
+    }
+
+    @Test
+    @DisplayName("Work beyond threads plus queue capacity is refused immediately")
+    void saturatedBulkhead_refusesExcessWork() throws Exception {
+        CountDownLatch running = new CountDownLatch(2);
+        for (int i = 0; i < 5; i++) {
+            assertTrue(purchase.tryExecute(() -> { running.countDown(); awaitRelease(); }));
+        }
+        assertTrue(running.await(5, TimeUnit.SECONDS));
+
+        assertFalse(purchase.tryExecute(() -> { }));
+        assertEquals(2, purchase.getActiveCount());
+        assertEquals(3, purchase.getQueueDepth());
+        assertEquals(5, purchase.getAcceptedCount());
+        assertEquals(1, purchase.getRejectedCount());
+    }
+
+    @Test
+    @DisplayName("A saturated bulkhead does not hold up work on another bulkhead")
+    void saturatedBulkhead_doesNotBlockOtherBulkhead() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            purchase.tryExecute(this::awaitRelease);
+        }
+
+        CountDownLatch healthServed = new CountDownLatch(1);
+        assertTrue(health.tryExecute(healthServed::countDown));
+        assertTrue(healthServed.await(1, TimeUnit.SECONDS), "health work should run while purchases are stuck");
+    }
+
+    @Test
+    @DisplayName("Queue wait of accepted work is recorded")
+    void queuedWork_recordsWaitTime() throws Exception {
+        Bulkhead single = new Bulkhead("single", 1, 5);
+        try {
+            CountDownLatch done = new CountDownLatch(2);
+            single.tryExecute(() -> { sleep(50); done.countDown(); });
+            single.tryExecute(done::countDown);
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+
+            assertTrue(single.getMaxWaitMillis() >= 40, "max wait was " + single.getMaxWaitMillis());
+            assertTrue(single.getAverageWaitMillis() > 0);
+        } finally {
+            single.shutdown();
+        }
+    }
+
+    // Helpers
+
+    private void awaitRelease() {
+        try {
+            release.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
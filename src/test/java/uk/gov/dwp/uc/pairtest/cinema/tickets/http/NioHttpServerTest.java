@@ -0,0 +1,267 @@
+package uk.gov.dwp.uc.pairtest.cinema.tickets.http;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for {@link NioHttpServer}, driven over raw sockets so keep-alive and pipelining are
+ * exercised exactly as written on the wire.
+ */
+class NioHttpServerTest {
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private final Bulkhead echoBulkhead = new Bulkhead("echo", 4, 10);
+    private final Bulkhead slowBulkhead = new Bulkhead("slow", 1, 1);
+
+    private NioHttpServer server;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        Router router = new Router(
+            route -> ApiResponse.json(503, "{\"busy\":\"" + route.getBulkhead().getName() + "\"}"),
+            e -> ApiResponse.json(500, "{\"error\":\"" + e.getMessage() + "\"}"));
+
+        // Echoes the method, path and body; /echo/sleep/<ms> answers after a delay
+        router.add("/echo", echoBulkhead, request -> {
+            if (request.getPath().startsWith("/echo/sleep/")) {
+                Thread.sleep(Long.parseLong(request.getPath().substring("/echo/sleep/".length())));
+            }
+            return ApiResponse.json(200, request.getMethod() + " " + request.getPath() + " " + request.getBodyAsString());
+        });
+        router.add("/slow", slowBulkhead, request -> {
+            release.await(10, TimeUnit.SECONDS);
+            return ApiResponse.json(200, "slow");
+        });
+        router.add("/fail", echoBulkhead, request -> {
+            throw new IllegalStateException("boom");
+        });
+
+        server = new NioHttpServer(new InetSocketAddress("localhost", 0), router, 500);
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        server.stop(2_000);
+        echoBulkhead.shutdown();
+        slowBulkhead.shutdown();
+    }
+
+    @Test
+    @DisplayName("Keep-alive: several requests are served one after another on one connection")
+    void keepAlive_servesSequentialRequestsOnOneConnection() throws Exception {
+        try (Socket socket = connect()) {
+            for (int i = 0; i < 5; i++) {
+                write(socket, post("/echo/" + i, "body-" + i));
+                Response response = readResponse(socket.getInputStream());
+
+                assertEquals(200, response.status);
+                assertEquals("POST /echo/" + i + " body-" + i, response.body);
+                assertFalse(response.head.contains("Connection: close"));
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Pipelining: responses come back in request order even when earlier requests are slower")
+    void pipelining_preservesResponseOrder() throws Exception {
+        try (Socket socket = connect()) {
+            write(socket, get("/echo/sleep/100") + get("/echo/sleep/0") + post("/echo/last", "x"));
+
+            InputStream in = socket.getInputStream();
+            assertEquals("GET /echo/sleep/100 ", readResponse(in).body);
+            assertEquals("GET /echo/sleep/0 ",   readResponse(in).body);
+            assertEquals("POST /echo/last x",    readResponse(in).body);
+        }
+    }
+
+    @Test
+    @DisplayName("Connection: close is answered and then the connection is closed")
+    void connectionClose_closesAfterResponse() throws Exception {
+        try (Socket socket = connect()) {
+            write(socket, "GET /echo/a HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n");
+
+            Response response = readResponse(socket.getInputStream());
+            assertEquals(200, response.status);
+            assertTrue(response.head.contains("Connection: close"));
+            assertEquals(-1, socket.getInputStream().read());
+        }
+    }
+
+    @Test
+    @DisplayName("HTTP/1.0 without keep-alive closes after one response")
+    void http10_closesByDefault() throws Exception {
+        try (Socket socket = connect()) {
+            write(socket, "GET /echo/a HTTP/1.0\r\n\r\n");
+
+            Response response = readResponse(socket.getInputStream());
+            assertEquals(200, response.status);
+            assertTrue(response.head.startsWith("HTTP/1.0 200"));
+            assertEquals(-1, socket.getInputStream().read());
+        }
+    }
+
+    @Test
+    @DisplayName("Malformed, unknown and failing requests get 400, 404 and 500")
+    void errorResponses() throws Exception {
+        try (Socket socket = connect()) {
+            write(socket, get("/nowhere"));
+            assertEquals(404, readResponse(socket.getInputStream()).status);
+
+            write(socket, get("/fail"));
+            assertEquals(500, readResponse(socket.getInputStream()).status);
+
+            write(socket, "NONSENSE\r\n\r\n");
+            assertEquals(400, readResponse(socket.getInputStream()).status);
+            assertEquals(-1, socket.getInputStream().read());
+        }
+    }
+
+    @Test
+    @DisplayName("A request larger than one buffer is refused")
+    void oversizedRequest_isRefused() throws Exception {
+        try (Socket socket = connect()) {
+            write(socket, "POST /echo HTTP/1.1\r\nContent-Length: " + (NioHttpServer.BUFFER_SIZE * 2) + "\r\n\r\n");
+            assertEquals(413, readResponse(socket.getInputStream()).status);
+        }
+    }
+
+    @Test
+    @DisplayName("A saturated bulkhead answers 503 without holding up other routes")
+    void saturatedBulkhead_answers503() throws Exception {
+        try (Socket busy = connect(); Socket queued = connect(); Socket refused = connect(); Socket other = connect()) {
+            write(busy, get("/slow"));
+            awaitActive(slowBulkhead);
+            write(queued, get("/slow"));
+            awaitQueued(slowBulkhead);
+
+            write(refused, get("/slow"));
+            Response response = readResponse(refused.getInputStream());
+            assertEquals(503, response.status);
+            assertEquals("{\"busy\":\"slow\"}", response.body);
+
+            write(other, get("/echo/ok"));
+            assertEquals(200, readResponse(other.getInputStream()).status);
+
+            release.countDown();
+            assertEquals("slow", readResponse(busy.getInputStream()).body);
+            assertEquals("slow", readResponse(queued.getInputStream()).body);
+        }
+    }
+
+    @Test
+    @DisplayName("Idle connections are closed after the idle timeout")
+    void idleConnection_isClosed() throws Exception {
+        try (Socket socket = connect()) {
+            write(socket, get("/echo/a"));
+            assertEquals(200, readResponse(socket.getInputStream()).status);
+
+            socket.setSoTimeout(5_000);
+            assertEquals(-1, socket.getInputStream().read());
+        }
+    }
+
+    @Test
+    @DisplayName("Response buffers are reused rather than allocated per request")
+    void buffers_areReused() throws Exception {
+        try (Socket socket = connect()) {
+            for (int i = 0; i < 200; i++) {
+                write(socket, get("/echo/" + i));
+                assertEquals(200, readResponse(socket.getInputStream()).status);
+            }
+        }
+        assertTrue(server.getBufferPool().getAllocatedCount() <= 4,
+                "allocated " + server.getBufferPool().getAllocatedCount() + " buffers for one connection");
+    }
+
+    // Helpers
+
+    private Socket connect() throws IOException {
+        Socket socket = new Socket("localhost", server.getAddress().getPort());
+        socket.setSoTimeout(5_000);
+        return socket;
+    }
+
+    private static String get(String path) {
+        return "GET " + path + " HTTP/1.1\r\nHost: localhost\r\n\r\n";
+    }
+
+    private static String post(String path, String body) {
+        return "POST " + path + " HTTP/1.1\r\nHost: localhost\r\nContent-Length: " + body.length() + "\r\n\r\n" + body;
+    }
+
+    private static void write(Socket socket, String request) throws IOException {
+        OutputStream out = socket.getOutputStream();
+        out.write(request.getBytes(StandardCharsets.ISO_8859_1));
+        out.flush();
+    }
+
+    private static void awaitActive(Bulkhead bulkhead) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (bulkhead.getActiveCount() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(1, bulkhead.getActiveCount());
+    }
+
+    private static void awaitQueued(Bulkhead bulkhead) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (bulkhead.getQueueDepth() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(1, bulkhead.getQueueDepth());
+    }
+
+    /** Reads one response, using Content-Length to find where it ends. */
+    static Response readResponse(InputStream in) throws IOException {
+        ByteArrayOutputStream head = new ByteArrayOutputStream();
+        int matched = 0;
+        while (matched < 4) {
+            int b = in.read();
+            if (b < 0) {
+                throw new IOException("Connection closed mid-response after: " + head);
+            }
+            head.write(b);
+            matched = (b == (matched % 2 == 0 ? '\r' : '\n')) ? matched + 1 : (b == '\r' ? 1 : 0);
+        }
+        String headText = head.toString(StandardCharsets.ISO_8859_1);
+
+        int contentLength = 0;
+        for (String line : headText.split("\r\n")) {
+            if (line.regionMatches(true, 0, "Content-Length:", 0, 15)) {
+                contentLength = Integer.parseInt(line.substring(15).trim());
+            }
+        }
+        byte[] body = in.readNBytes(contentLength);
+        return new Response(Integer.parseInt(headText.substring(9, 12)), headText,
+                            new String(body, StandardCharsets.UTF_8));
+    }
+
+    static final class Response {
+        final int    status;
+        final String head;
+        final String body;
+
+        Response(int status, String head, String body) {
+            this.status = status;
+            this.head   = head;
+            this.body   = body;
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package uk.gov.dwp.uc.pairtest.cinema.tickets.limit;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import thirdparty.paymentgateway.TicketPaymentService;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.TicketServiceImpl;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.domain.TicketTypeRequest;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.domain.TicketTypeRequest.Type;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.exception.InvalidPurchaseException;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.exception.ServiceOverloadedException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for {@link AdaptiveConcurrencyLimiter}, including a local simulation that drives
+ * {@link ConcurrencyLimitedTicketService} against a latency-injecting payment gateway with a
+ * fixed capacity and checks that the limit settles near that capacity.
+ *
+ * <p>Vegas keeps a few requests queued at the gateway on purpose, so the settled limit sits
+ * a little above the capacity; each run prints the limit trajectory sampled every 100ms.</p>
+ */
+class AdaptiveConcurrencyLimiterTest {
+
+    private static final int  CLIENT_THREADS     = 64;
+    private static final long GATEWAY_LATENCY_MS = 5;
+    private static final long SIMULATION_MS      = 3_000;
+
+    @Test
+    @DisplayName("Requests beyond the current limit are shed")
+    void requestsBeyondLimit_areShed() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(2, 1, 10);
+
+        assertTrue(limiter.tryAcquire());
+        assertTrue(limiter.tryAcquire());
+        assertFalse(limiter.tryAcquire());
+        assertEquals(1, limiter.getShedCount());
+
+        limiter.release(1_000_000);
+        assertTrue(limiter.tryAcquire());
+    }
+
+    @Test
+    @DisplayName("Invalid purchases are rejected without taking a slot")
+    void invalidPurchase_doesNotTakeSlot() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(1, 1, 1);
+        ConcurrencyLimitedTicketService service = new ConcurrencyLimitedTicketService(
+            new TicketServiceImpl((accountId, amount) -> { }, (accountId, seats) -> { }), limiter);
+
+        assertTrue(limiter.tryAcquire()); // the only slot is busy
+
+        assertThrows(InvalidPurchaseException.class, () ->
+            service.purchaseTickets(1L, new TicketTypeRequest(Type.CHILD, 1)));
+        assertThrows(ServiceOverloadedException.class, () ->
+            service.purchaseTickets(1L, new TicketTypeRequest(Type.ADULT, 1)));
+    }
+
+    @Test
+    @DisplayName("The no-load RTT comes from ordinary calls, without cutting admission, and old samples expire")
+    void rttNoLoad_isWindowedMinimumOfOrdinaryCalls() throws Exception {
+        long interval = TimeUnit.MILLISECONDS.toNanos(50);
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(10, 1, 10, 0, interval);
+
+        for (int i = 0; i < 10; i++) {
+            assertTrue(limiter.tryAcquire(), "slot " + i);
+        }
+        for (int i = 0; i < 10; i++) {
+            limiter.release(TimeUnit.MILLISECONDS.toNanos(i == 3 ? 2 : 8));
+        }
+        assertEquals(2.0, limiter.getRttNoLoadMillis(), 0.001);
+
+        // Two intervals later only the slower calls are left in the window
+        Thread.sleep(60);
+        feed(limiter, TimeUnit.MILLISECONDS.toNanos(5));
+        Thread.sleep(60);
+        feed(limiter, TimeUnit.MILLISECONDS.toNanos(5));
+        assertEquals(5.0, limiter.getRttNoLoadMillis(), 0.001);
+        assertEquals(0, limiter.getShedCount());
+    }
+
+    @Test
+    @DisplayName("Simulation: a limit that starts too high converges down to the gateway's capacity")
+    void simulation_limitConvergesDownToCapacity() throws Exception {
+        int capacity = 8;
+        List<Integer> trajectory = simulate(capacity, 60);
+
+        System.out.println("[Limiter] capacity=" + capacity + " trajectory=" + trajectory);
+        int settled = average(trajectory.subList(trajectory.size() - 10, trajectory.size()));
+
+        assertTrue(settled >= capacity * 3 / 4 && settled <= capacity * 2,
+                "limit settled at " + settled + " for a gateway capacity of " + capacity);
+    }
+
+    @Test
+    @DisplayName("Simulation: a limit that starts too low grows towards the gateway's capacity")
+    void simulation_limitConvergesUpToCapacity() throws Exception {
+        int capacity = 32;
+        List<Integer> trajectory = simulate(capacity, 4);
+
+        System.out.println("[Limiter] capacity=" + capacity + " trajectory=" + trajectory);
+        int settled = average(trajectory.subList(trajectory.size() - 10, trajectory.size()));
+
+        assertTrue(settled >= capacity * 3 / 4 && settled <= capacity * 2,
+                "limit settled at " + settled + " for a gateway capacity of " + capacity);
+    }
+
+    // Simulation
+
+    /**
+     * Runs {@link #CLIENT_THREADS} clients flat out against a gateway that serves {@code capacity}
+     * calls at a time, each taking {@link #GATEWAY_LATENCY_MS}; calls beyond capacity queue.
+     *
+     * @return the limit sampled every 100ms
+     */
+    private static List<Integer> simulate(int capacity, int initialLimit) throws Exception {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(initialLimit, 1, 200);
+        ConcurrencyLimitedTicketService service = new ConcurrencyLimitedTicketService(
+            new TicketServiceImpl(new SlowGateway(capacity), (accountId, seats) -> { }), limiter);
+
+        AtomicLong completed = new AtomicLong();
+        long deadline = System.currentTimeMillis() + SIMULATION_MS;
+
+        ExecutorService clients = Executors.newFixedThreadPool(CLIENT_THREADS);
+        for (int i = 0; i < CLIENT_THREADS; i++) {
+            long accountId = i + 1;
+            clients.submit(() -> {
+                while (System.currentTimeMillis() < deadline) {
+                    try {
+                        service.purchaseTickets(accountId, new TicketTypeRequest(Type.ADULT, 1));
+                        completed.incrementAndGet();
+                    } catch (ServiceOverloadedException e) {
+                        sleep(1); // a real client would back off before retrying
+                    }
+                }
+            });
+        }
+
+        List<Integer> trajectory = new ArrayList<>();
+        while (System.currentTimeMillis() < deadline) {
+            Thread.sleep(100);
+            trajectory.add(limiter.getLimit());
+        }
+        clients.shutdown();
+        assertTrue(clients.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertTrue(completed.get() > 0, "no purchases completed");
+        assertTrue(limiter.getShedCount() > 0, "64 clients against a limited gateway should shed some load");
+        return trajectory;
+    }
+
+    /** Payment gateway stand-in that serves {@code capacity} calls at once; the rest wait their turn. */
+    private static class SlowGateway implements TicketPaymentService {
+        private final Semaphore capacity;
+
+        SlowGateway(int capacity) {
+            this.capacity = new Semaphore(capacity, true);
+        }
+
+        @Override
+        public void makePayment(long accountId, int totalAmountToPay) {
+            capacity.acquireUninterruptibly();
+            try {
+                sleep(GATEWAY_LATENCY_MS);
+            } finally {
+                capacity.release();
+            }
+        }
+    }
+
+    private static void feed(AdaptiveConcurrencyLimiter limiter, long rttNanos) {
+        assertTrue(limiter.tryAcquire());
+        limiter.release(rttNanos);
+    }
+
+    private static int average(List<Integer> values) {
+        return (int) Math.round(values.stream().mapToInt(Integer::intValue).average().orElse(0));
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
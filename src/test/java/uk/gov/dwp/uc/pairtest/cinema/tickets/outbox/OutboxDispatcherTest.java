@@ -0,0 +1,192 @@
+package uk.gov.dwp.uc.pairtest.cinema.tickets.outbox;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import thirdparty.paymentgateway.TicketPaymentService;
+import thirdparty.seatbooking.SeatReservationService;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.domain.OutboxEntry;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.domain.OutboxEntry.Status;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.domain.PurchaseOrder;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.exception.InvalidPurchaseException.Reason;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.repository.PurchaseOutboxRepository;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for {@link OutboxDispatcher} against a private in-memory H2 database per test.
+ */
+class OutboxDispatcherTest {
+
+    private static final PurchaseOrder ORDER = new PurchaseOrder(7L, 2, 1, 1, 65, 3);
+
+    private final AtomicInteger paymentCalls = new AtomicInteger();
+    private final AtomicInteger seatCalls    = new AtomicInteger();
+
+    private final List<PurchaseOrder> completed = new CopyOnWriteArrayList<>();
+    private final List<Reason>        failed    = new CopyOnWriteArrayList<>();
+
+    private final String dbUrl = "jdbc:h2:mem:outbox-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1";
+
+    private PurchaseOutboxRepository repository;
+    private OutboxDispatcher         dispatcher;
+
+    @BeforeEach
+    void setUp() {
+        repository = new PurchaseOutboxRepository(dbUrl);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (dispatcher != null) {
+            dispatcher.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("Enqueued purchase is charged and seated once, then marked COMPLETED")
+    void enqueuedPurchase_isDispatchedAndCompleted() throws Exception {
+        dispatcher = newDispatcher(
+            (accountId, amount) -> { assertEquals(65, amount); paymentCalls.incrementAndGet(); },
+            (accountId, seats)  -> { assertEquals(3, seats);   seatCalls.incrementAndGet(); });
+        dispatcher.start();
+
+        long id = dispatcher.enqueue(ORDER);
+
+        OutboxEntry entry = awaitStatus(id, Status.COMPLETED);
+        assertTrue(entry.isPaymentTaken());
+        assertEquals(1, paymentCalls.get());
+        assertEquals(1, seatCalls.get());
+        assertEquals(List.of(ORDER), completed, "the listener hears of the order as enqueued");
+        assertTrue(failed.isEmpty());
+    }
+
+    @Test
+    @DisplayName("Transient payment failures are retried until the purchase completes")
+    void transientPaymentFailure_isRetried() throws Exception {
+        dispatcher = newDispatcher(
+            (accountId, amount) -> {
+                if (paymentCalls.incrementAndGet() < 3) throw new IllegalStateException("gateway timeout");
+            },
+            (accountId, seats) -> seatCalls.incrementAndGet());
+        dispatcher.start();
+
+        long id = dispatcher.enqueue(ORDER);
+
+        OutboxEntry entry = awaitStatus(id, Status.COMPLETED);
+        assertEquals(2, entry.getAttempts());
+        assertNull(entry.getLastError());
+        assertEquals(3, paymentCalls.get());
+        assertEquals(1, seatCalls.get());
+    }
+
+    @Test
+    @DisplayName("A seat reservation retry does not charge the account again")
+    void seatFailureAfterPayment_doesNotChargeTwice() throws Exception {
+        dispatcher = newDispatcher(
+            (accountId, amount) -> paymentCalls.incrementAndGet(),
+            (accountId, seats) -> {
+                if (seatCalls.incrementAndGet() == 1) throw new IllegalStateException("seat service unavailable");
+            });
+        dispatcher.start();
+
+        long id = dispatcher.enqueue(ORDER);
+
+        awaitStatus(id, Status.COMPLETED);
+        assertEquals(1, paymentCalls.get());
+        assertEquals(2, seatCalls.get());
+    }
+
+    @Test
+    @DisplayName("Purchase is marked FAILED after the maximum number of attempts")
+    void permanentFailure_isMarkedFailed() throws Exception {
+        dispatcher = newDispatcher(
+            (accountId, amount) -> { paymentCalls.incrementAndGet(); throw new IllegalStateException("card declined"); },
+            (accountId, seats) -> seatCalls.incrementAndGet());
+        dispatcher.start();
+
+        long id = dispatcher.enqueue(ORDER);
+
+        OutboxEntry entry = awaitStatus(id, Status.FAILED);
+        assertEquals(3, entry.getAttempts());
+        assertEquals("card declined", entry.getLastError());
+        assertEquals(3, paymentCalls.get());
+        assertEquals(0, seatCalls.get());
+        assertEquals(List.of(Reason.PAYMENT_FAILED), failed);
+        assertTrue(completed.isEmpty());
+    }
+
+    @Test
+    @DisplayName("PENDING purchases left by a previous run are dispatched on start")
+    void pendingPurchasesFromPreviousRun_areRecoveredOnStart() throws Exception {
+        long paidBeforeCrash   = repository.enqueue(ORDER);
+        long unpaidBeforeCrash = repository.enqueue(ORDER);
+        repository.markPaymentTaken(paidBeforeCrash);
+
+        dispatcher = newDispatcher(
+            (accountId, amount) -> paymentCalls.incrementAndGet(),
+            (accountId, seats) -> seatCalls.incrementAndGet());
+        dispatcher.start();
+
+        awaitStatus(paidBeforeCrash, Status.COMPLETED);
+        awaitStatus(unpaidBeforeCrash, Status.COMPLETED);
+        assertEquals(1, paymentCalls.get(), "only the unpaid purchase should be charged");
+        assertEquals(2, seatCalls.get());
+    }
+
+    @Test
+    @DisplayName("PENDING purchases accepted by another node sharing the store are left to it")
+    void pendingPurchasesOfAnotherNode_areNotDispatched() throws Exception {
+        PurchaseOutboxRepository otherNode = new PurchaseOutboxRepository(dbUrl, "other");
+        long theirs = otherNode.enqueue(ORDER);
+
+        dispatcher = newDispatcher(
+            (accountId, amount) -> paymentCalls.incrementAndGet(),
+            (accountId, seats) -> seatCalls.incrementAndGet());
+        dispatcher.start();
+        long ours = dispatcher.enqueue(ORDER);
+
+        awaitStatus(ours, Status.COMPLETED);
+        Thread.sleep(100); // two sweeps
+        assertEquals(Status.PENDING, repository.findById(theirs).orElseThrow().getStatus());
+        assertEquals(1, paymentCalls.get());
+    }
+
+    // Helpers
+
+    private OutboxDispatcher newDispatcher(TicketPaymentService paymentService, SeatReservationService seatService) {
+        OutboxDispatcher dispatcher = new OutboxDispatcher(repository, paymentService, seatService, 2, 100, 3, 10, 50);
+        dispatcher.setListener(new OutboxListener() {
+            @Override
+            public void purchaseCompleted(PurchaseOrder order) {
+                completed.add(order);
+            }
+
+            @Override
+            public void purchaseFailed(PurchaseOrder order, Reason reason) {
+                failed.add(reason);
+            }
+        });
+        return dispatcher;
+    }
+
+    private OutboxEntry awaitStatus(long purchaseId, Status expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        OutboxEntry entry = null;
+        while (System.currentTimeMillis() < deadline) {
+            entry = repository.findById(purchaseId).orElseThrow();
+            if (entry.getStatus() == expected && dispatcher.getInFlightCount() == 0) {
+                return entry;
+            }
+            Thread.sleep(10);
+        }
+        fail("Purchase " + purchaseId + " did not reach " + expected + ", last seen: " + entry);
+        return entry;
+    }
+}
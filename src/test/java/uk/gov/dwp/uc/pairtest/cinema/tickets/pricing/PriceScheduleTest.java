@@ -0,0 +1,132 @@
+package uk.gov.dwp.uc.pairtest.cinema.tickets.pricing;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.domain.PriceScheduleEntry;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.domain.TicketTypeRequest.Type;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static uk.gov.dwp.uc.pairtest.cinema.tickets.pricing.PriceSchedule.NO_PRICE;
+
+/**
+ * Tests for {@link PriceSchedule}.
+ */
+class PriceScheduleTest {
+
+    private static final Instant MONDAY = Instant.parse("2026-06-01T00:00:00Z");
+
+    @Nested
+    @DisplayName("Time windows")
+    class Windows {
+
+        @Test
+        @DisplayName("A window applies from its start, inclusive, to its end, exclusive")
+        void windowBounds() {
+            PriceSchedule schedule = PriceSchedule.of(List.of(site(1, Type.ADULT, hours(10), hours(17), 18)));
+
+            assertEquals(NO_PRICE, priceAt(schedule, Type.ADULT, hours(10) - 1));
+            assertEquals(18,       priceAt(schedule, Type.ADULT, hours(10)));
+            assertEquals(18,       priceAt(schedule, Type.ADULT, hours(17) - 1));
+            assertEquals(NO_PRICE, priceAt(schedule, Type.ADULT, hours(17)));
+            assertEquals(NO_PRICE, priceAt(schedule, Type.CHILD, hours(12)));
+        }
+
+        @Test
+        @DisplayName("Where windows overlap, the entry added last wins")
+        void overlap_latestWins() {
+            PriceSchedule schedule = PriceSchedule.of(List.of(
+                site(1, Type.ADULT, hours(0),  hours(48), 20),   // season
+                site(2, Type.ADULT, hours(12), hours(14), 5),    // one-off offer
+                site(3, Type.ADULT, hours(13), hours(30), 30)));  // later premium, overlapping both
+
+            assertEquals(20, priceAt(schedule, Type.ADULT, hours(11)));
+            assertEquals(5,  priceAt(schedule, Type.ADULT, hours(12)));
+            assertEquals(30, priceAt(schedule, Type.ADULT, hours(13)));
+            assertEquals(30, priceAt(schedule, Type.ADULT, hours(29)));
+            assertEquals(20, priceAt(schedule, Type.ADULT, hours(30)));
+            assertEquals(NO_PRICE, priceAt(schedule, Type.ADULT, hours(48)));
+        }
+
+        @Test
+        @DisplayName("An older entry overlapping a newer one shows only where the newer has ended")
+        void overlap_olderResumes() {
+            PriceSchedule schedule = PriceSchedule.of(List.of(
+                site(2, Type.ADULT, hours(0), hours(10), 12),
+                site(1, Type.ADULT, hours(5), hours(20), 15)));
+
+            assertEquals(12, priceAt(schedule, Type.ADULT, hours(6)));
+            assertEquals(15, priceAt(schedule, Type.ADULT, hours(10)));
+        }
+    }
+
+    @Nested
+    @DisplayName("Scopes")
+    class Scopes {
+
+        private final PriceSchedule schedule = PriceSchedule.of(List.of(
+            site(1, Type.ADULT, hours(0), hours(24), 20),
+            new PriceScheduleEntry(2, Type.ADULT, null, "IMAX", at(hours(0)),  at(hours(24)), 30),
+            new PriceScheduleEntry(3, Type.ADULT, "S-42", null, at(hours(19)), at(hours(22)), 40)));
+
+        @Test
+        @DisplayName("A screening's price beats its auditorium's, which beats the site's")
+        void narrowestScopeWins() {
+            assertEquals(40, schedule.priceAt(Type.ADULT, "S-42", "IMAX",    epoch(hours(20))));
+            assertEquals(30, schedule.priceAt(Type.ADULT, "S-7",  "IMAX",    epoch(hours(20))));
+            assertEquals(20, schedule.priceAt(Type.ADULT, "S-8",  "SCREEN1", epoch(hours(20))));
+            assertEquals(20, schedule.priceAt(Type.ADULT, null,   null,      epoch(hours(20))));
+        }
+
+        @Test
+        @DisplayName("A narrower scope falls back to a wider one outside its own windows")
+        void fallsBackOutsideWindow() {
+            assertEquals(30, schedule.priceAt(Type.ADULT, "S-42", "IMAX", epoch(hours(18))));
+            assertEquals(20, schedule.priceAt(Type.ADULT, "S-42", null,   epoch(hours(18))));
+            assertEquals(NO_PRICE, schedule.priceAt(Type.ADULT, "S-42", "IMAX", epoch(hours(25))));
+        }
+    }
+
+    @Test
+    @DisplayName("Thousands of entries resolve to the right window")
+    void manyEntries() {
+        // A year of alternating off-peak and peak blocks, every four hours
+        List<PriceScheduleEntry> entries = new ArrayList<>();
+        for (int block = 0; block < 365 * 6; block++) {
+            entries.add(site(block + 1, Type.ADULT, hours(block * 4), hours(block * 4 + 4), block % 2 == 0 ? 15 : 25));
+        }
+        PriceSchedule schedule = PriceSchedule.of(entries);
+
+        assertEquals(365 * 6, schedule.size());
+        for (int block = 0; block < 365 * 6; block += 97) {
+            assertEquals(block % 2 == 0 ? 15 : 25, priceAt(schedule, Type.ADULT, hours(block * 4) + 1));
+        }
+    }
+
+    // Helpers
+
+    private static PriceScheduleEntry site(long id, Type type, long fromMillis, long toMillis, int price) {
+        return new PriceScheduleEntry(id, type, null, null, at(fromMillis), at(toMillis), price);
+    }
+
+    private static int priceAt(PriceSchedule schedule, Type type, long offsetMillis) {
+        return schedule.priceAt(type, null, null, epoch(offsetMillis));
+    }
+
+    private static long epoch(long offsetMillis) {
+        return at(offsetMillis).toEpochMilli();
+    }
+
+    private static Instant at(long offsetMillis) {
+        return MONDAY.plusMillis(offsetMillis);
+    }
+
+    private static long hours(int hours) {
+        return Duration.ofHours(hours).toMillis();
+    }
+}
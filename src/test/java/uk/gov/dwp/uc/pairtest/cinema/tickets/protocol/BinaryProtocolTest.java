@@ -0,0 +1,130 @@
+package uk.gov.dwp.uc.pairtest.cinema.tickets.protocol;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.domain.TicketPrice;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.domain.TicketTypeRequest;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.domain.TicketTypeRequest.Type;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link BinaryProtocol} framing.
+ */
+class BinaryProtocolTest {
+
+    @Test
+    @DisplayName("A purchase request round-trips into TicketTypeRequests")
+    void purchaseRequest_roundTrips() {
+        byte[] frame = BinaryProtocol.encodePurchaseRequest(123_456_789_012L,
+            new TicketTypeRequest(Type.ADULT, 2), new TicketTypeRequest(Type.CHILD, 1), new TicketTypeRequest(Type.INFANT, 1));
+
+        assertEquals(4 + 10 + 6, frame.length);
+        assertEquals(frame.length - 2, BinaryProtocol.getShort(frame, 0));
+
+        BinaryProtocol.Purchase purchase = BinaryProtocol.decodePurchase(frame);
+        assertEquals(123_456_789_012L, purchase.getAccountId());
+        assertNull(purchase.getScreeningId());
+        assertEquals(3, purchase.getTickets().length);
+        assertEquals(Type.ADULT,  purchase.getTickets()[0].getTicketType());
+        assertEquals(2,           purchase.getTickets()[0].getNoOfTickets());
+        assertEquals(Type.INFANT, purchase.getTickets()[2].getTicketType());
+    }
+
+    @Test
+    @DisplayName("A purchase request carries the screening it is for")
+    void purchaseRequest_carriesScreening() {
+        byte[] frame = BinaryProtocol.encodePurchaseRequest(7L, "S-42", new TicketTypeRequest(Type.ADULT, 1));
+
+        assertEquals(4 + 10 + 4 + 2, frame.length);
+        BinaryProtocol.Purchase purchase = BinaryProtocol.decodePurchase(frame);
+        assertEquals("S-42", purchase.getScreeningId());
+        assertEquals(1, purchase.getTickets().length);
+
+        byte[] overlong = frame.clone();
+        overlong[4 + 8] = 40;
+        assertThrows(IllegalArgumentException.class, () -> BinaryProtocol.decodePurchase(overlong));
+        assertThrows(IllegalArgumentException.class, () ->
+            BinaryProtocol.encodePurchaseRequest(7L, "S".repeat(256), new TicketTypeRequest(Type.ADULT, 1)));
+    }
+
+    @Test
+    @DisplayName("Purchase and price responses round-trip")
+    void responses_roundTrip() {
+        BinaryResponse purchased = BinaryProtocol.decodeResponse(BinaryProtocol.encodePurchaseOk(65, 3));
+        assertEquals(BinaryProtocol.STATUS_OK, purchased.getStatus());
+        assertEquals(65, purchased.getTotalAmount());
+        assertEquals(3,  purchased.getTotalSeats());
+
+        BinaryResponse accepted = BinaryProtocol.decodeResponse(BinaryProtocol.encodePurchaseAccepted(42L, 25, 1));
+        assertEquals(BinaryProtocol.STATUS_ACCEPTED, accepted.getStatus());
+        assertEquals(42L, accepted.getPurchaseId());
+
+        BinaryResponse prices = BinaryProtocol.decodeResponse(BinaryProtocol.encodePrices(List.of(
+            new TicketPrice("ADULT", 25, true), new TicketPrice("INFANT", 0, false))));
+        assertEquals(2, prices.getPrices().size());
+        assertEquals("INFANT", prices.getPrices().get(1).getTicketType());
+        assertFalse(prices.getPrices().get(1).isRequiresSeat());
+
+        BinaryResponse error = BinaryProtocol.decodeResponse(
+            BinaryProtocol.encodeError(BinaryProtocol.OP_PURCHASE, BinaryProtocol.STATUS_INVALID, "Too many tickets — max 25"));
+        assertFalse(error.isSuccess());
+        assertEquals("Too many tickets — max 25", error.getMessage());
+    }
+
+    @Test
+    @DisplayName("Truncated, padded, mislabelled and unknown-type frames are rejected")
+    void malformedFrames_areRejected() {
+        byte[] frame = BinaryProtocol.encodePurchaseRequest(1L, new TicketTypeRequest(Type.ADULT, 1));
+
+        assertThrows(IllegalArgumentException.class, () -> BinaryProtocol.decodePurchase(Arrays.copyOf(frame, frame.length - 1)));
+        assertThrows(IllegalArgumentException.class, () -> BinaryProtocol.decodePurchase(Arrays.copyOf(frame, frame.length + 1)));
+        assertThrows(IllegalArgumentException.class, () -> BinaryProtocol.decodePurchase(BinaryProtocol.encodePricesRequest()));
+        assertThrows(IllegalArgumentException.class, () -> BinaryProtocol.decodePurchase(new byte[0]));
+
+        byte[] unknownType = frame.clone();
+        unknownType[unknownType.length - 2] = 9;
+        assertThrows(IllegalArgumentException.class, () -> BinaryProtocol.decodePurchase(unknownType));
+
+        byte[] wrongVersion = frame.clone();
+        wrongVersion[2] = 1; // before screening ids
+        assertThrows(IllegalArgumentException.class, () -> BinaryProtocol.decodePurchase(wrongVersion));
+    }
+
+    @Test
+    @DisplayName("Truncated, padded and unknown-type response frames are rejected")
+    void malformedResponses_areRejected() {
+        byte[] prices = BinaryProtocol.encodePrices(List.of(new TicketPrice("ADULT", 25, true)));
+
+        byte[] shortCount = prices.clone();
+        shortCount[BinaryProtocol.HEADER_SIZE + 1] = 2;
+        assertThrows(IllegalArgumentException.class, () -> BinaryProtocol.decodeResponse(shortCount));
+
+        byte[] unknownType = prices.clone();
+        unknownType[BinaryProtocol.HEADER_SIZE + 2] = 9;
+        assertThrows(IllegalArgumentException.class, () -> BinaryProtocol.decodeResponse(unknownType));
+
+        byte[] purchased = BinaryProtocol.encodePurchaseOk(65, 3);
+        byte[] truncated = Arrays.copyOf(purchased, purchased.length - 1);
+        truncated[1]--; // keep the length prefix consistent, so only the payload is short
+        assertThrows(IllegalArgumentException.class, () -> BinaryProtocol.decodeResponse(truncated));
+    }
+
+    @Test
+    @DisplayName("More prices than fit a count byte are refused by the encoder")
+    void tooManyPrices_isRefused() {
+        List<TicketPrice> prices = Collections.nCopies(256, new TicketPrice("ADULT", 25, true));
+        assertThrows(IllegalArgumentException.class, () -> BinaryProtocol.encodePrices(prices));
+    }
+
+    @Test
+    @DisplayName("Quantities that do not fit a byte are refused by the encoder")
+    void oversizedQuantity_isRefused() {
+        assertThrows(IllegalArgumentException.class, () ->
+            BinaryProtocol.encodePurchaseRequest(1L, new TicketTypeRequest(Type.ADULT, 256)));
+    }
+}
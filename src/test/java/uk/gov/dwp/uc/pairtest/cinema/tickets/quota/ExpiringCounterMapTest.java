@@ -0,0 +1,115 @@
+package uk.gov.dwp.uc.pairtest.cinema.tickets.quota;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for {@link ExpiringCounterMap}.
+ */
+class ExpiringCounterMapTest {
+
+    private static final long NOW    = 1_000_000;
+    private static final long LATER  = NOW + 3_600;
+
+    @Test
+    @DisplayName("Counts add up to the limit and no further")
+    void countsUpToLimit() {
+        ExpiringCounterMap map = new ExpiringCounterMap(1 << 12);
+
+        assertTrue(map.tryAdd(42, 6, 10, LATER, NOW));
+        assertTrue(map.tryAdd(42, 4, 10, LATER, NOW));
+        assertFalse(map.tryAdd(42, 1, 10, LATER, NOW));
+        assertEquals(10, map.get(42, NOW));
+        assertEquals(0,  map.get(43, NOW));
+        assertFalse(map.tryAdd(43, 11, 10, LATER, NOW));
+        assertEquals(0,  map.get(43, NOW));
+    }
+
+    @Test
+    @DisplayName("A counter expires at the time it started with, and starts again from zero")
+    void countersExpire() {
+        ExpiringCounterMap map = new ExpiringCounterMap(1 << 12);
+        map.tryAdd(42, 10, 10, LATER, NOW);
+
+        assertTrue(map.tryAdd(42, 0, 10, LATER + 100, NOW + 10)); // keeps its first expiry
+        assertEquals(10, map.get(42, LATER - 1));
+        assertEquals(0,  map.get(42, LATER));
+        assertTrue(map.tryAdd(42, 3, 10, LATER + 3_600, LATER));
+        assertEquals(3, map.get(42, LATER));
+    }
+
+    @Test
+    @DisplayName("Subtracting gives counts back, never below zero")
+    void subtract() {
+        ExpiringCounterMap map = new ExpiringCounterMap(1 << 12);
+        map.tryAdd(42, 8, 10, LATER, NOW);
+
+        map.subtract(42, 5, NOW);
+        assertEquals(3, map.get(42, NOW));
+        map.subtract(42, 5, NOW);
+        assertEquals(0, map.get(42, NOW));
+        map.subtract(99, 5, NOW); // unknown key: nothing to do
+        assertEquals(0, map.get(99, NOW));
+    }
+
+    @Test
+    @DisplayName("Memory stays bounded: expired slots are reused, and a full table evicts")
+    void boundedMemory() {
+        ExpiringCounterMap map = new ExpiringCounterMap(1);
+        int capacity = map.getCapacity();
+
+        // Ten times the capacity in keys, each day's expiring before the next day's arrive
+        for (int day = 0; day < 10; day++) {
+            long today = NOW + day * 86_400L;
+            for (long key = 1; key <= capacity / 2; key++) {
+                assertTrue(map.tryAdd(day * 1_000_000L + key, 1, 5, today + 86_400, today));
+            }
+        }
+        assertEquals(0, map.getEvictions());
+
+        // More live keys than slots: the oldest counts give way
+        for (long key = 1; key <= capacity * 2L; key++) {
+            map.tryAdd(-key, 1, 5, NOW + key, NOW);
+        }
+        assertTrue(map.getEvictions() >= capacity);
+        assertEquals(1, map.get(-capacity * 2L, NOW));
+    }
+
+    @Test
+    @DisplayName("Concurrent adds for one key never pass the limit")
+    void concurrentAdds_respectLimit() throws Exception {
+        ExpiringCounterMap map     = new ExpiringCounterMap(1 << 12);
+        AtomicInteger      granted = new AtomicInteger();
+        ExecutorService    pool    = Executors.newFixedThreadPool(8);
+        CountDownLatch     start   = new CountDownLatch(1);
+
+        for (int t = 0; t < 8; t++) {
+            pool.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < 10_000; i++) {
+                    if (map.tryAdd(7, 1, 1_000, LATER, NOW)) {
+                        granted.incrementAndGet();
+                    }
+                }
+            });
+        }
+        start.countDown();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(30, TimeUnit.SECONDS));
+
+        assertEquals(1_000, granted.get());
+        assertEquals(1_000, map.get(7, NOW));
+    }
+}
@@ -0,0 +1,167 @@
+package uk.gov.dwp.uc.pairtest.cinema.tickets.quota;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.PurchaseListener;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.TicketServiceImpl;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.domain.PurchaseOrder;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.domain.Screening;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.domain.TicketTypeRequest;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.domain.TicketTypeRequest.Type;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.exception.InvalidPurchaseException;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.exception.InvalidPurchaseException.Reason;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.repository.TicketPriceRepository;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for {@link PurchaseCaps}, enforced through {@link TicketServiceImpl}.
+ */
+class PurchaseCapsTest {
+
+    private static final Instant LUNCHTIME = Instant.parse("2026-06-01T12:00:00Z");
+
+    private static final TicketPriceRepository PRICES = new TicketPriceRepository(
+        "jdbc:h2:mem:caps-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", true);
+
+    static {
+        PRICES.addScreening(new Screening("S-1", "IMAX", LUNCHTIME.plus(Duration.ofHours(8))));
+        PRICES.addScreening(new Screening("S-2", "IMAX", LUNCHTIME.plus(Duration.ofHours(11))));
+    }
+
+    private final MutableClock clock = new MutableClock(LUNCHTIME);
+
+    @Test
+    @DisplayName("An account is turned down once it reaches its daily cap, and can buy again the next day")
+    void dailyCap() {
+        TicketServiceImpl service = service(new PurchaseCaps(30, 0, 1 << 12, clock), new AtomicInteger());
+
+        service.purchaseTickets(1L, adults(25));
+        InvalidPurchaseException e = assertThrows(InvalidPurchaseException.class,
+            () -> service.purchaseTickets(1L, adults(6)));
+        assertEquals(Reason.ACCOUNT_LIMIT_REACHED, e.getReason());
+
+        service.purchaseTickets(1L, adults(5));  // exactly at the cap
+        service.purchaseTickets(2L, adults(25)); // other accounts are unaffected
+
+        clock.set(Instant.parse("2026-06-02T00:00:00Z"));
+        service.purchaseTickets(1L, adults(25));
+    }
+
+    @Test
+    @DisplayName("The screening cap counts each screening separately")
+    void screeningCap() {
+        TicketServiceImpl service = service(new PurchaseCaps(0, 10, 1 << 12, clock), new AtomicInteger());
+
+        service.purchaseTickets(1L, "S-1", adults(10));
+        assertThrows(InvalidPurchaseException.class, () -> service.purchaseTickets(1L, "S-1", adults(1)));
+        service.purchaseTickets(1L, "S-2", adults(10));
+    }
+
+    @Test
+    @DisplayName("While the screening cap is on, a purchase must name a screening that has not started")
+    void screeningCap_needsUpcomingScreening() {
+        PurchaseCaps      caps    = new PurchaseCaps(30, 10, 1 << 12, clock);
+        TicketServiceImpl service = service(caps, new AtomicInteger());
+
+        InvalidPurchaseException none = assertThrows(InvalidPurchaseException.class,
+            () -> service.purchaseTickets(1L, adults(1)));
+        assertEquals(Reason.INVALID_SCREENING, none.getReason());
+
+        clock.set(LUNCHTIME.plus(Duration.ofHours(9)));
+        InvalidPurchaseException started = assertThrows(InvalidPurchaseException.class,
+            () -> service.purchaseTickets(1L, "S-1", adults(1)));
+        assertEquals(Reason.INVALID_SCREENING, started.getReason());
+        assertEquals(0, caps.getTicketsToday(1L));
+
+        service.purchaseTickets(1L, "S-2", adults(1));
+    }
+
+    @Test
+    @DisplayName("A purchase turned down by one cap is not counted against the other")
+    void rejectedByOneCap_notCountedByOther() {
+        PurchaseCaps      caps    = new PurchaseCaps(20, 10, 1 << 12, clock);
+        TicketServiceImpl service = service(caps, new AtomicInteger());
+
+        service.purchaseTickets(1L, "S-1", adults(8));
+        assertThrows(InvalidPurchaseException.class, () -> service.purchaseTickets(1L, "S-1", adults(5)));
+        assertEquals(8, caps.getTicketsToday(1L));
+    }
+
+    @Test
+    @DisplayName("Tickets from a purchase that fails to complete are given back")
+    void failedPurchase_isReleased() {
+        PurchaseCaps      caps     = new PurchaseCaps(30, 0, 1 << 12, clock);
+        AtomicInteger     failures = new AtomicInteger(1);
+        TicketServiceImpl service  = service(caps, failures);
+
+        assertThrows(InvalidPurchaseException.class, () -> service.purchaseTickets(1L, adults(25)));
+        assertEquals(0, caps.getTicketsToday(1L));
+
+        service.purchaseTickets(1L, adults(25));
+        assertEquals(25, caps.getTicketsToday(1L));
+    }
+
+    @Test
+    @DisplayName("A prepared purchase the outbox gives up on is given back")
+    void failedDispatch_isReleased() {
+        PurchaseCaps      caps    = new PurchaseCaps(30, 0, 1 << 12, clock);
+        TicketServiceImpl service = service(caps, new AtomicInteger());
+
+        PurchaseOrder order = service.preparePurchase(1L, adults(25));
+        assertEquals(25, caps.getTicketsToday(1L));
+
+        service.failPurchase(order, Reason.PAYMENT_FAILED);
+        assertEquals(0, caps.getTicketsToday(1L));
+    }
+
+    @Test
+    @DisplayName("Disabled caps keep no map at all")
+    void none_isDisabled() {
+        assertFalse(PurchaseCaps.none().isEnabled());
+        assertEquals(0, PurchaseCaps.none().getCapacity());
+    }
+
+    // Helpers
+
+    // The payment gateway fails while failures remain
+    private static TicketServiceImpl service(PurchaseCaps caps, AtomicInteger failures) {
+        return new TicketServiceImpl(
+            (accountId, amount) -> {
+                if (failures.getAndDecrement() > 0) {
+                    throw new IllegalStateException("card declined");
+                }
+            },
+            (accountId, seats) -> { },
+            PRICES, PurchaseListener.NONE, caps);
+    }
+
+    private static TicketTypeRequest adults(int count) {
+        return new TicketTypeRequest(Type.ADULT, count);
+    }
+
+    private static final class MutableClock extends Clock {
+        private Instant now;
+
+        MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        void set(Instant now) {
+            this.now = now;
+        }
+
+        @Override public ZoneId  getZone()             { return ZoneOffset.UTC; }
+        @Override public Clock   withZone(ZoneId zone) { return this; }
+        @Override public Instant instant()             { return now; }
+        @Override public long    millis()              { return now.toEpochMilli(); }
+    }
+}
@@ -0,0 +1,234 @@
+package uk.gov.dwp.uc.pairtest.cinema.tickets.stats;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.TicketServiceImpl;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.domain.PurchaseOrder;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.domain.TicketTypeRequest;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.domain.TicketTypeRequest.Type;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.exception.InvalidPurchaseException;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.exception.InvalidPurchaseException.Reason;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.repository.SalesStatisticsRepository;
+import uk.gov.dwp.uc.pairtest.cinema.tickets.repository.TicketPriceRepository;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for {@link SalesStatistics} and {@link SalesStatisticsFlusher}.
+ */
+class SalesStatisticsTest {
+
+    private static final Instant NOON = Instant.parse("2026-06-01T12:00:00Z");
+
+    // 2 adults, 1 child and 1 infant at £25 / £15 / £0
+    private static final PurchaseOrder FAMILY = new PurchaseOrder(7L, 2, 1, 1, 50, 15, 0, 3);
+
+    private final MutableClock    clock = new MutableClock(NOON);
+    private final SalesStatistics stats = new SalesStatistics(clock);
+
+    @Nested
+    @DisplayName("Counting")
+    class Counting {
+
+        @Test
+        @DisplayName("Purchases add tickets and revenue by type; rejections count by reason")
+        void purchasesAndRejections_areCounted() {
+            stats.purchaseCompleted(FAMILY);
+            stats.purchaseCompleted(FAMILY);
+            stats.purchaseRejected(Reason.TOO_MANY_TICKETS);
+
+            SalesSnapshot totals = stats.totals();
+            assertEquals(2,   totals.getPurchases());
+            assertEquals(4,   totals.getTickets(Type.ADULT));
+            assertEquals(2,   totals.getTickets(Type.INFANT));
+            assertEquals(100, totals.getRevenue(Type.ADULT));
+            assertEquals(30,  totals.getRevenue(Type.CHILD));
+            assertEquals(130, totals.getTotalRevenue());
+            assertEquals(1,   totals.getRejections(Reason.TOO_MANY_TICKETS));
+            assertEquals(1,   totals.getTotalRejections());
+        }
+
+        @Test
+        @DisplayName("TicketServiceImpl reports each completed and rejected purchase")
+        void ticketService_feedsStatistics() {
+            TicketServiceImpl service = new TicketServiceImpl((a, amount) -> { }, (a, seats) -> { },
+                                                              new TicketPriceRepository(), stats);
+
+            service.purchaseTickets(1L, new TicketTypeRequest(Type.ADULT, 2), new TicketTypeRequest(Type.CHILD, 1));
+            assertThrows(InvalidPurchaseException.class,
+                () -> service.purchaseTickets(1L, new TicketTypeRequest(Type.CHILD, 1)));
+            assertThrows(InvalidPurchaseException.class,
+                () -> service.purchaseTickets(0L, new TicketTypeRequest(Type.ADULT, 1)));
+
+            SalesSnapshot totals = stats.totals();
+            assertEquals(1,  totals.getPurchases());
+            assertEquals(65, totals.getTotalRevenue());
+            assertEquals(1,  totals.getRejections(Reason.ADULT_REQUIRED));
+            assertEquals(1,  totals.getRejections(Reason.INVALID_ACCOUNT));
+        }
+
+        @Test
+        @DisplayName("Concurrent purchases are all counted")
+        void concurrentPurchases_areAllCounted() throws Exception {
+            int threads = 8, perThread = 10_000;
+            ExecutorService pool  = Executors.newFixedThreadPool(threads);
+            CountDownLatch  start = new CountDownLatch(1);
+            for (int t = 0; t < threads; t++) {
+                pool.execute(() -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int i = 0; i < perThread; i++) {
+                        stats.purchaseCompleted(FAMILY);
+                    }
+                });
+            }
+            start.countDown();
+            pool.shutdown();
+            assertTrue(pool.awaitTermination(30, TimeUnit.SECONDS));
+
+            assertEquals((long) threads * perThread,     stats.totals().getPurchases());
+            assertEquals((long) threads * perThread * 4, stats.lastHour().getTotalTickets());
+        }
+    }
+
+    @Nested
+    @DisplayName("Per-minute window")
+    class Window {
+
+        @Test
+        @DisplayName("Each minute is counted separately and the last hour sums them")
+        void minutes_areSeparate() {
+            stats.purchaseCompleted(FAMILY);
+            clock.advance(Duration.ofMinutes(1));
+            stats.purchaseCompleted(FAMILY);
+            stats.purchaseCompleted(FAMILY);
+
+            long now = stats.currentMinute();
+            assertEquals(2, stats.minute(now).getPurchases());
+            assertEquals(1, stats.minute(now - 1).getPurchases());
+            assertEquals(3, stats.lastHour().getPurchases());
+        }
+
+        @Test
+        @DisplayName("Minutes older than the window drop out; the totals keep them")
+        void oldMinutes_leaveTheWindow() {
+            stats.purchaseCompleted(FAMILY);
+            long first = stats.currentMinute();
+
+            clock.advance(Duration.ofMinutes(SalesStatistics.WINDOW_MINUTES));
+            stats.purchaseCompleted(FAMILY); // reuses the first minute's bucket
+
+            assertEquals(0, stats.minute(first).getPurchases());
+            assertEquals(1, stats.minute(stats.currentMinute()).getPurchases());
+            assertEquals(1, stats.lastHour().getPurchases());
+            assertEquals(2, stats.totals().getPurchases());
+        }
+    }
+
+    @Nested
+    @DisplayName("Persistence")
+    class Persistence {
+
+        private final String dbUrl = "jdbc:h2:mem:stats-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1";
+
+        private final SalesStatisticsRepository repository = new SalesStatisticsRepository(dbUrl);
+
+        @Test
+        @DisplayName("Flushed totals are restored by the next run and closed minutes are stored")
+        void totals_surviveRestart() {
+            SalesStatisticsFlusher flusher = new SalesStatisticsFlusher(stats, repository, 60_000);
+            flusher.start();
+            stats.purchaseCompleted(FAMILY);
+            stats.purchaseRejected(Reason.NO_TICKETS);
+            clock.advance(Duration.ofMinutes(1));
+            stats.purchaseCompleted(FAMILY);
+            flusher.flush(false);
+
+            Map<String, Long> closed = repository.findMinute(NOON);
+            assertEquals(1L,  closed.get("purchases"));
+            assertEquals(50L, closed.get("revenue.ADULT"));
+            assertEquals(15L, closed.get("revenue.CHILD"));
+
+            flusher.shutdown(); // saves the open minute as well
+            assertEquals(1L, repository.findMinute(NOON.plusSeconds(60)).get("purchases"));
+
+            SalesStatistics restarted = new SalesStatistics(clock);
+            new SalesStatisticsFlusher(restarted, repository, 60_000).start();
+            restarted.purchaseCompleted(FAMILY);
+
+            assertEquals(3, restarted.totals().getPurchases());
+            assertEquals(195, restarted.totals().getTotalRevenue());
+            assertEquals(1, restarted.totals().getRejections(Reason.NO_TICKETS));
+            assertEquals(1, restarted.lastHour().getPurchases());
+        }
+
+        @Test
+        @DisplayName("Nodes sharing a store each restore only their own totals")
+        void nodes_keepTheirOwnTotals() {
+            SalesStatisticsFlusher flusher = new SalesStatisticsFlusher(stats, repository, 60_000);
+            flusher.start();
+            stats.purchaseCompleted(FAMILY);
+            flusher.shutdown();
+
+            SalesStatisticsRepository other = new SalesStatisticsRepository(dbUrl, "other", true);
+            SalesStatistics otherStats = new SalesStatistics(clock);
+            new SalesStatisticsFlusher(otherStats, other, 60_000).start();
+
+            assertEquals(0, otherStats.totals().getPurchases());
+            assertTrue(other.findMinute(NOON).isEmpty());
+            assertEquals(1L, repository.findTotals().get("purchases"));
+        }
+
+        @Test
+        @DisplayName("Repeated flushes add only what is new")
+        void flushes_addDeltas() {
+            SalesStatisticsFlusher flusher = new SalesStatisticsFlusher(stats, repository, 60_000);
+            flusher.start();
+
+            stats.purchaseCompleted(FAMILY);
+            flusher.flush(false);
+            flusher.flush(false);
+            stats.purchaseCompleted(FAMILY);
+            flusher.flush(false);
+
+            Map<String, Long> totals = repository.findTotals();
+            assertEquals(2L, totals.get("purchases"));
+            assertEquals(4L, totals.get("tickets.ADULT"));
+            assertEquals(2L, totals.get("tickets.INFANT"));
+        }
+    }
+
+    // Helpers
+
+    private static final class MutableClock extends Clock {
+        private Instant now;
+
+        MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override public ZoneId  getZone()               { return ZoneOffset.UTC; }
+        @Override public Clock   withZone(ZoneId zone)   { return this; }
+        @Override public Instant instant()               { return now; }
+    }
+}